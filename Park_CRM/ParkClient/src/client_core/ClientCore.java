@@ -6,11 +6,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
-import com.google.gson.*;
 import ocsf.client.*;
 import client_core.CommandPacket;
 import client_gui.ClientLoginController;
@@ -30,15 +33,16 @@ import javafx.util.Pair;
  */
 public class ClientCore extends AbstractClient {
 
+    /** Seconds a request waits for its response. */
+    public static final long REQUEST_TIMEOUT_SECONDS = 5;
+
     // Fields and variables
     private String subscriberId, subscriberName, subscriberEmail, subscriberStatus;
-    private volatile boolean loginSuccess = false, tableSuccess = false;
-    private CountDownLatch loginLatch, getTableLatch, updateLatch, createLatch, userHistoryLatch, recoverLatch, currentParkingLatch, editUserLatch, pickupLatch, extendLatch, depositLatch, reserveLatch, reportLatch;
-    private int loginCode, updateCode, createCode, recoverCode, editUserCode, pickupCode, extendCode, depositCode, reserveCode, reportCode;
-    private String loginDesc, updateDesc, createDesc, currentParkingDesc, editUserDesc, pickupDesc, extendDesc, depositDesc, reserveDesc, reportDesc;
-    private List<Map<String, String>> getTableResult, userHistoryResult, currentParkingResult, reportResult;
-    private List<String> recoverData;
-    private Gson Gson = new Gson();
+    private volatile boolean loginSuccess = false;
+    private volatile boolean compressionAccepted;
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final Map<String, CompletableFuture<CommandPacket>> pending = new ConcurrentHashMap<>();
+    private final ParkingModel parkingModel = new ParkingModel();
     private String subscriberPassword;
     private String subscriberPhone;
 
@@ -50,30 +54,38 @@ public class ClientCore extends AbstractClient {
 
     /**
      * Handles messages received from the server.
+     * Deflated messages are inflated by {@link PacketCodec#decode(Object)}.
+     * A response carrying the request ID of a pending request completes that request;
+     * anything else (HELLO, PARKING_DELTA, DISCONNECT, SHUTDOWN) is handled by command.
      *
      * @param msg The message received from the server.
      */
     @Override
     protected void handleMessageFromServer(Object msg) {
-        if (!(msg instanceof String json)) return;
-
-        CommandPacket packet = Gson.fromJson(json, CommandPacket.class);
+        CommandPacket packet;
+        try {
+            packet = PacketCodec.decode(msg);
+        } catch (IOException e) {
+            System.err.println("❌ " + e.getMessage());
+            return;
+        }
+        if (packet == null || packet.getCommand() == null) return;
         String command = packet.getCommand().toUpperCase();
 
         System.out.println("📥 Received CommandPacket: " + packet);
+        if (packet.getRequestId() != null) {
+            CompletableFuture<CommandPacket> future = pending.remove(packet.getRequestId());
+            if (future != null) {
+                future.complete(packet);
+            } else {
+                System.err.println("⚠️ Dropped late " + command + " response, request " + packet.getRequestId());
+            }
+            return;
+        }
         switch (command) {
-            case "LOGIN" -> handleLoginResponse(packet);
+            case "HELLO" -> handleHelloResponse(packet);
+            case "PARKING_DELTA" -> parkingModel.apply(packet);
             case "LOGOUT" -> handleLogoutResponse(packet);
-            case "CREATE" -> handleCreateResponse(packet);
-            case "CURRENT_PARKING" -> handleCurrentParkingResponse(packet);
-            case "REPORT" -> handleReportResponse(packet);
-            case "DEPOSIT" -> handleDepositResponse(packet);
-            case "PICKUP" -> handlePickupResponse(packet);
-            case "EXTEND" -> handleExtendResponse(packet);
-            case "RESERVE" -> handleReserveResponse(packet);
-            case "EDIT_USER" -> handleEditUserResponse(packet);
-            case "USER_HISTORY" -> handleUserHistoryResponse(packet);
-            case "RECOVER" -> handleRecoverResponse(packet);
             case "DISCONNECT" -> handleDisconnectResponse(packet);
             case "SHUTDOWN" -> handleShutdown(packet);
             default -> handledefaultResponse(packet.getAnswer(), packet.getDescription());
@@ -92,6 +104,141 @@ public class ClientCore extends AbstractClient {
         return new Pair<>(code, dec);
     }
 
+    /**
+     * Announces the client's capabilities right after connecting.
+     * The server answers with HELLO; no one waits for it, since every message is decoded the same way.
+     */
+    private void sendHello() {
+        CommandPacket command = new CommandPacket();
+        command.setCommand("HELLO");
+
+        Map<String, String> args = new HashMap<>();
+        args.put("compression", PacketCodec.DEFLATE); // large responses may arrive deflated
+        command.setArgs(args);
+
+        try {
+            sendToServer(PacketCodec.encode(command));
+        } catch (IOException e) {
+            System.err.println("❌ Failed to send HELLO: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles the server's response to HELLO.
+     *
+     * @param packet The CommandPacket received from the server.
+     */
+    private void handleHelloResponse(CommandPacket packet) {
+        Map<String, String> args = packet.getArgs();
+        compressionAccepted = args != null && PacketCodec.DEFLATE.equals(args.get("compression"));
+        if (compressionAccepted) {
+            System.out.println("📦 Server compresses responses above " + args.get("compress_threshold") + " bytes");
+        }
+    }
+
+    /**
+     * @return true if the server agreed to send large responses deflated.
+     */
+    public boolean isCompressionAccepted() {
+        return compressionAccepted;
+    }
+
+    /**
+     * Sends a command with a fresh request ID and returns a future of its response.
+     * The server echoes the ID, so any number of requests can be in flight on the connection
+     * and each response completes its own future, in whatever order they arrive.
+     * The future fails with an {@link IOException} if the command cannot be sent, and with a
+     * {@link TimeoutException} if no response arrives within {@link #REQUEST_TIMEOUT_SECONDS}.
+     *
+     * @param command The command to send.
+     * @return The future response.
+     */
+    public CompletableFuture<CommandPacket> request(CommandPacket command) {
+        String requestId = Long.toString(nextRequestId.incrementAndGet());
+        command.setRequestId(requestId);
+
+        CompletableFuture<CommandPacket> future = new CompletableFuture<>();
+        pending.put(requestId, future);
+        future.orTimeout(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+              .whenComplete((response, error) -> pending.remove(requestId));
+
+        try {
+            sendToServer(PacketCodec.encode(command));
+        } catch (IOException e) {
+            System.err.println("❌ Failed to send " + command.getCommand() + ": " + e.getMessage());
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Sends a command and waits for its response.
+     * If there is none, a local packet without a request ID is returned instead:
+     * 503 if the command could not be sent or the wait was interrupted, 504 on timeout.
+     *
+     * @param command The command to send.
+     * @return The server's response, or the local failure packet.
+     */
+    private CommandPacket call(CommandPacket command) {
+        try {
+            return request(command).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failure(503, "Interrupted while waiting");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                System.err.println("⏱ " + command.getCommand() + " timeout");
+                return failure(504, "Timeout waiting for server");
+            }
+            return failure(503, "Connection error: " + e.getCause().getMessage());
+        }
+    }
+
+    private static CommandPacket failure(int code, String description) {
+        CommandPacket packet = new CommandPacket();
+        packet.setAnswer(code);
+        packet.setDescription(description);
+        return packet;
+    }
+
+    /**
+     * @param response A packet returned by {@link #call}.
+     * @return true if it is a local failure rather than a server response.
+     */
+    private static boolean failed(CommandPacket response) {
+        return response.getRequestId() == null;
+    }
+
+    /**
+     * Fails every request still waiting for a response, e.g. when the connection is lost.
+     *
+     * @param reason The message of the IOException the futures fail with.
+     */
+    private void failPending(String reason) {
+        IOException error = new IOException(reason);
+        for (CompletableFuture<CommandPacket> future : pending.values()) future.completeExceptionally(error);
+    }
+
+    /**
+     * Fails the pending requests when the connection is closed.
+     */
+    @Override
+    protected void connectionClosed() {
+        failPending("Connection closed");
+        parkingModel.clear();
+    }
+
+    /**
+     * Fails the pending requests when the connection breaks.
+     *
+     * @param exception The reason the connection broke.
+     */
+    @Override
+    protected void connectionException(Exception exception) {
+        failPending("Connection lost: " + exception.getMessage());
+        parkingModel.clear();
+    }
+
 
 	
 // =================== System Commands -- END===================
@@ -102,7 +249,7 @@ public class ClientCore extends AbstractClient {
 	
 // ========================================================= Admin Commands -- START =========================================================	
 	
-	//=================== Create User Command & Handler ===================
+	//=================== Create User Command ===================
     /**
      * Sends a request to create a new user.
      *
@@ -113,7 +260,6 @@ public class ClientCore extends AbstractClient {
      * @return A pair containing the response code and description.
      */
     public Pair<Integer, String> createUser(String name, String password, String email, String phone) {
-        createLatch = new CountDownLatch(1);
         CommandPacket command = new CommandPacket();
         command.setCommand("CREATE");
 
@@ -124,88 +270,51 @@ public class ClientCore extends AbstractClient {
         args.put("phone", phone);
         command.setArgs(args);
 
-        try {
-            sendToServer(Gson.toJson(command));
-        } catch (IOException e) {
-            return new Pair<>(503, "Connection error: " + e.getMessage());
-        }
-
-        try {
-            boolean responded = createLatch.await(5, TimeUnit.SECONDS);
-            if (!responded) {
-                return new Pair<>(504, "Server timeout.");
-            }
-        } catch (InterruptedException e) {
-            return new Pair<>(503, "Interrupted while waiting for response.");
-        }
-
-        return new Pair<>(createCode, createDesc);
-    }
-
-    /**
-     * Handles the server response for the create user command.
-     *
-     * @param packet The command packet received from the server.
-     */
-    private void handleCreateResponse(CommandPacket packet) {
-        createCode = packet.getAnswer();
-        createDesc = packet.getDescription();
-
-        if (createLatch != null) {
-            createLatch.countDown();
-        }
+        CommandPacket response = call(command);
+        return new Pair<>(response.getAnswer(), response.getDescription());
     }
 
 	
 	
-	//=================== Current Parking Command & Handler ===================
+	//=================== Current Parking Command ===================
     /**
-     * Retrieves the current parking status from the server.
+     * Retrieves the current parking status.
+     * The first call subscribes to the lot with SUBSCRIBE_PARKING; from then on the server pushes
+     * the changes into {@link #getParkingModel()} and the status is served from it.
+     * Falls back to CURRENT_PARKING if the server refuses the subscription.
      *
-     * @return A pair containing the list of parking data and a description.
+     * @return A pair containing the list of parking data and a description, or null on error.
      */
     public Pair<List<Map<String, String>>, String> getCurrentParkingStatus() {
-        currentParkingLatch = new CountDownLatch(1);
-        currentParkingResult = null;
-        currentParkingDesc = null;
-
-        CommandPacket command = new CommandPacket();
-        command.setCommand("CURRENT_PARKING");
-
-        try {
-            sendToServer(Gson.toJson(command));
-        } catch (IOException e) {
-            System.err.println("❌ Failed to send CURRENT_PARKING: " + e.getMessage());
-            return null;
+        if (parkingModel.isLoaded()) {
+            return new Pair<>(parkingModel.table(), parkingModel.percent());
         }
 
-        try {
-            if (!currentParkingLatch.await(5, TimeUnit.SECONDS)) {
-                System.err.println("❌ Timeout waiting for CURRENT_PARKING");
-                return null;
-            }
-        } catch (InterruptedException e) {
-            System.err.println("❌ Interrupted during CURRENT_PARKING");
-            return null;
+        CommandPacket command = new CommandPacket();
+        command.setCommand("SUBSCRIBE_PARKING");
+        CommandPacket response = call(command);
+        if (failed(response)) return null;
+        if (response.getAnswer() == 200) {
+            parkingModel.load(response.getTable(), response.getDescription(),
+                    response.getArgs() == null ? null : response.getArgs().get("version"));
+            return new Pair<>(parkingModel.table(), parkingModel.percent());
         }
 
-        return new Pair<>(currentParkingResult, currentParkingDesc);
+        command = new CommandPacket();
+        command.setCommand("CURRENT_PARKING");
+        response = call(command);
+        if (failed(response)) return null;
+        return new Pair<>(response.getTable(), response.getDescription()); // table of parking spaces, % used
     }
 
     /**
-     * Handles the server response for the current parking status command.
-     *
-     * @param packet The command packet received from the server.
+     * @return The lot as pushed by the server after {@link #getCurrentParkingStatus()} subscribed.
      */
-    private void handleCurrentParkingResponse(CommandPacket packet) {
-        currentParkingResult = packet.getTable(); // table of parking spaces
-        currentParkingDesc = packet.getDescription(); // % used
-        if (currentParkingLatch != null) {
-            currentParkingLatch.countDown();
-        }
+    public ParkingModel getParkingModel() {
+        return parkingModel;
     }
 
-	//=================== Reports Command & Handler ===================
+	//=================== Reports Command ===================
 
     /**
      * Retrieves a report from the server based on the specified type, month, and year.
@@ -216,51 +325,36 @@ public class ClientCore extends AbstractClient {
      * @return A pair containing the report data and the response code.
      */
     public Pair<List<Map<String, String>>, Integer> getReport(String type, String month, String year) {
-        reportLatch = new CountDownLatch(1);
-        reportResult = null;
-        reportCode = 500; // default error
-        reportDesc = null;
-
-        CommandPacket command = new CommandPacket();
-        command.setCommand("REPORT");
-
-        Map<String, String> args = new HashMap<>();
-        args.put("report_month", month);
-        args.put("report_year", year);
-        args.put("report_type", type); // "PARKING" or "USERS"
-        command.setArgs(args);
-
         try {
-            sendToServer(Gson.toJson(command));
-        } catch (IOException e) {
-            return new Pair<>(null, 503); // connection error
-        }
-
-        try {
-            boolean responded = reportLatch.await(5, TimeUnit.SECONDS);
-            if (!responded) {
-                return new Pair<>(null, 504); // timeout
-            }
+            CommandPacket response = getReportAsync(type, month, year).get();
+            return new Pair<>(response.getTable(), response.getAnswer());
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return new Pair<>(null, 503);
+        } catch (ExecutionException e) {
+            return new Pair<>(null, e.getCause() instanceof TimeoutException ? 504 : 503);
         }
-
-        return new Pair<>(reportResult, reportCode);
     }
 
     /**
-     * Handles the server response for the report command.
+     * Requests a report without waiting for it, so several months can be requested at once.
      *
-     * @param packet The command packet received from the server.
+     * @param type  The type of the report ("PARKING" or "USERS").
+     * @param month The month of the report.
+     * @param year  The year of the report.
+     * @return The future REPORT response (answer code and table).
      */
-    private void handleReportResponse(CommandPacket packet) {
-        reportCode = packet.getAnswer();
-        reportDesc = packet.getDescription();
-        reportResult = packet.getTable();
+    public CompletableFuture<CommandPacket> getReportAsync(String type, String month, String year) {
+        CommandPacket command = new CommandPacket();
+        command.setCommand("REPORT");
 
-        if (reportLatch != null) {
-            reportLatch.countDown();
-        }
+        Map<String, String> args = new HashMap<>();
+        args.put("report_month", month);
+        args.put("report_year", year);
+        args.put("report_type", type); // "PARKING" or "USERS"
+        command.setArgs(args);
+
+        return request(command);
     }
 
 
@@ -276,7 +370,7 @@ public class ClientCore extends AbstractClient {
 	
 // ========================================================= User Commands -- START =========================================================
 
-	//=================== Deposit Vehicle Command & Handler ===================
+	//=================== Deposit Vehicle Command ===================
     /**
      * Sends a request to deposit a vehicle.
      *
@@ -285,10 +379,6 @@ public class ClientCore extends AbstractClient {
      * @return A pair containing the response code and description.
      */
     public Pair<Integer, String> depositVehicle(String subscriberId, String orderNumber) {
-        depositLatch = new CountDownLatch(1);
-        depositCode = 500;
-        depositDesc = "Internal error";
-
         CommandPacket command = new CommandPacket();
         command.setCommand("DEPOSIT");
 
@@ -301,36 +391,12 @@ public class ClientCore extends AbstractClient {
         }
         command.setArgs(args);
 
-        try {
-            sendToServer(Gson.toJson(command));
-        } catch (IOException e) {
-            return new Pair<>(503, "Connection error: " + e.getMessage());
-        }
-
-        try {
-            if (!depositLatch.await(5, TimeUnit.SECONDS)) {
-                return new Pair<>(504, "Timeout waiting for server");
-            }
-        } catch (InterruptedException e) {
-            return new Pair<>(503, "Interrupted while waiting");
-        }
-
-        return new Pair<>(depositCode, depositDesc); // desc holds confirmation code
-    }
-
-    /**
-     * Handles the server response for the deposit vehicle command.
-     *
-     * @param packet The command packet received from the server.
-     */
-    private void handleDepositResponse(CommandPacket packet) {
-        depositCode = packet.getAnswer();
-        depositDesc = packet.getDescription(); // confirmation code or error message
-        if (depositLatch != null) depositLatch.countDown();
+        CommandPacket response = call(command);
+        return new Pair<>(response.getAnswer(), response.getDescription()); // desc holds confirmation code
     }
 
 	
-	//=================== Reserve Parking Command & Handler ===================
+	//=================== Reserve Parking Command ===================
     /**
      * Sends a request to reserve a parking spot.
      *
@@ -340,10 +406,6 @@ public class ClientCore extends AbstractClient {
      * @return A pair containing the response code and description.
      */
     public Pair<Integer, String> reserveParking(String subscriberId, String orderDate, String orderTime) {
-        reserveLatch = new CountDownLatch(1);
-        reserveCode = 500;
-        reserveDesc = "Internal client error";
-
         CommandPacket command = new CommandPacket();
         command.setCommand("RESERVE");
 
@@ -353,40 +415,14 @@ public class ClientCore extends AbstractClient {
         args.put("order_time", orderTime);
         command.setArgs(args);
 
-        try {
-            sendToServer(Gson.toJson(command));
-        } catch (IOException e) {
-            return new Pair<>(503, "Connection error: " + e.getMessage());
-        }
-
-        try {
-            boolean responded = reserveLatch.await(5, TimeUnit.SECONDS);
-            if (!responded) {
-                return new Pair<>(504, "Timeout waiting for server");
-            }
-        } catch (InterruptedException e) {
-            return new Pair<>(503, "Interrupted while waiting");
-        }
-
-        return new Pair<>(reserveCode, reserveDesc);
-    }
-
-    /**
-     * Handles the server response for the reserve parking command.
-     *
-     * @param packet The command packet received from the server.
-     */
-    private void handleReserveResponse(CommandPacket packet) {
-        reserveCode = packet.getAnswer();
-        reserveDesc = packet.getDescription();
-
-        if (reserveLatch != null) reserveLatch.countDown();
+        CommandPacket response = call(command);
+        return new Pair<>(response.getAnswer(), response.getDescription());
     }
 
 
 	
 	
-	//=================== Pickup Parking Command & Handler ===================
+	//=================== Pickup Parking Command ===================
     /**
      * Sends a request to pick up a vehicle.
      *
@@ -395,10 +431,6 @@ public class ClientCore extends AbstractClient {
      * @return A pair containing the response code and description.
      */
     public Pair<Integer, String> pickup(String subscriberId, String confirmationCode) {
-        pickupLatch = new CountDownLatch(1);
-        pickupCode = 500;
-        pickupDesc = "Internal error";
-
         CommandPacket command = new CommandPacket();
         command.setCommand("PICKUP");
 
@@ -407,32 +439,8 @@ public class ClientCore extends AbstractClient {
         args.put("parking_confirmation_code", confirmationCode);
         command.setArgs(args);
 
-        try {
-            sendToServer(Gson.toJson(command));
-        } catch (IOException e) {
-            return new Pair<>(503, "Connection error: " + e.getMessage());
-        }
-
-        try {
-            if (!pickupLatch.await(5, TimeUnit.SECONDS)) {
-                return new Pair<>(504, "Timeout waiting for server");
-            }
-        } catch (InterruptedException e) {
-            return new Pair<>(503, "Interrupted while waiting");
-        }
-
-        return new Pair<>(pickupCode, pickupDesc);
-    }
-
-    /**
-     * Handles the server response for the pickup command.
-     *
-     * @param packet The command packet received from the server.
-     */
-    private void handlePickupResponse(CommandPacket packet) {
-        pickupCode = packet.getAnswer();
-        pickupDesc = packet.getDescription();
-        if (pickupLatch != null) pickupLatch.countDown();
+        CommandPacket response = call(command);
+        return new Pair<>(response.getAnswer(), response.getDescription());
     }
 
 
@@ -440,7 +448,7 @@ public class ClientCore extends AbstractClient {
 	
 	
 	
-	//=================== Extend Parking Command & Handler ===================
+	//=================== Extend Parking Command ===================
     /**
      * Sends a request to extend a parking reservation.
      *
@@ -449,10 +457,6 @@ public class ClientCore extends AbstractClient {
      * @return A pair containing the response code and description.
      */
     public Pair<Integer, String> extendParking(String subscriberId, String confirmationCode) {
-        extendLatch = new CountDownLatch(1);
-        extendCode = 500;
-        extendDesc = "Internal error";
-
         CommandPacket command = new CommandPacket();
         command.setCommand("EXTEND");
 
@@ -461,39 +465,15 @@ public class ClientCore extends AbstractClient {
         args.put("parking_confirmation_code", confirmationCode);
         command.setArgs(args);
 
-        try {
-            sendToServer(Gson.toJson(command));
-        } catch (IOException e) {
-            return new Pair<>(503, "Connection error: " + e.getMessage());
-        }
-
-        try {
-            if (!extendLatch.await(5, TimeUnit.SECONDS)) {
-                return new Pair<>(504, "Timeout waiting for server");
-            }
-        } catch (InterruptedException e) {
-            return new Pair<>(503, "Interrupted while waiting");
-        }
-
-        return new Pair<>(extendCode, extendDesc);
-    }
-
-    /**
-     * Handles the server response for the extend parking command.
-     *
-     * @param packet The command packet received from the server.
-     */
-    private void handleExtendResponse(CommandPacket packet) {
-        extendCode = packet.getAnswer();
-        extendDesc = packet.getDescription();
-        if (extendLatch != null) extendLatch.countDown();
+        CommandPacket response = call(command);
+        return new Pair<>(response.getAnswer(), response.getDescription());
     }
 
 
 	
 	
 	
-	//=================== Edit User Command & Handler ===================
+	//=================== Edit User Command ===================
     /**
      * Sends an EDIT_USER command to the server to update the subscriber's details.
      * Waits for a response containing a result code and description.
@@ -506,10 +486,6 @@ public class ClientCore extends AbstractClient {
      *         - String: description or error message.
      */
     public Pair<Integer, String> editUserDetails(String email, String password, String phone) {
-        editUserLatch = new CountDownLatch(1);
-        editUserCode = 500;
-        editUserDesc = "Unknown error";
-
         CommandPacket command = new CommandPacket();
         command.setCommand("EDIT_USER");
 
@@ -520,38 +496,8 @@ public class ClientCore extends AbstractClient {
         args.put("subscriber_phone", phone);
         command.setArgs(args);
 
-        try {
-            sendToServer(Gson.toJson(command));
-        } catch (IOException e) {
-            System.err.println("❌ Failed to send EDIT_USER: " + e.getMessage());
-            return new Pair<>(503, "Connection error");
-        }
-
-        try {
-            if (!editUserLatch.await(5, TimeUnit.SECONDS)) {
-                System.err.println("❌ Timeout waiting for EDIT_USER");
-                return new Pair<>(504, "Timeout waiting for server");
-            }
-        } catch (InterruptedException e) {
-            System.err.println("❌ Interrupted during EDIT_USER");
-            return new Pair<>(503, "Thread interrupted");
-        }
-
-        return new Pair<>(editUserCode, editUserDesc);
-    }
-
-    /**
-     * Handles the server's response to the EDIT_USER command.
-     * Extracts the response code and description, and releases the latch.
-     *
-     * @param packet The response CommandPacket received from the server.
-     */
-    private void handleEditUserResponse(CommandPacket packet) {
-        this.editUserCode = packet.getAnswer();
-        this.editUserDesc = packet.getDescription();
-        if (editUserLatch != null) {
-            editUserLatch.countDown();
-        }
+        CommandPacket response = call(command);
+        return new Pair<>(response.getAnswer(), response.getDescription());
     }
 
 
@@ -566,10 +512,10 @@ public class ClientCore extends AbstractClient {
 	
 // ========================================================= Shared Commands -- START =========================================================
 	
-	//=================== Login Command & Handler ===================
+	//=================== Login Command ===================
     /**
      * Sends a LOGIN command to the server with the provided email and password.
-     * Waits for the server's response and processes it to determine login success.
+     * Waits for the server's response; on success (status code 200) the subscriber fields are set.
      *
      * @param email    The subscriber's email address.
      * @param password The subscriber's password.
@@ -578,60 +524,29 @@ public class ClientCore extends AbstractClient {
      *         - String: description or error message from the server.
      */
     public Pair<Integer, String> logIn(String email, String password, boolean forceLogin) {
-        loginLatch = new CountDownLatch(1); // reset for each login
         CommandPacket command = new CommandPacket();
         Map<String, String> args = new HashMap<>();
         args.put("subscriber_email", email);
         args.put("subscriber_password", password);
         args.put("force_login", String.valueOf(forceLogin));
+        args.put("table_format", PacketCodec.COLUMNAR); // tables arrive as columns + positional rows
         command.setCommand("LOGIN");
         command.setArgs(args);
-        try {
-            sendToServer(Gson.toJson(command));
-        } catch (IOException e) {
-            System.err.println("❌ Failed to send CommandPacket : " + e.getMessage());
-            return new Pair<>(503, "Connection error");
-        }
 
-        try {
-            boolean responded = loginLatch.await(5, TimeUnit.SECONDS);
-            if (!responded) {
-                return new Pair<>(504, "Timeout waiting for server");
-            }
-        } catch (InterruptedException e) {
-            return new Pair<>(503, "Thread interrupted");
-        }
-        return new Pair<>(loginCode, loginDesc);
-    }
-    
-
-    /**
-     * Handles the server's response to a LOGIN command.
-     * If login is successful (status code 200), updates subscriber fields.
-     * Releases the login latch to allow the logIn method to continue.
-     *
-     * @param packet The CommandPacket containing the server's login response.
-     */
-    private void handleLoginResponse(CommandPacket packet) {
-        loginCode = packet.getAnswer();
-        loginDesc = packet.getDescription();
-
-        if (loginCode == 200) {
-            Map<String, String> args = packet.getArgs();
+        CommandPacket response = call(command);
+        if (response.getAnswer() == 200 && !failed(response)) {
+            Map<String, String> result = response.getArgs();
             setUser(
-                args.get("subscriber_id"),
-                args.get("subscriber_name"),
-                args.get("subscriber_email"),
-                args.get("subscription_status"),
-                args.get("subscriber_phone"),
-                args.get("subscriber_password")
+                result.get("subscriber_id"),
+                result.get("subscriber_name"),
+                result.get("subscriber_email"),
+                result.get("subscription_status"),
+                result.get("subscriber_phone"),
+                result.get("subscriber_password")
             );
             loginSuccess = true;
         }
-
-        if (loginLatch != null) {
-            loginLatch.countDown();
-        }
+        return new Pair<>(response.getAnswer(), response.getDescription());
     }
 
 	
@@ -647,7 +562,7 @@ public class ClientCore extends AbstractClient {
         command.setCommand("LOGOUT");
 
         try {
-            sendToServer(Gson.toJson(command));
+            sendToServer(PacketCodec.encode(command));
         } catch (IOException e) {
             System.err.println("❌ Failed to send CommandPacket : " + e.getMessage());
         }
@@ -774,59 +689,67 @@ public class ClientCore extends AbstractClient {
 
 	
 	
-	//=================== User History Command & Handler ===================
+	//=================== User History Command ===================
 	/**
-	 * Retrieves the user history from the server.
+	 * One page of a subscriber's history.
 	 *
-	 * @param userId The ID of the user whose history is to be retrieved.
-	 * @return A list of maps containing the user history data.
+	 * @param rows       The rows of the page, newest first; empty if there is no history, null if the request failed.
+	 * @param nextCursor The cursor of the following page, or null when this was the last one.
 	 */
-	public List<Map<String, String>> getUserHistory(String userId) {
-	    userHistoryLatch = new CountDownLatch(1);
-	    userHistoryResult = null; // clear previous results
-
-	    CommandPacket command = new CommandPacket();
-	    command.setCommand("USER_HISTORY");
-
-	    Map<String, String> args = new HashMap<>();
-	    args.put("user_id", userId);
-	    command.setArgs(args);
-
-	    try {
-	        sendToServer(Gson.toJson(command));
-	    } catch (IOException e) {
-	        System.err.println("❌ Failed to send USER_HISTORY: " + e.getMessage());
-	        return null;
-	    }
+	public record HistoryPage(List<Map<String, String>> rows, String nextCursor) {}
 
+	/**
+	 * Retrieves one page of the user history from the server, newest first.
+	 *
+	 * @param userId   The ID of the user whose history is to be retrieved.
+	 * @param pageSize Maximum number of rows to return.
+	 * @param cursor   The next cursor of the previous page, or null for the first page.
+	 * @return The page, or null on error or timeout.
+	 */
+	public HistoryPage getUserHistory(String userId, int pageSize, String cursor) {
 	    try {
-	        boolean responded = userHistoryLatch.await(5, TimeUnit.SECONDS);
-	        if (!responded) {
-	            System.err.println("⏱ USER_HISTORY timeout");
-	            return null;
-	        }
+	        return getUserHistoryAsync(userId, pageSize, cursor).get();
 	    } catch (InterruptedException e) {
+	        Thread.currentThread().interrupt();
 	        System.err.println("🛑 Interrupted while waiting for USER_HISTORY");
 	        return null;
+	    } catch (ExecutionException e) {
+	        System.err.println("⏱ USER_HISTORY failed: " + e.getCause().getMessage());
+	        return null;
 	    }
-
-	    return userHistoryResult;
 	}
 
 	/**
-	 * Handles the server response for the user history command.
+	 * Requests one page of the user history without waiting for it.
 	 *
-	 * @param packet The command packet received from the server.
+	 * @param userId   The ID of the user whose history is to be retrieved.
+	 * @param pageSize Maximum number of rows to return.
+	 * @param cursor   The next cursor of the previous page, or null for the first page.
+	 * @return The future page.
 	 */
-	private void handleUserHistoryResponse(CommandPacket packet) {
-	    this.userHistoryResult = packet.getTable(); // assuming getTable() gives List<Map<...>>
-	    if (userHistoryLatch != null) {
-	        userHistoryLatch.countDown();
-	    }
+	public CompletableFuture<HistoryPage> getUserHistoryAsync(String userId, int pageSize, String cursor) {
+	    CommandPacket command = new CommandPacket();
+	    command.setCommand("USER_HISTORY");
+
+	    Map<String, String> args = new HashMap<>();
+	    args.put("user_id", userId);
+	    args.put("page_size", String.valueOf(pageSize));
+	    if (cursor != null) args.put("cursor", cursor);
+	    command.setArgs(args);
+
+	    return request(command).thenApply(response -> switch (response.getAnswer()) {
+	        case 200 -> new HistoryPage(response.getTable(),
+	                response.getArgs() == null ? null : response.getArgs().get("next_cursor"));
+	        case 204 -> new HistoryPage(List.of(), null);
+	        default -> {
+	            System.err.println("❌ USER_HISTORY answered " + response.getAnswer() + ": " + response.getDescription());
+	            yield new HistoryPage(null, null);
+	        }
+	    });
 	}
 
 	
-	//=================== Recover User Command & Handler ===================
+	//=================== Recover User Command ===================
 	/**
 	 * Sends a RECOVER command to the server to retrieve subscriber information (e.g., for lost credentials).
 	 * Waits for a response and returns the result mapped by the response code.
@@ -840,10 +763,6 @@ public class ClientCore extends AbstractClient {
 	 *         Returns null on error or timeout.
 	 */
 	public Map<Integer, List<String>> RecoverUser(String userId) {
-	    recoverLatch = new CountDownLatch(1);
-	    recoverCode = 500;
-	    recoverData = null;
-
 	    CommandPacket command = new CommandPacket();
 	    command.setCommand("RECOVER");
 
@@ -851,55 +770,24 @@ public class ClientCore extends AbstractClient {
 	    args.put("user_id", userId);
 	    command.setArgs(args);
 
-	    try {
-	        sendToServer(Gson.toJson(command));
-	    } catch (IOException e) {
-	        System.err.println("❌ Failed to send RECOVER: " + e.getMessage());
-	        return null;
-	    }
-
-	    try {
-	        boolean responded = recoverLatch.await(5, TimeUnit.SECONDS);
-	        if (!responded) {
-	            System.err.println("⏱ RECOVER timeout");
-	            return null;
-	        }
-	    } catch (InterruptedException e) {
-	        System.err.println("🛑 Interrupted during RECOVER wait");
-	        return null;
+	    CommandPacket response = call(command);
+	    if (failed(response)) return null;
+
+	    List<String> data = null; // no data if not successful
+	    if (response.getAnswer() == 200) {
+	        Map<String, String> result = response.getArgs();
+	        data = new ArrayList<>();
+	        data.add(result.getOrDefault("subscriber_name", ""));
+	        data.add(result.getOrDefault("subscriber_email", ""));
+	        data.add(result.getOrDefault("subscriber_phone", ""));
+	        data.add(result.getOrDefault("parking_confirmation_code", ""));
 	    }
 
 	    Map<Integer, List<String>> result = new HashMap<>();
-	    result.put(recoverCode, recoverData);
+	    result.put(response.getAnswer(), data);
 	    return result;
 	}
 
-	/**
-	 * Handles the server's response to the RECOVER command.
-	 * Extracts subscriber recovery data if the response code is 200.
-	 *
-	 * @param packet The CommandPacket received from the server.
-	 */
-	private void handleRecoverResponse(CommandPacket packet) {
-	    this.recoverCode = packet.getAnswer();
-	    if (this.recoverCode != 200) {
-	        this.recoverData = null; // no data if not successful
-	        return;
-	    }
-
-	    List<String> data = new ArrayList<>();
-	    Map<String, String> args = packet.getArgs();
-	    data.add(args.getOrDefault("subscriber_name", ""));
-	    data.add(args.getOrDefault("subscriber_email", ""));
-	    data.add(args.getOrDefault("subscriber_phone", ""));
-	    data.add(args.getOrDefault("parking_confirmation_code", ""));
-
-	    this.recoverData = data;
-	    if (recoverLatch != null) {
-	        recoverLatch.countDown();
-	    }
-	}
-
 	
 // ========================================================= Shared Commands -- END =========================================================	
 	
@@ -919,6 +807,7 @@ public class ClientCore extends AbstractClient {
 	public ClientCore(String host, int port) throws IOException {
 	    super(host, port);
 	    this.openConnection();
+	    sendHello();
 	}
 
 	/**
@@ -12,7 +12,8 @@ import java.util.*;
  *
  * <p>Typical usage:
  * - Client sends a CommandPacket with command and arguments.
- * - Server responds with a CommandPacket containing a status code and optional data.</p>
+ * - Server responds with a CommandPacket containing a status code and optional data.
+ * - A request ID set by the client is echoed in the response, so responses can be matched to requests.</p>
  *
  * <p>Status codes:</p>
  * <ul>
@@ -33,6 +34,7 @@ public class CommandPacket implements Serializable {
 	private static final long serialVersionUID = 1L;
 
 	private String command;
+	private String requestId;
 	private Map<String, String> args;
 	private List<Map<String, String>> table;
 	private int answer;
@@ -52,6 +54,13 @@ public class CommandPacket implements Serializable {
 		return command;
 	}
 
+	/**
+	 * @return The ID the client gave the request, echoed in its response; null for unsolicited packets.
+	 */
+	public String getRequestId() {
+		return requestId;
+	}
+
 	/**
 	 * @return A map of key-value arguments related to the command.
 	 */
@@ -91,6 +100,15 @@ public class CommandPacket implements Serializable {
 		this.command = command;
 	}
 
+	/**
+	 * Sets the request ID.
+	 *
+	 * @param requestId The ID that matches a response to its request.
+	 */
+	public void setRequestId(String requestId) {
+		this.requestId = requestId;
+	}
+
 	/**
 	 * Sets the arguments map.
 	 *
@@ -135,6 +153,7 @@ public class CommandPacket implements Serializable {
 		StringBuilder sb = new StringBuilder();
 		sb.append("\n📦 CommandPacket Debug:\n");
 		sb.append("├─ Command    : ").append(this.getCommand()).append("\n");
+		if (this.getRequestId() != null) sb.append("├─ Request ID : ").append(this.getRequestId()).append("\n");
 		sb.append("├─ Answer     : ").append(this.getAnswer()).append("\n");
 		sb.append("├─ Description: ").append(this.getDescription()).append("\n");
 
@@ -0,0 +1,469 @@
+package client_core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.zip.InflaterInputStream;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Encodes and decodes {@link CommandPacket}s as UTF-8 JSON with a hand-written {@link TypeAdapter}.
+ * Stateless and thread-safe; the same class exists in {@code server_core} so both sides agree on the format.
+ *
+ * <p>Packets travel over OCSF as {@code byte[]}: the JSON is streamed straight into the byte buffer
+ * and parsed straight out of it, without reflection and without building an intermediate
+ * {@code String}. The JSON layout is the one Gson produced for CommandPacket before, and
+ * {@link #decode(Object)} still accepts a JSON {@code String}, so older peers keep working.</p>
+ *
+ * <p>Tables can also be sent columnar, once negotiated at LOGIN: the column names are written once
+ * and every row becomes a positional array, {@code "columns":["parking_space","status"],
+ * "rows":[["101","available"],...]}, instead of a {@code "table"} of objects repeating every key.
+ * The decoder accepts both, and a columnar table still reads as a {@code List<Map<String, String>>}
+ * through {@link CommandPacket#getTable()}; its rows are views over the arrays.</p>
+ *
+ * <p>Large responses may arrive deflated, once the peer announced support in HELLO: the message then
+ * starts with the {@link #DEFLATED} byte, which can never start JSON, followed by a zlib stream.
+ * {@link #decode(Object)} inflates those while parsing.</p>
+ */
+public final class PacketCodec {
+
+    /** Value of the LOGIN {@code table_format} arg that asks for columnar tables. */
+    public static final String COLUMNAR = "columnar";
+
+    /** First byte of a deflated message; JSON never starts with it. */
+    public static final byte DEFLATED = 0x01;
+
+    /** Value of the HELLO {@code compression} arg that announces support for deflated messages. */
+    public static final String DEFLATE = "deflate";
+
+    /** The shared adapters; they hold no state. */
+    private static final TypeAdapter<CommandPacket> ADAPTER = new CommandPacketAdapter(false);
+    private static final TypeAdapter<CommandPacket> COLUMNAR_ADAPTER = new CommandPacketAdapter(true);
+
+    private PacketCodec() {}
+
+    /**
+     * Encodes a packet into UTF-8 JSON bytes, ready for {@code sendToServer}.
+     *
+     * @param packet The packet to encode.
+     * @return The encoded packet.
+     */
+    public static byte[] encode(CommandPacket packet) {
+        return encode(packet, false);
+    }
+
+    /**
+     * Encodes a packet into UTF-8 JSON bytes.
+     *
+     * @param packet   The packet to encode.
+     * @param columnar true to send the table as columns + positional rows (only to peers that asked for it).
+     * @return The encoded packet.
+     */
+    public static byte[] encode(CommandPacket packet, boolean columnar) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(estimateSize(packet));
+        try {
+            encode(packet, columnar, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen for an in-memory stream
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Streams a packet as UTF-8 JSON into an output stream. The stream is flushed, not closed.
+     *
+     * @param packet   The packet to encode.
+     * @param columnar true to send the table as columns + positional rows.
+     * @param out      The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public static void encode(CommandPacket packet, boolean columnar, OutputStream out) throws IOException {
+        JsonWriter json = new JsonWriter(new Utf8Writer(out));
+        (columnar ? COLUMNAR_ADAPTER : ADAPTER).write(json, packet);
+        json.flush();
+    }
+
+    /**
+     * Decodes a message received from OCSF.
+     *
+     * @param msg UTF-8 JSON bytes (possibly deflated), or a JSON string from an older peer.
+     * @return The decoded packet, or null if the message is neither.
+     * @throws IOException If the JSON is malformed or the deflated data is corrupt.
+     */
+    public static CommandPacket decode(Object msg) throws IOException {
+        if (msg instanceof byte[] bytes && bytes.length > 0 && bytes[0] == DEFLATED) {
+            try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+                return decode(in);
+            }
+        }
+        if (msg instanceof byte[] bytes) return decode(new ByteArrayInputStream(bytes));
+        if (msg instanceof String json) return read(new StringReader(json));
+        return null;
+    }
+
+    /**
+     * Streams a packet out of UTF-8 JSON.
+     *
+     * @param in The stream to read one packet from.
+     * @return The decoded packet.
+     * @throws IOException If reading fails or the JSON is malformed.
+     */
+    public static CommandPacket decode(InputStream in) throws IOException {
+        return read(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    private static CommandPacket read(Reader reader) throws IOException {
+        try {
+            return ADAPTER.read(new JsonReader(reader));
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Malformed CommandPacket: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A rough upper bound of the encoded size, so the buffer is not grown row by row.
+     */
+    private static int estimateSize(CommandPacket packet) {
+        List<Map<String, String>> table = packet.getTable();
+        if (table == null || table.isEmpty()) return 256;
+        return 256 + table.size() * (16 + table.get(0).size() * 16);
+    }
+
+    /**
+     * Encodes characters as UTF-8 into a byte buffer that is flushed to the stream when full.
+     * Unlike {@link java.io.OutputStreamWriter} it does not wrap every JSON token in a new buffer.
+     */
+    private static final class Utf8Writer extends Writer {
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[8192];
+        private int count;
+        private char pendingHigh;  // high surrogate waiting for its low half
+
+        private Utf8Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (count > buffer.length - 4) flushBuffer();
+            char ch = (char) c;
+            if (pendingHigh != 0) {
+                char high = pendingHigh;
+                pendingHigh = 0;
+                if (Character.isLowSurrogate(ch)) {
+                    int cp = Character.toCodePoint(high, ch);
+                    buffer[count++] = (byte) (0xF0 | (cp >> 18));
+                    buffer[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buffer[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buffer[count++] = (byte) (0x80 | (cp & 0x3F));
+                    return;
+                }
+                buffer[count++] = '?'; // unpaired surrogate
+                if (count > buffer.length - 4) flushBuffer();
+            }
+            if (ch < 0x80) {
+                buffer[count++] = (byte) ch;
+            } else if (ch < 0x800) {
+                buffer[count++] = (byte) (0xC0 | (ch >> 6));
+                buffer[count++] = (byte) (0x80 | (ch & 0x3F));
+            } else if (Character.isHighSurrogate(ch)) {
+                pendingHigh = ch;
+            } else if (Character.isLowSurrogate(ch)) {
+                buffer[count++] = '?'; // unpaired surrogate
+            } else {
+                buffer[count++] = (byte) (0xE0 | (ch >> 12));
+                buffer[count++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (ch & 0x3F));
+            }
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) write(cbuf[i]);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) write(str.charAt(i));
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Reads and writes the fields of CommandPacket directly. Null fields and null map values are
+     * omitted, as Gson did by default; in columnar rows a missing value is written as null.
+     */
+    private static final class CommandPacketAdapter extends TypeAdapter<CommandPacket> {
+
+        private final boolean columnar;
+
+        private CommandPacketAdapter(boolean columnar) {
+            this.columnar = columnar;
+        }
+
+        @Override
+        public void write(JsonWriter out, CommandPacket packet) throws IOException {
+            if (packet == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            if (packet.getCommand() != null) out.name("command").value(packet.getCommand());
+            if (packet.getRequestId() != null) out.name("request_id").value(packet.getRequestId());
+            if (packet.getArgs() != null) {
+                out.name("args");
+                writeRow(out, packet.getArgs());
+            }
+            if (packet.getTable() != null) {
+                if (columnar) {
+                    writeColumns(out, packet.getTable());
+                } else {
+                    out.name("table").beginArray();
+                    for (Map<String, String> row : packet.getTable()) writeRow(out, row);
+                    out.endArray();
+                }
+            }
+            out.name("answer").value(packet.getAnswer());
+            if (packet.getDescription() != null) out.name("description").value(packet.getDescription());
+            out.endObject();
+        }
+
+        @Override
+        public CommandPacket read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            CommandPacket packet = new CommandPacket();
+            String[] columns = null;
+            List<String[]> rows = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "command" -> packet.setCommand(in.nextString());
+                    case "request_id" -> packet.setRequestId(in.nextString());
+                    case "args" -> packet.setArgs(readRow(in));
+                    case "table" -> {
+                        List<Map<String, String>> table = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) table.add(readRow(in));
+                        in.endArray();
+                        packet.setTable(table);
+                    }
+                    case "columns" -> columns = readArray(in, 8);
+                    case "rows" -> {
+                        rows = new ArrayList<>();
+                        int width = columns == null ? 8 : columns.length;
+                        in.beginArray();
+                        while (in.hasNext()) rows.add(readArray(in, width));
+                        in.endArray();
+                    }
+                    case "answer" -> packet.setAnswer(in.nextInt());
+                    case "description" -> packet.setDescription(in.nextString());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (columns != null && rows != null) packet.setTable(new ColumnarTable(columns, rows));
+            return packet;
+        }
+
+        /**
+         * Writes the column names once (in the order they first appear) and each row as a positional array.
+         */
+        private static void writeColumns(JsonWriter out, List<Map<String, String>> table) throws IOException {
+            Set<String> names = new LinkedHashSet<>();
+            for (Map<String, String> row : table) names.addAll(row.keySet());
+            String[] columns = names.toArray(new String[0]);
+
+            out.name("columns").beginArray();
+            for (String column : columns) out.value(column);
+            out.endArray();
+
+            out.name("rows").beginArray();
+            for (Map<String, String> row : table) {
+                out.beginArray();
+                for (String column : columns) out.value(row.get(column));
+                out.endArray();
+            }
+            out.endArray();
+        }
+
+        private static String[] readArray(JsonReader in, int expectedWidth) throws IOException {
+            String[] values = new String[expectedWidth];
+            int n = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (n == values.length) values = Arrays.copyOf(values, n * 2 + 1);
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    n++;
+                } else {
+                    values[n++] = in.nextString();
+                }
+            }
+            in.endArray();
+            return n == values.length ? values : Arrays.copyOf(values, n);
+        }
+
+        private static void writeRow(JsonWriter out, Map<String, String> row) throws IOException {
+            out.beginObject();
+            for (Map.Entry<String, String> e : row.entrySet()) {
+                if (e.getValue() != null) out.name(e.getKey()).value(e.getValue());
+            }
+            out.endObject();
+        }
+
+        private static Map<String, String> readRow(JsonReader in) throws IOException {
+            Map<String, String> row = new HashMap<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                } else {
+                    row.put(key, in.nextString());
+                }
+            }
+            in.endObject();
+            return row;
+        }
+    }
+
+    /**
+     * A decoded columnar table, read through the usual {@code List<Map<String, String>>} interface.
+     * Rows are read-only views over their value arrays; a null value reads as an absent key,
+     * exactly like a row decoded from the object form.
+     */
+    private static final class ColumnarTable extends AbstractList<Map<String, String>> implements RandomAccess {
+
+        private final String[] columns;
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<String[]> rows;
+
+        private ColumnarTable(String[] columns, List<String[]> rows) {
+            this.columns = columns;
+            this.rows = rows;
+            for (int i = 0; i < columns.length; i++) index.put(columns[i], i);
+        }
+
+        @Override
+        public Map<String, String> get(int i) {
+            return new Row(rows.get(i));
+        }
+
+        @Override
+        public int size() {
+            return rows.size();
+        }
+
+        private final class Row extends AbstractMap<String, String> {
+
+            private final String[] values;
+
+            private Row(String[] values) {
+                this.values = values;
+            }
+
+            @Override
+            public String get(Object key) {
+                Integer i = index.get(key);
+                return i == null || i >= values.length ? null : values[i];
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+
+            @Override
+            public Set<Map.Entry<String, String>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Map.Entry<String, String>> iterator() {
+                        return new Iterator<>() {
+                            private int next = advance(0);
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < width();
+                            }
+
+                            @Override
+                            public Map.Entry<String, String> next() {
+                                if (!hasNext()) throw new NoSuchElementException();
+                                int i = next;
+                                next = advance(i + 1);
+                                return new SimpleImmutableEntry<>(columns[i], values[i]);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        int n = 0;
+                        for (int i = 0; i < width(); i++) if (values[i] != null) n++;
+                        return n;
+                    }
+                };
+            }
+
+            /** Number of positions that have both a column name and a value slot. */
+            private int width() {
+                return Math.min(columns.length, values.length);
+            }
+
+            /** @return The first position at or after {@code i} holding a value. */
+            private int advance(int i) {
+                while (i < width() && values[i] == null) i++;
+                return i;
+            }
+        }
+    }
+}
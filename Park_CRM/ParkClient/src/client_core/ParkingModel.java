@@ -0,0 +1,148 @@
+package client_core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The client's copy of the lot table (CURRENT_PARKING), kept up to date by the PARKING_DELTA
+ * packets the server pushes after SUBSCRIBE_PARKING.
+ *
+ * <p>Deltas that arrive before the subscription's table has been loaded are kept and applied on
+ * top of it, since the server may send a change before its answer to SUBSCRIBE_PARKING. Each
+ * delta row holds the whole new state of its space, so applying one twice does no harm, but a
+ * delta collected before the table was read would roll spaces back: deltas whose {@code version}
+ * is not newer than the table's are dropped.</p>
+ */
+public class ParkingModel {
+
+    private final Map<Integer, Map<String, String>> spaces = new TreeMap<>();
+    private final List<CommandPacket> early = new ArrayList<>();
+    private String percent;
+    private long version = -1;
+    private boolean loaded;
+    private Runnable listener;
+
+    /**
+     * Loads the full table, then the deltas that came before it.
+     *
+     * @param table   Rows of CURRENT_PARKING.
+     * @param percent The occupancy percent.
+     * @param version The {@code version} the server sent with the table, or null if none.
+     */
+    public void load(List<Map<String, String>> table, String percent, String version) {
+        Runnable notify;
+        synchronized (this) {
+            replace(table, percent);
+            this.version = version == null ? -1 : Long.parseLong(version);
+            loaded = true;
+            for (CommandPacket delta : early) applyIfNewer(delta);
+            early.clear();
+            notify = listener;
+        }
+        if (notify != null) notify.run();
+    }
+
+    /**
+     * Applies a PARKING_DELTA packet: the rows of the spaces that changed, or the whole table
+     * when {@code full=true}, with the occupancy percent in the description.
+     *
+     * @param delta The packet received from the server.
+     */
+    public void apply(CommandPacket delta) {
+        Runnable notify;
+        synchronized (this) {
+            if (!loaded) {
+                early.add(delta);
+                return;
+            }
+            if (!applyIfNewer(delta)) return;
+            notify = listener;
+        }
+        if (notify != null) notify.run();
+    }
+
+    /**
+     * Forgets the table, e.g. when the connection is lost; the next {@link #load} starts afresh.
+     */
+    public synchronized void clear() {
+        spaces.clear();
+        early.clear();
+        percent = null;
+        version = -1;
+        loaded = false;
+    }
+
+    /**
+     * @return true once the table has been loaded.
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return A copy of the table in space order.
+     */
+    public synchronized List<Map<String, String>> table() {
+        List<Map<String, String>> table = new ArrayList<>(spaces.size());
+        for (Map<String, String> row : spaces.values()) table.add(new LinkedHashMap<>(row));
+        return table;
+    }
+
+    /**
+     * @return The occupancy percent, or null before the table is loaded.
+     */
+    public synchronized String percent() {
+        return percent;
+    }
+
+    /**
+     * @param listener Run after every change, on the thread that received it; null for none.
+     */
+    public synchronized void setListener(Runnable listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return false if the delta is not newer than what the table shows, and was dropped.
+     */
+    private boolean applyIfNewer(CommandPacket delta) {
+        String v = delta.getArgs() == null ? null : delta.getArgs().get("version");
+        if (v != null) {
+            long deltaVersion = Long.parseLong(v);
+            if (deltaVersion <= version) return false;
+            version = deltaVersion;
+        }
+        apply(delta.getTable(), delta.getDescription(), isFull(delta));
+        return true;
+    }
+
+    private void apply(List<Map<String, String>> rows, String newPercent, boolean full) {
+        if (full) {
+            replace(rows, newPercent);
+            return;
+        }
+        if (rows != null) {
+            for (Map<String, String> row : rows) spaces.put(spaceOf(row), row);
+        }
+        if (newPercent != null) percent = newPercent;
+    }
+
+    private void replace(List<Map<String, String>> rows, String newPercent) {
+        spaces.clear();
+        if (rows != null) {
+            for (Map<String, String> row : rows) spaces.put(spaceOf(row), row);
+        }
+        percent = newPercent;
+    }
+
+    private static boolean isFull(CommandPacket delta) {
+        return delta.getArgs() != null && "true".equals(delta.getArgs().get("full"));
+    }
+
+    private static int spaceOf(Map<String, String> row) {
+        return Integer.parseInt(row.get("parking_space"));
+    }
+}
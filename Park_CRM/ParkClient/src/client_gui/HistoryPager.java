@@ -0,0 +1,159 @@
+package client_gui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import client_core.ClientCore;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ScrollBar;
+
+/**
+ * Shows a subscriber's parking history in a {@link ListView} one page at a time.
+ * The first page is loaded by {@link #show}; more pages follow until the list is full, and then
+ * one more whenever it is scrolled to the bottom. Pages are requested asynchronously and only the
+ * formatted lines are added on the FX thread.
+ */
+public class HistoryPager {
+
+    /** Rows requested per USER_HISTORY page. */
+    private static final int PAGE_SIZE = 50;
+
+    private static final String HEADER = String.format("%-15s %-15s %-10s %-15s", "Parking Num", "Date", "Time", "Event");
+    private static final String DIVIDER = "------------------------------------------------------";
+    private static final String LOAD_FAILED = "❌ Could not load the parking history. Please try again.";
+    private static final String MORE_FAILED = "❌ Could not load more history.";
+
+    private final ClientCore clientCore;
+    private final ListView<String> list;
+
+    private String userId;
+    private String nextCursor;
+    private boolean loading;
+    private boolean scrollHooked;
+
+    /** Bumped on every new search so pages of a previous search are dropped. */
+    private int generation;
+
+    /**
+     * @param clientCore The connected client used to send USER_HISTORY.
+     * @param list       The list the history is shown in.
+     */
+    public HistoryPager(ClientCore clientCore, ListView<String> list) {
+        this.clientCore = clientCore;
+        this.list = list;
+    }
+
+    /**
+     * Clears the list and loads the first page of a subscriber's history.
+     *
+     * @param userId       The subscriber ID.
+     * @param emptyMessage Shown when the subscriber has no history at all.
+     */
+    public void show(String userId, String emptyMessage) {
+        hookScrollBar();
+        this.userId = userId;
+        this.nextCursor = null;
+        this.loading = false;
+        generation++;
+        list.getItems().clear();
+        loadPage(null, emptyMessage);
+    }
+
+    /**
+     * Loads the next page, if there is one and no page is loading already.
+     */
+    private void loadMore() {
+        if (nextCursor != null) loadPage(nextCursor, null);
+    }
+
+    private void loadPage(String cursor, String emptyMessage) {
+        if (loading) return;
+        loading = true;
+        int requested = generation;
+        String user = userId;
+
+        clientCore.getUserHistoryAsync(user, PAGE_SIZE, cursor).whenComplete((page, error) -> {
+            if (error != null) System.err.println("❌ USER_HISTORY page failed: " + error.getMessage());
+            boolean failed = page == null || page.rows() == null;
+            String next = failed ? cursor : page.nextCursor(); // a failed page can be retried
+            List<String> lines = new ArrayList<>();
+            if (!failed) {
+                for (Map<String, String> row : page.rows()) {
+                    lines.add(String.format("%-15s %-15s %-10s %-15s",
+                            row.getOrDefault("parking_num", "N/A"),
+                            row.getOrDefault("parking_date", "N/A"),
+                            row.getOrDefault("parking_time", "N/A"),
+                            row.getOrDefault("event_type", "N/A")));
+                }
+            }
+
+            Platform.runLater(() -> {
+                if (requested != generation) return; // a newer search replaced this one
+                loading = false;
+                nextCursor = next;
+                ObservableList<String> items = list.getItems();
+                items.remove(MORE_FAILED);
+                if (failed) {
+                    if (cursor == null) {
+                        nextCursor = null;
+                        items.add(LOAD_FAILED);
+                    } else {
+                        items.add(MORE_FAILED);
+                    }
+                    return;
+                }
+                if (cursor == null) {
+                    if (lines.isEmpty()) {
+                        items.add(emptyMessage);
+                        return;
+                    }
+                    items.addAll(HEADER, DIVIDER);
+                }
+                items.addAll(lines);
+                hookScrollBar();
+                fillViewport();
+            });
+        });
+    }
+
+    /**
+     * Loads the next page if the rows loaded so far do not fill the list, since a list without
+     * a scroll bar never reaches the bottom. Pages keep coming until the list scrolls or the
+     * history ends.
+     */
+    private void fillViewport() {
+        if (nextCursor == null || list.getSkin() == null) return;
+        list.layout();
+        ScrollBar bar = verticalScrollBar();
+        if (bar == null || !bar.isVisible()) loadMore();
+    }
+
+    /**
+     * Loads the next page whenever the vertical scroll bar reaches the bottom.
+     * The scroll bar only exists once the list has been skinned, so this is retried on each search.
+     */
+    private void hookScrollBar() {
+        if (scrollHooked) return;
+        ScrollBar bar = verticalScrollBar();
+        if (bar == null) return;
+        bar.valueProperty().addListener((obs, oldValue, value) -> {
+            if (value.doubleValue() >= bar.getMax()) loadMore();
+        });
+        scrollHooked = true;
+    }
+
+    /**
+     * @return The list's vertical scroll bar, or null before the list is skinned.
+     */
+    private ScrollBar verticalScrollBar() {
+        for (Node node : list.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) return bar;
+        }
+        return null;
+    }
+}
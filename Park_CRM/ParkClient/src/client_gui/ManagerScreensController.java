@@ -2,6 +2,8 @@ package client_gui;
 
 import javafx.util.Pair;
 
+import client_core.ParkingModel;
+
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
@@ -42,6 +44,7 @@ public class ManagerScreensController extends AbstractScreensController {
     @FXML private TextField UserHistoryInput;
     @FXML private Button SearchHistoryBtn;
     @FXML private ListView<String> UserHistoryList;
+    private HistoryPager historyPager;
 
     // =================== Recover User Tab ===================
     @FXML private TextField UserRecoverInput;
@@ -103,8 +106,8 @@ public class ManagerScreensController extends AbstractScreensController {
     // =================== Show User History ===================
     /**
      * Searches and displays the parking history of a user based on the provided User ID.
-     * This method retrieves the user history from the server, formats the data, and displays it
-     * in the `UserHistoryList`. If no history is found or the input is invalid, appropriate messages are shown.
+     * The first page is shown in the `UserHistoryList` and further pages load as the list is scrolled.
+     * If no history is found or the input is invalid, appropriate messages are shown.
      */
     @FXML
     private void SearchUserHistory() {
@@ -114,30 +117,8 @@ public class ManagerScreensController extends AbstractScreensController {
             return;
         }
 
-        List<Map<String, String>> result = clientCore.getUserHistory(userId);
-
-        UserHistoryList.getItems().clear(); // Clear old results
-
-        if (result != null && !result.isEmpty()) {
-            // Header
-            String header = String.format("%-15s %-15s %-10s %-15s",
-                    "Parking Num", "Date", "Time", "Event");
-            String divider = "------------------------------------------------------";
-
-            UserHistoryList.getItems().add(header);
-            UserHistoryList.getItems().add(divider);
-
-            for (Map<String, String> row : result) {
-                String line = String.format("%-15s %-15s %-10s %-15s",
-                        row.getOrDefault("parking_num", "N/A"),
-                        row.getOrDefault("parking_date", "N/A"),
-                        row.getOrDefault("parking_time", "N/A"),
-                        row.getOrDefault("event_type", "N/A"));
-                UserHistoryList.getItems().add(line);
-            }
-        } else {
-            UserHistoryList.getItems().add("No history found for user ID: " + userId);
-        }
+        if (historyPager == null) historyPager = new HistoryPager(clientCore, UserHistoryList);
+        historyPager.show(userId.trim(), "No history found for user ID: " + userId);
     }
 
 
@@ -184,17 +165,31 @@ public class ManagerScreensController extends AbstractScreensController {
     // =================== Current Parking Status ===================
     /**
      * Requests current parking status from the server and displays it in the UI.
-     * Formats the response table into a readable list view.
-     * Shows capacity percentage in the associated text field.
+     * The first request subscribes to the lot; after that the server pushes changes and the
+     * list is redrawn whenever one arrives.
      */
     @FXML
     private void getCurrentParkingStatus() {
         Pair<List<Map<String, String>>, String> result = clientCore.getCurrentParkingStatus();
+        showParkingStatus(result == null ? null : result.getKey(), result == null ? null : result.getValue());
+        clientCore.getParkingModel().setListener(() -> {
+            ParkingModel model = clientCore.getParkingModel();
+            List<Map<String, String>> table = model.table();
+            String percent = model.percent();
+            Platform.runLater(() -> showParkingStatus(table, percent));
+        });
+    }
 
+    /**
+     * Formats the parking table into a readable list view.
+     * Shows capacity percentage in the associated text field.
+     *
+     * @param table   The parking spaces, or null if none could be loaded.
+     * @param percent The capacity percentage.
+     */
+    private void showParkingStatus(List<Map<String, String>> table, String percent) {
         CurrentParkingList.getItems().clear();
         Capicity.clear();
-        List<Map<String, String>> table = result.getKey();
-        String percent = result.getValue();
 
         if (table == null || table.isEmpty()) {
             CurrentParkingList.getItems().add("No parking data available.");
@@ -57,6 +57,7 @@ public class UserScreensController extends AbstractScreensController {
 
     // =================== Parking History Tab ===================
     @FXML private ListView<String> UserHistoryList;
+    private HistoryPager historyPager;
 
     // =================== Settings Tab ===================
     @FXML private TextField UserPasswordInput;
@@ -263,7 +264,7 @@ public class UserScreensController extends AbstractScreensController {
 
     /**
      * Retrieves and displays the parking history of the logged-in user.
-     * Fetches the history from the server and formats it into a list view.
+     * Shows the first page in a list view; further pages load as the list is scrolled.
      * If no history is available, displays an appropriate message.
      *
      * @param event The `Event` triggered by selecting the history tab.
@@ -275,31 +276,8 @@ public class UserScreensController extends AbstractScreensController {
         if (!tab.isSelected()) return;
 
         String userId = clientCore.getSubscriberId();
-        List<Map<String, String>> result = clientCore.getUserHistory(userId);
-
-        UserHistoryList.getItems().clear();
-
-        if (result == null || result.isEmpty()) {
-            UserHistoryList.getItems().add("No parking history available.");
-            return;
-        }
-
-        // Table header
-        String header = String.format("%-15s %-15s %-10s %-15s",
-            "Parking Num", "Date", "Time", "Event");
-        String divider = "------------------------------------------------------";
-
-        UserHistoryList.getItems().add(header);
-        UserHistoryList.getItems().add(divider);
-
-        for (Map<String, String> row : result) {
-            String formatted = String.format("%-15s %-15s %-10s %-15s",
-                row.getOrDefault("parking_num", "N/A"),
-                row.getOrDefault("parking_date", "N/A"),
-                row.getOrDefault("parking_time", "N/A"),
-                row.getOrDefault("event_type", "N/A"));
-            UserHistoryList.getItems().add(formatted);
-        }
+        if (historyPager == null) historyPager = new HistoryPager(clientCore, UserHistoryList);
+        historyPager.show(userId, "No parking history available.");
     }
 
 
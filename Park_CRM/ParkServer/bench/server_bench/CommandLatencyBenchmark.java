@@ -0,0 +1,219 @@
+package server_bench;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import ocsf.client.AbstractClient;
+import server_core.CommandPacket;
+import server_core.DBconnector;
+import server_core.PacketCodec;
+import server_core.ServerCore;
+
+/**
+ * Measures DEPOSIT latency at the gates while managers pull REPORTs at the same time.
+ *
+ * <p>For each executor mode the benchmark starts a real {@link ServerCore} on a local port, has
+ * report clients send REPORT commands back to back, and has gate clients deposit and pick up
+ * subscribers without an active order. It prints the DEPOSIT latency (p50, p99, max) and the
+ * REPORT rate, then the command executor and admission statistics. {@code inline} runs commands on the OCSF
+ * connection threads, where they queue behind each other on the server-wide message lock;
+ * {@code virtual} runs them on virtual threads.</p>
+ *
+ * <p>Run it against a scratch copy of the database, with the MySQL driver and JavaFX on the classpath.</p>
+ *
+ * <pre>
+ * java server_bench.CommandLatencyBenchmark &lt;host:port/db&gt; &lt;user&gt; &lt;password&gt; [inline|virtual|both] [port]
+ * </pre>
+ */
+public class CommandLatencyBenchmark {
+
+    private static final int GATES = 8;
+    private static final int REPORT_CLIENTS = 16;
+    private static final int DEPOSITS_PER_GATE = 50;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: CommandLatencyBenchmark <host:port/db> <user> <password> [inline|virtual|both] [port]");
+            return;
+        }
+        String url = "jdbc:mysql://" + args[0] + "?serverTimezone=Asia/Jerusalem&useSSL=false&useServerPrepStmts=true";
+        String which = args.length > 3 ? args[3] : "both";
+        int port = args.length > 4 ? Integer.parseInt(args[4]) : 5598;
+
+        System.out.printf("%-8s %9s %12s %12s %12s %12s%n",
+                "mode", "deposits", "p50 ms", "p99 ms", "max ms", "reports/sec");
+        if (!which.equals("virtual")) run("inline", url, args[1], args[2], port);
+        if (!which.equals("inline")) run("virtual", url, args[1], args[2], port);
+    }
+
+    private static void run(String mode, String url, String user, String password, int port) throws Exception {
+        System.setProperty("bpark.commands.executor", mode);
+        DBconnector db = new DBconnector();
+        if (!db.connect(url, user, password, 4, 8)) {
+            throw new IllegalStateException("Could not connect to " + url);
+        }
+        ServerCore server = new ServerCore("127.0.0.1", port, db);
+        if (!server.start()) throw new IllegalStateException("Could not listen on " + port);
+        try {
+            List<String> subscribers = idleSubscribers(db);
+            if (subscribers.size() < GATES) throw new IllegalStateException("Need " + GATES + " idle subscribers");
+
+            AtomicBoolean loading = new AtomicBoolean(true);
+            LongAdder reports = new LongAdder();
+            List<Thread> load = new ArrayList<>();
+            for (int i = 0; i < REPORT_CLIENTS; i++) {
+                BenchClient client = new BenchClient(port);
+                Thread t = new Thread(() -> {
+                    while (loading.get()) {
+                        try {
+                            client.call(report());
+                            reports.increment();
+                        } catch (Exception e) {
+                            System.err.println("⚠️ REPORT failed: " + e.getMessage());
+                        }
+                    }
+                    client.quietClose();
+                }, "report-" + i);
+                t.start();
+                load.add(t);
+            }
+            Thread.sleep(1_000); // let the report load build up
+
+            long[] latency = new long[GATES * DEPOSITS_PER_GATE];
+            CountDownLatch done = new CountDownLatch(GATES);
+            long t0 = System.nanoTime();
+            for (int g = 0; g < GATES; g++) {
+                int gate = g;
+                String subscriberId = subscribers.get(g);
+                BenchClient client = new BenchClient(port);
+                new Thread(() -> {
+                    try {
+                        for (int i = 0; i < DEPOSITS_PER_GATE; i++) {
+                            long start = System.nanoTime();
+                            CommandPacket deposit = client.call(command("DEPOSIT",
+                                    Map.of("subscriber_id", subscriberId, "order_number", "")));
+                            latency[gate * DEPOSITS_PER_GATE + i] = System.nanoTime() - start;
+                            if (deposit.getAnswer() == 200) {
+                                client.call(command("PICKUP", Map.of("subscriber_id", subscriberId,
+                                        "parking_confirmation_code", deposit.getDescription())));
+                            }
+                        }
+                    } catch (Exception e) {
+                        System.err.println("❌ Gate " + gate + ": " + e.getMessage());
+                    } finally {
+                        client.quietClose();
+                        done.countDown();
+                    }
+                }, "gate-" + g).start();
+            }
+            done.await();
+            double seconds = (System.nanoTime() - t0) / 1e9;
+            loading.set(false);
+            for (Thread t : load) t.join();
+
+            Arrays.sort(latency);
+            System.out.printf("%-8s %9d %12.1f %12.1f %12.1f %12.1f%n", mode, latency.length,
+                    latency[latency.length / 2] / 1e6, latency[(int) (latency.length * 0.99)] / 1e6,
+                    latency[latency.length - 1] / 1e6, reports.sum() / seconds);
+            System.out.println("         " + server.getCommandStats());
+            System.out.println("         " + server.getAdmissionStats());
+        } finally {
+            server.stop();
+            db.disconnect();
+        }
+    }
+
+    private static CommandPacket report() {
+        LocalDate lastMonth = LocalDate.now().minusMonths(1);
+        return command("REPORT", Map.of("report_month", String.format("%02d", lastMonth.getMonthValue()),
+                "report_year", String.valueOf(lastMonth.getYear()), "report_type", "PARKING"));
+    }
+
+    private static CommandPacket command(String name, Map<String, String> args) {
+        CommandPacket packet = new CommandPacket();
+        packet.setCommand(name);
+        packet.setArgs(args);
+        return packet;
+    }
+
+    /**
+     * @return subscribers without an active or late order, so a walk-in deposit is allowed.
+     */
+    private static List<String> idleSubscribers(DBconnector db) throws Exception {
+        String query = """
+            SELECT s.subscriber_id
+            FROM subscribers s
+            WHERE NOT EXISTS (
+                SELECT 1 FROM orders o
+                WHERE o.subscriber_id = s.subscriber_id
+                  AND o.order_status IN ('active', 'late')
+            )
+        """;
+        List<String> ids = new ArrayList<>();
+        try (Connection conn = db.borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) ids.add(rs.getString(1));
+        }
+        return ids;
+    }
+
+    /**
+     * An OCSF client that matches responses to requests by request ID.
+     */
+    private static final class BenchClient extends AbstractClient {
+
+        private final AtomicLong nextRequestId = new AtomicLong();
+        private final Map<String, CompletableFuture<CommandPacket>> pending = new ConcurrentHashMap<>();
+
+        BenchClient(int port) throws IOException {
+            super("127.0.0.1", port);
+            openConnection();
+        }
+
+        CommandPacket call(CommandPacket packet) throws Exception {
+            String id = String.valueOf(nextRequestId.incrementAndGet());
+            packet.setRequestId(id);
+            CompletableFuture<CommandPacket> future = new CompletableFuture<>();
+            pending.put(id, future);
+            sendToServer(PacketCodec.encode(packet));
+            try {
+                return future.get(30, TimeUnit.SECONDS);
+            } finally {
+                pending.remove(id);
+            }
+        }
+
+        void quietClose() {
+            try {
+                closeConnection();
+            } catch (IOException ignored) {
+            }
+        }
+
+        @Override
+        protected void handleMessageFromServer(Object msg) {
+            try {
+                CommandPacket response = PacketCodec.decode(msg);
+                CompletableFuture<CommandPacket> future = response.getRequestId() == null
+                        ? null : pending.get(response.getRequestId());
+                if (future != null) future.complete(response);
+            } catch (IOException e) {
+                System.err.println("❌ " + e.getMessage());
+            }
+        }
+    }
+}
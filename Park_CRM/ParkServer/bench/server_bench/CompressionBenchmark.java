@@ -0,0 +1,117 @@
+package server_bench;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import server_core.CommandPacket;
+import server_core.PacketCodec;
+import server_core.ResponseCompressor;
+
+/**
+ * Runs large responses through {@link ResponseCompressor} the way {@code ServerCore} does, in both
+ * table encodings, and prints its per-command metrics (ratio and CPU time) for a given threshold.
+ * Every compressed response is decoded again with {@link PacketCodec#decode(Object)} to check it.
+ * No database is needed.
+ *
+ * <pre>
+ * java server_bench.CompressionBenchmark [threshold bytes] [iterations]
+ * </pre>
+ */
+public class CompressionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threshold = args.length > 0 ? Integer.parseInt(args[0]) : ResponseCompressor.DEFAULT_THRESHOLD;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        for (boolean columnar : new boolean[] { false, true }) {
+            ResponseCompressor compressor = new ResponseCompressor(threshold);
+            List<CommandPacket> responses = List.of(
+                    currentParking(1_000), usersReport(2_000), userHistory(50), userHistory(500));
+            for (int i = 0; i < iterations; i++) {
+                for (CommandPacket response : responses) {
+                    byte[] encoded = PacketCodec.encode(response, columnar);
+                    byte[] wire = compressor.compress(response.getCommand(), encoded, true);
+                    CommandPacket decoded = PacketCodec.decode((Object) wire);
+                    if (decoded.getTable().size() != response.getTable().size()) {
+                        throw new IllegalStateException(response.getCommand() + " lost rows");
+                    }
+                }
+            }
+            compressor.close();
+
+            System.out.println((columnar ? "columnar" : "rows") + " tables, threshold " + threshold + " bytes, "
+                    + iterations + " iterations");
+            System.out.printf("%-16s %10s %10s %14s %14s %8s %12s%n",
+                    "command", "responses", "compressed", "bytes_in", "bytes_out", "ratio %", "cpu us/resp");
+            for (Map.Entry<String, Map<String, Long>> e : compressor.getStats().entrySet()) {
+                Map<String, Long> s = e.getValue();
+                System.out.printf("%-16s %10d %10d %14d %14d %8d %12.1f%n", e.getKey(),
+                        s.get("responses"), s.get("compressed"), s.get("bytes_in"), s.get("bytes_out"),
+                        s.get("ratio_pct"), (double) s.get("cpu_us") / s.get("responses"));
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * @return A CURRENT_PARKING response with every third space occupied.
+     */
+    private static CommandPacket currentParking(int spaces) {
+        List<Map<String, String>> table = new ArrayList<>(spaces);
+        for (int i = 0; i < spaces; i++) {
+            Map<String, String> row = new LinkedHashMap<>();
+            boolean occupied = i % 3 == 0;
+            row.put("parking_space", String.valueOf(100 + i));
+            row.put("status", occupied ? "occupied" : "available");
+            row.put("confirmation_code", occupied ? String.valueOf(100_000 + i) : null);
+            row.put("subscriber_id", occupied ? String.valueOf(10_000 + i % 5_000) : null);
+            table.add(row);
+        }
+        return packet("CURRENT_PARKING", table);
+    }
+
+    /**
+     * @return A monthly USERS report.
+     */
+    private static CommandPacket usersReport(int subscribers) {
+        List<Map<String, String>> table = new ArrayList<>(subscribers);
+        for (int s = 0; s < subscribers; s++) {
+            Map<String, String> row = new LinkedHashMap<>();
+            row.put("user", String.valueOf(10_000 + s));
+            row.put("deposited", String.valueOf(s % 9));
+            row.put("picked_up", String.valueOf(s % 9));
+            row.put("reserved", String.valueOf(s % 4));
+            row.put("late", String.valueOf(s % 3));
+            row.put("cancelled", String.valueOf(s % 2));
+            row.put("extended", String.valueOf(s % 5));
+            table.add(row);
+        }
+        return packet("REPORT", table);
+    }
+
+    /**
+     * @return A USER_HISTORY page, two events per order.
+     */
+    private static CommandPacket userHistory(int rows) {
+        List<Map<String, String>> table = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Map<String, String> row = new LinkedHashMap<>();
+            row.put("parking_num", String.valueOf(100 + i % 60));
+            row.put("parking_date", java.time.LocalDate.of(2025, 12, 31).minusDays(i / 2).toString());
+            row.put("parking_time", String.format("%02d:%02d:00", 8 + i % 10, i % 60));
+            row.put("event_type", i % 2 == 0 ? "pickup" : "deposit");
+            table.add(row);
+        }
+        return packet("USER_HISTORY", table);
+    }
+
+    private static CommandPacket packet(String command, List<Map<String, String>> table) {
+        CommandPacket packet = new CommandPacket();
+        packet.setCommand(command);
+        packet.setAnswer(200);
+        packet.setTable(table);
+        return packet;
+    }
+}
@@ -0,0 +1,148 @@
+package server_bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import server_core.DBconnector;
+import server_core.DBhandler;
+
+/**
+ * Measures walk-in DEPOSIT throughput when several entry gates deposit at the same time.
+ *
+ * <p>For 1, 8 and 64 concurrent gates the benchmark fills the lot with walk-in deposits of
+ * subscribers that have no active order, then picks every vehicle up again (untimed) so the next
+ * run starts from the same state. Each run reports:</p>
+ * <ul>
+ *   <li>deposits/sec while filling the lot</li>
+ *   <li>conflicts - deposit transactions rolled back and retried (lock or duplicate-code conflicts)</li>
+ *   <li>failed - deposits that returned an error or no space while free spaces were left</li>
+ *   <li>double-booked - parking spaces holding more than one active order afterwards (should be 0)</li>
+ * </ul>
+ *
+ * <p>Run it against a scratch copy of the database.</p>
+ *
+ * <pre>
+ * java server_bench.DepositContentionBenchmark &lt;host:port/db&gt; &lt;user&gt; &lt;password&gt;
+ * </pre>
+ */
+public class DepositContentionBenchmark {
+
+    private static final int[] GATES = { 1, 8, 64 };
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: DepositContentionBenchmark <host:port/db> <user> <password>");
+            return;
+        }
+
+        String url = "jdbc:mysql://" + args[0] + "?serverTimezone=Asia/Jerusalem&useSSL=false&useServerPrepStmts=true";
+
+        System.out.printf("%-6s %10s %14s %10s %8s %14s%n", "gates", "deposits", "deposits/sec", "conflicts", "failed", "double-booked");
+        for (int gates : GATES) {
+            DBconnector db = new DBconnector();
+            if (!db.connect(url, args[1], args[2], Math.min(gates, 4), gates)) {
+                throw new IllegalStateException("Could not connect to " + url);
+            }
+            try {
+                run(db, gates);
+            } finally {
+                db.disconnect();
+            }
+        }
+    }
+
+    private static void run(DBconnector db, int gates) throws Exception {
+        DBhandler handler = new DBhandler(db);
+        int freeSpaces = count(db, "SELECT COUNT(*) FROM parking WHERE status = 'available'");
+        List<String> subscribers = idleSubscribers(db);
+        int deposits = Math.min(freeSpaces, subscribers.size());
+
+        ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>(subscribers.subList(0, deposits));
+        Map<String, String> codes = new ConcurrentHashMap<>();
+        AtomicInteger failed = new AtomicInteger();
+        long conflictsBefore = handler.getDepositConflicts();
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(gates);
+        for (int g = 0; g < gates; g++) {
+            Thread gate = new Thread(() -> {
+                try {
+                    start.await();
+                    String subscriberId;
+                    while ((subscriberId = queue.poll()) != null) {
+                        try {
+                            String code = handler.depositVehicle(subscriberId, "");
+                            if (code == null) failed.incrementAndGet();
+                            else codes.put(subscriberId, code);
+                        } catch (Exception e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "gate-" + g);
+            gate.start();
+        }
+
+        long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+
+        int doubleBooked = count(db, """
+            SELECT COUNT(*) FROM (
+                SELECT parking_space FROM orders
+                WHERE order_status = 'active'
+                GROUP BY parking_space
+                HAVING COUNT(*) > 1
+            ) d
+        """);
+
+        System.out.printf("%-6d %10d %14.1f %10d %8d %14d%n", gates, codes.size(),
+                codes.size() / seconds, handler.getDepositConflicts() - conflictsBefore, failed.get(), doubleBooked);
+
+        // Put the lot back the way it was.
+        for (Map.Entry<String, String> e : codes.entrySet()) {
+            handler.pickupVehicle(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * @return subscribers without an active or late order, so a walk-in deposit is allowed.
+     */
+    private static List<String> idleSubscribers(DBconnector db) throws Exception {
+        String query = """
+            SELECT s.subscriber_id
+            FROM subscribers s
+            WHERE NOT EXISTS (
+                SELECT 1 FROM orders o
+                WHERE o.subscriber_id = s.subscriber_id
+                  AND o.order_status IN ('active', 'late')
+            )
+        """;
+        List<String> ids = new ArrayList<>();
+        try (Connection conn = db.borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) ids.add(rs.getString(1));
+        }
+        return ids;
+    }
+
+    private static int count(DBconnector db, String query) throws Exception {
+        try (Connection conn = db.borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package server_bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import server_core.DBconnector;
+
+/**
+ * Measures parking_history query latency before and after the V2 migration
+ * ({@code Park_DB/migrations/V2__history_keys_and_indexes.sql}).
+ *
+ * <p>Seed a scratch database with {@code TestingScriptsDB/SeedParkingHistory.sql}, run this benchmark,
+ * apply V2 and run it again. Each query is timed over several runs (median reported) and shown with
+ * the access type and key from EXPLAIN. The monthly reports are run both with the old
+ * {@code MONTH()/YEAR()} predicate and with the half-open date range DBhandler now uses.</p>
+ *
+ * <pre>
+ * java server_bench.HistoryQueryBenchmark &lt;host:port/db&gt; &lt;user&gt; &lt;password&gt; [yyyy-MM] [subscriber_id] [runs]
+ * </pre>
+ */
+public class HistoryQueryBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: HistoryQueryBenchmark <host:port/db> <user> <password> [yyyy-MM] [subscriber_id] [runs]");
+            return;
+        }
+
+        String url = "jdbc:mysql://" + args[0] + "?serverTimezone=Asia/Jerusalem&useSSL=false&useServerPrepStmts=true";
+        LocalDate month = args.length > 3
+                ? LocalDate.parse(args[3] + "-01")
+                : LocalDate.now().minusMonths(1).withDayOfMonth(1);
+        int subscriberId = args.length > 4 ? Integer.parseInt(args[4]) : 10001;
+        int runs = args.length > 5 ? Integer.parseInt(args[5]) : 20;
+
+        DBconnector db = new DBconnector();
+        if (!db.connect(url, args[1], args[2], 1, 1)) {
+            throw new IllegalStateException("Could not connect to " + url);
+        }
+
+        String monthNum = String.valueOf(month.getMonthValue());
+        String yearNum = String.valueOf(month.getYear());
+        java.sql.Date from = java.sql.Date.valueOf(month);
+        java.sql.Date to = java.sql.Date.valueOf(month.plusMonths(1));
+
+        try (Connection conn = db.borrowConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM parking_history")) {
+                ResultSet rs = ps.executeQuery();
+                rs.next();
+                System.out.println("parking_history rows: " + rs.getLong(1) + ", month " + month + ", subscriber " + subscriberId);
+            }
+            System.out.printf("%-40s %10s %8s  %s%n", "query", "median ms", "access", "key");
+
+            time(conn, runs, "users report, MONTH()/YEAR()", """
+                SELECT s.subscriber_id, ph.event_type
+                FROM subscribers s
+                LEFT JOIN parking_history ph
+                    ON s.subscriber_id = ph.subscriber_id
+                    AND MONTH(ph.parking_date) = ? AND YEAR(ph.parking_date) = ?
+                WHERE s.subscription_status = 'user'
+                """, monthNum, yearNum);
+
+            time(conn, runs, "users report, date range", """
+                SELECT s.subscriber_id, ph.event_type
+                FROM subscribers s
+                LEFT JOIN parking_history ph
+                    ON s.subscriber_id = ph.subscriber_id
+                    AND ph.parking_date >= ? AND ph.parking_date < ?
+                WHERE s.subscription_status = 'user'
+                """, from, to);
+
+            time(conn, runs, "parking report, MONTH()/YEAR()", """
+                SELECT parking_date FROM parking_history
+                WHERE event_type = 'deposited' AND MONTH(parking_date) = ? AND YEAR(parking_date) = ?
+                """, monthNum, yearNum);
+
+            time(conn, runs, "parking report, date range", """
+                SELECT parking_date FROM parking_history
+                WHERE event_type = 'deposited' AND parking_date >= ? AND parking_date < ?
+                """, from, to);
+
+            time(conn, runs, "user history", """
+                SELECT parking_num, parking_date, parking_time, event_type
+                FROM parking_history
+                WHERE subscriber_id = ?
+                ORDER BY parking_date DESC, parking_time DESC
+                """, subscriberId);
+
+            time(conn, runs, "user history, first page of 50", """
+                SELECT history_id, order_number, parking_num, parking_date, parking_time, event_type
+                FROM parking_history
+                WHERE subscriber_id = ?
+                ORDER BY parking_date DESC, parking_time DESC, order_number DESC, history_id DESC
+                LIMIT 51
+                """, subscriberId);
+
+            time(conn, runs, "latest event (active deposit check)", """
+                SELECT parking_date, parking_time, event_type
+                FROM parking_history
+                WHERE subscriber_id = ?
+                ORDER BY parking_date DESC, parking_time DESC
+                LIMIT 1
+                """, subscriberId);
+        } finally {
+            db.disconnect();
+        }
+    }
+
+    /**
+     * Runs a query {@code runs} times, reading every row, and prints the median latency and EXPLAIN access path.
+     */
+    private static void time(Connection conn, int runs, String label, String sql, Object... params) throws Exception {
+        long[] nanos = new long[runs];
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+            for (int r = 0; r < runs; r++) {
+                long t0 = System.nanoTime();
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) { /* drain */ }
+                nanos[r] = System.nanoTime() - t0;
+            }
+        }
+        Arrays.sort(nanos);
+
+        String access = "?", key = "?";
+        try (PreparedStatement ps = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                if ("ph".equals(rs.getString("table")) || "parking_history".equals(rs.getString("table"))) {
+                    access = rs.getString("type");
+                    key = rs.getString("key");
+                }
+            }
+        }
+
+        System.out.printf("%-40s %10.2f %8s  %s%n", label, nanos[runs / 2] / 1e6, access, key);
+    }
+}
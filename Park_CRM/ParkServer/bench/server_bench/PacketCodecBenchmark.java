@@ -0,0 +1,128 @@
+package server_bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+
+import server_core.CommandPacket;
+import server_core.PacketCodec;
+
+/**
+ * Compares the old and new way of sending a CommandPacket through OCSF, for a CURRENT_PARKING
+ * response with 1,000 parking spaces.
+ *
+ * <ul>
+ *   <li>gson+String - a new {@code Gson} per message, {@code toJson} to a String, Java serialization
+ *       of the String, then {@code fromJson} on the other side (the old path)</li>
+ *   <li>codec+byte[] - {@link PacketCodec#encode} to UTF-8 bytes, Java serialization of the
+ *       {@code byte[]}, then {@link PacketCodec#decode}</li>
+ * </ul>
+ *
+ * <p>Each round trip is timed (median and p99) and the bytes allocated by the thread are read from
+ * the JVM, for the sending side, the receiving side and the bytes on the wire. No database is needed.</p>
+ *
+ * <pre>
+ * java server_bench.PacketCodecBenchmark [rows] [iterations]
+ * </pre>
+ */
+public class PacketCodecBenchmark {
+
+    private interface Side {
+        Object send(CommandPacket packet) throws Exception;
+        CommandPacket receive(Object wire) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        CommandPacket packet = currentParking(rows);
+
+        Side gson = new Side() {
+            public Object send(CommandPacket p) { return new Gson().toJson(p); }
+            public CommandPacket receive(Object wire) { return new Gson().fromJson((String) wire, CommandPacket.class); }
+        };
+        Side codec = new Side() {
+            public Object send(CommandPacket p) { return PacketCodec.encode(p); }
+            public CommandPacket receive(Object wire) throws Exception { return PacketCodec.decode(wire); }
+        };
+
+        System.out.println("CURRENT_PARKING response, " + rows + " rows, " + iterations + " iterations");
+        System.out.printf("%-14s %10s %10s %14s %14s %12s%n", "path", "median us", "p99 us", "send KB/op", "receive KB/op", "wire bytes");
+        for (int round = 0; round < 2; round++) {      // first round warms up the JIT
+            run("gson+String", gson, packet, iterations, round == 1);
+            run("codec+byte[]", codec, packet, iterations, round == 1);
+        }
+    }
+
+    private static void run(String label, Side side, CommandPacket packet, int iterations, boolean print) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        long[] nanos = new long[iterations];
+        long sendBytes = 0, receiveBytes = 0;
+        int wireSize = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            long a0 = threads.getThreadAllocatedBytes(thread);
+            long t0 = System.nanoTime();
+
+            // What ConnectionToClient.sendToClient does with the message
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+                oos.writeObject(side.send(packet));
+            }
+            long a1 = threads.getThreadAllocatedBytes(thread);
+
+            // What AbstractClient does on the other side
+            byte[] wire = out.toByteArray();
+            Object msg;
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(wire))) {
+                msg = ois.readObject();
+            }
+            CommandPacket received = side.receive(msg);
+
+            nanos[i] = System.nanoTime() - t0;
+            long a2 = threads.getThreadAllocatedBytes(thread);
+            sendBytes += a1 - a0;
+            receiveBytes += a2 - a1;
+            wireSize = wire.length;
+            if (received.getTable().size() != packet.getTable().size()) throw new IllegalStateException(label + " lost rows");
+        }
+
+        if (!print) return;
+        Arrays.sort(nanos);
+        System.out.printf("%-14s %10.1f %10.1f %14.1f %14.1f %12d%n", label,
+                nanos[iterations / 2] / 1e3, nanos[(int) (iterations * 0.99)] / 1e3,
+                sendBytes / 1024.0 / iterations, receiveBytes / 1024.0 / iterations, wireSize);
+    }
+
+    /**
+     * @return A CURRENT_PARKING response shaped like the real one, with every third space occupied.
+     */
+    private static CommandPacket currentParking(int rows) {
+        List<Map<String, String>> table = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Map<String, String> row = new HashMap<>();
+            row.put("parking_space", String.valueOf(100 + i));
+            boolean occupied = i % 3 == 0;
+            row.put("status", occupied ? "occupied" : "available");
+            row.put("confirmation_code", occupied ? String.valueOf(100_000 + i) : null);
+            row.put("subscriber_id", occupied ? String.valueOf(10_000 + i) : null);
+            table.add(row);
+        }
+        CommandPacket packet = new CommandPacket();
+        packet.setCommand("CURRENT_PARKING");
+        packet.setAnswer(200);
+        packet.setDescription("34");
+        packet.setTable(table);
+        return packet;
+    }
+}
@@ -0,0 +1,97 @@
+package server_bench;
+
+import java.util.Map;
+
+import server_core.DBconnector;
+import server_core.DBhandler;
+
+/**
+ * Measures what the prepared-statement cache saves on a DEPOSIT/PICKUP round trip.
+ *
+ * <p>Each round deposits a walk-in vehicle for the given subscriber and picks it up again,
+ * going through {@link DBhandler} exactly like the server does. Three setups are compared:</p>
+ * <ul>
+ *   <li>client-side prepares, no cache (MySQL parses every statement text it receives)</li>
+ *   <li>server-side prepares, no cache (prepare + close round trips on every call)</li>
+ *   <li>server-side prepares with the per-connection statement cache (parsed once per connection)</li>
+ * </ul>
+ *
+ * <p>Run it against a scratch copy of the database: every round adds an order and two history rows.
+ * The subscriber must not have an active deposit or a reservation for today.</p>
+ *
+ * <pre>
+ * java server_bench.StatementCacheBenchmark &lt;host:port/db&gt; &lt;user&gt; &lt;password&gt; &lt;subscriber_id&gt; [rounds]
+ * </pre>
+ */
+public class StatementCacheBenchmark {
+
+    private static final int WARMUP_ROUNDS = 50;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: StatementCacheBenchmark <host:port/db> <user> <password> <subscriber_id> [rounds]");
+            return;
+        }
+
+        String baseUrl = "jdbc:mysql://" + args[0] + "?serverTimezone=Asia/Jerusalem&useSSL=false";
+        String user = args[1];
+        String password = args[2];
+        String subscriberId = args[3];
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+
+        double baseline = run("client-side prepares, no cache", baseUrl + "&useServerPrepStmts=false",
+                user, password, subscriberId, rounds, 0);
+        double serverNoCache = run("server-side prepares, no cache", baseUrl + "&useServerPrepStmts=true",
+                user, password, subscriberId, rounds, 0);
+        double cached = run("server-side prepares + cache", baseUrl + "&useServerPrepStmts=true",
+                user, password, subscriberId, rounds, DBconnector.DEFAULT_STATEMENT_CACHE_SIZE);
+
+        System.out.println();
+        System.out.printf("Saved per DEPOSIT/PICKUP round trip: %.1f µs vs client-side, %.1f µs vs uncached server-side%n",
+                baseline - cached, serverNoCache - cached);
+    }
+
+    /**
+     * Runs warm-up plus measured rounds with one pool setup.
+     *
+     * @return average microseconds per DEPOSIT/PICKUP round trip.
+     */
+    private static double run(String label, String url, String user, String password,
+                              String subscriberId, int rounds, int cacheSize) throws Exception {
+        DBconnector db = new DBconnector();
+        db.setStatementCacheSize(cacheSize);
+        if (!db.connect(url, user, password, 1, 1)) {
+            throw new IllegalStateException("Could not connect to " + url);
+        }
+
+        try {
+            DBhandler handler = new DBhandler(db);
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                roundTrip(handler, subscriberId);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                roundTrip(handler, subscriberId);
+            }
+            double avgMicros = (System.nanoTime() - start) / 1_000.0 / rounds;
+
+            Map<String, Long> stats = db.getPoolStats();
+            System.out.printf("%-34s %9.1f µs/round trip  (stmt cache hits %d, misses %d)%n",
+                    label, avgMicros, stats.get("stmt_cache_hits"), stats.get("stmt_cache_misses"));
+            return avgMicros;
+        } finally {
+            db.disconnect();
+        }
+    }
+
+    private static void roundTrip(DBhandler handler, String subscriberId) throws Exception {
+        String code = handler.depositVehicle(subscriberId, "");
+        if (code == null) {
+            throw new IllegalStateException("Deposit refused: subscriber has an active order or the lot is full.");
+        }
+        if (handler.pickupVehicle(subscriberId, code) != 200) {
+            throw new IllegalStateException("Pickup failed for confirmation code " + code);
+        }
+    }
+}
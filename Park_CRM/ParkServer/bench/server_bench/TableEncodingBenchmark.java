@@ -0,0 +1,131 @@
+package server_bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import server_core.CommandPacket;
+import server_core.PacketCodec;
+
+/**
+ * Compares the row (one JSON object per row) and columnar (column names once, positional rows)
+ * table encodings of {@link PacketCodec} for large responses:
+ * <ul>
+ *   <li>CURRENT_PARKING for lots of 1,000 and 10,000 spaces</li>
+ *   <li>a year of USERS reports (12 months x subscribers)</li>
+ *   <li>a year of daily PARKING report rows</li>
+ * </ul>
+ * For each it prints the bytes on the wire and the median time to encode and to decode
+ * (decoding includes reading every value of every row, as the client screens do). No database is needed.
+ *
+ * <pre>
+ * java server_bench.TableEncodingBenchmark [subscribers] [iterations]
+ * </pre>
+ */
+public class TableEncodingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int subscribers = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 800;
+
+        System.out.printf("%-28s %8s %-9s %12s %12s %12s%n", "response", "rows", "format", "wire bytes", "encode ms", "decode ms");
+        for (int round = 0; round < 2; round++) {      // first round warms up the JIT
+            boolean print = round == 1;
+            run("CURRENT_PARKING 1k lot", currentParking(1_000), iterations, print);
+            run("CURRENT_PARKING 10k lot", currentParking(10_000), iterations / 4, print);
+            run("USERS report, 12 months", usersYear(subscribers), iterations / 4, print);
+            run("PARKING report, 365 days", parkingYear(), iterations, print);
+        }
+    }
+
+    private static void run(String label, CommandPacket packet, int iterations, boolean print) throws Exception {
+        for (boolean columnar : new boolean[] { false, true }) {
+            long[] encode = new long[iterations];
+            long[] decode = new long[iterations];
+            byte[] wire = null;
+            long sink = 0;
+
+            for (int i = 0; i < iterations; i++) {
+                long t0 = System.nanoTime();
+                wire = PacketCodec.encode(packet, columnar);
+                long t1 = System.nanoTime();
+                CommandPacket received = PacketCodec.decode((Object) wire);
+                for (Map<String, String> row : received.getTable()) {
+                    for (String value : row.values()) sink += value.length();
+                }
+                encode[i] = t1 - t0;
+                decode[i] = System.nanoTime() - t1;
+            }
+            if (sink == 0) throw new IllegalStateException("nothing decoded");
+
+            if (!print) continue;
+            Arrays.sort(encode);
+            Arrays.sort(decode);
+            System.out.printf("%-28s %8d %-9s %12d %12.2f %12.2f%n", label, packet.getTable().size(),
+                    columnar ? "columnar" : "rows", wire.length,
+                    encode[iterations / 2] / 1e6, decode[iterations / 2] / 1e6);
+        }
+    }
+
+    /**
+     * @return A CURRENT_PARKING response with every third space occupied.
+     */
+    private static CommandPacket currentParking(int spaces) {
+        List<Map<String, String>> table = new ArrayList<>(spaces);
+        for (int i = 0; i < spaces; i++) {
+            Map<String, String> row = new LinkedHashMap<>();
+            boolean occupied = i % 3 == 0;
+            row.put("parking_space", String.valueOf(100 + i));
+            row.put("status", occupied ? "occupied" : "available");
+            row.put("confirmation_code", occupied ? String.valueOf(100_000 + i) : null);
+            row.put("subscriber_id", occupied ? String.valueOf(10_000 + i % 5_000) : null);
+            table.add(row);
+        }
+        return packet("CURRENT_PARKING", table);
+    }
+
+    /**
+     * @return Twelve monthly USERS reports concatenated, as a year view would request them.
+     */
+    private static CommandPacket usersYear(int subscribers) {
+        List<Map<String, String>> table = new ArrayList<>(12 * subscribers);
+        for (int month = 1; month <= 12; month++) {
+            for (int s = 0; s < subscribers; s++) {
+                Map<String, String> row = new LinkedHashMap<>();
+                row.put("user", String.valueOf(10_000 + s));
+                row.put("deposited", String.valueOf((s + month) % 9));
+                row.put("picked_up", String.valueOf((s + month) % 9));
+                row.put("reserved", String.valueOf(s % 4));
+                row.put("late", String.valueOf(s % 3));
+                row.put("cancelled", String.valueOf(s % 2));
+                row.put("extended", String.valueOf(month % 2));
+                table.add(row);
+            }
+        }
+        return packet("REPORT", table);
+    }
+
+    /**
+     * @return A year of daily PARKING report rows.
+     */
+    private static CommandPacket parkingYear() {
+        List<Map<String, String>> table = new ArrayList<>(365);
+        for (int d = 0; d < 365; d++) {
+            Map<String, String> row = new LinkedHashMap<>();
+            row.put("day", java.time.LocalDate.of(2025, 1, 1).plusDays(d).toString());
+            row.put("capacity", String.valueOf(20 + d % 40));
+            table.add(row);
+        }
+        return packet("REPORT", table);
+    }
+
+    private static CommandPacket packet(String command, List<Map<String, String>> table) {
+        CommandPacket packet = new CommandPacket();
+        packet.setCommand(command);
+        packet.setAnswer(200);
+        packet.setTable(table);
+        return packet;
+    }
+}
@@ -0,0 +1,199 @@
+package server_bench;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+import ocsf.client.AbstractClient;
+import ocsf.server.AbstractServer;
+import ocsf.server.ConnectionToClient;
+import server_core.ClientChannel;
+import server_core.ClientHandler;
+import server_core.CommandPacket;
+import server_core.NioServer;
+import server_core.PacketCodec;
+
+/**
+ * Compares the OCSF thread-per-connection server with {@link NioServer} under many mostly idle
+ * connections, like kiosks and manager consoles waiting between commands.
+ *
+ * <p>For each transport it opens the given number of idle connections (raw sockets that send the
+ * stream header and nothing else), then has a few real OCSF clients send CommandPackets that the
+ * server echoes, and prints the server threads, heap and resident memory added by the
+ * connections, and the round-trip latency. No database is needed. The round trip is about the
+ * same for both: it is dominated by the OCSF client, which writes each message and its
+ * {@code reset()} marker separately on a socket without TCP_NODELAY.</p>
+ *
+ * <p>Run one transport per JVM for clean resident memory numbers; the process does not give
+ * memory back between runs. The file descriptor limit must allow two per connection.</p>
+ *
+ * <pre>
+ * java server_bench.TransportBenchmark [connections] [ocsf|nio|both] [port]
+ * </pre>
+ */
+public class TransportBenchmark {
+
+    private static final int ACTIVE_CLIENTS = 8;
+    private static final int ROUND_TRIPS = 250;
+
+    private interface Server {
+        void start() throws IOException;
+        int clients();
+        void stop() throws IOException;
+    }
+
+    private record Snapshot(int threads, long heap, long rss) {}
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        String which = args.length > 1 ? args[1] : "both";
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 5599;
+
+        System.out.printf("%-6s %8s %10s %12s %12s %12s %12s%n",
+                "server", "clients", "threads +", "heap MB +", "RSS MB +", "rtt p50 us", "rtt p99 us");
+        if (!which.equals("ocsf")) run("nio", nio(port), connections, port);
+        if (!which.equals("nio")) run("ocsf", ocsf(port), connections, port);
+    }
+
+    private static void run(String name, Server server, int connections, int port) throws Exception {
+        Snapshot before = snapshot();
+        server.start();
+
+        List<Socket> idle = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            Socket socket = new Socket("127.0.0.1", port);
+            new ObjectOutputStream(socket.getOutputStream()).flush(); // the header OCSF clients send on connect
+            idle.add(socket);
+        }
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (server.clients() < connections && System.currentTimeMillis() < deadline) Thread.sleep(50);
+
+        List<EchoClient> active = new ArrayList<>();
+        for (int i = 0; i < ACTIVE_CLIENTS; i++) active.add(new EchoClient(port));
+        long[] rtt = new long[ACTIVE_CLIENTS * ROUND_TRIPS];
+        int n = 0;
+        for (int r = 0; r < ROUND_TRIPS; r++) {
+            for (EchoClient client : active) rtt[n++] = client.roundTrip(r);
+        }
+
+        Thread.sleep(2_000); // let the accept backlog and buffers settle
+        Snapshot after = snapshot();
+        Arrays.sort(rtt);
+        System.out.printf("%-6s %8d %10d %12.1f %12.1f %12.1f %12.1f%n", name, server.clients(),
+                after.threads - before.threads - ACTIVE_CLIENTS,
+                (after.heap - before.heap) / 1048576.0,
+                after.rss < 0 ? -1 : (after.rss - before.rss) / 1048576.0,
+                rtt[rtt.length / 2] / 1e3, rtt[(int) (rtt.length * 0.99)] / 1e3);
+
+        for (EchoClient client : active) client.closeConnection();
+        for (Socket socket : idle) socket.close();
+        server.stop();
+        Thread.sleep(1_000);
+    }
+
+    private static Server ocsf(int port) {
+        AbstractServer server = new AbstractServer(port) {
+            @Override
+            protected void handleMessageFromClient(Object msg, ConnectionToClient client) {
+                try {
+                    client.sendToClient(msg);
+                } catch (IOException e) {
+                    System.err.println("❌ " + e.getMessage());
+                }
+            }
+        };
+        server.setBacklog(512);
+        return new Server() {
+            public void start() throws IOException { server.listen(); }
+            public int clients() { return server.getNumberOfClients(); }
+            public void stop() throws IOException { server.close(); }
+        };
+    }
+
+    private static Server nio(int port) {
+        NioServer server = new NioServer(port, new ClientHandler() {
+            public void clientConnected(ClientChannel client) {}
+            public void clientDisconnected(ClientChannel client) {}
+            public void handleMessageFromClient(Object msg, ClientChannel client) {
+                try {
+                    client.sendToClient(msg);
+                } catch (IOException e) {
+                    System.err.println("❌ " + e.getMessage());
+                }
+            }
+        }, NioServer.DEFAULT_SELECTORS);
+        return new Server() {
+            public void start() throws IOException { server.listen(); }
+            public int clients() { return server.getNumberOfClients(); }
+            public void stop() { server.close(); }
+        };
+    }
+
+    private static Snapshot snapshot() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        Runtime rt = Runtime.getRuntime();
+        return new Snapshot(ManagementFactory.getThreadMXBean().getThreadCount(),
+                rt.totalMemory() - rt.freeMemory(), residentBytes());
+    }
+
+    /**
+     * @return VmRSS of this process, or -1 where /proc is not available.
+     */
+    private static long residentBytes() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+            }
+        } catch (IOException | RuntimeException e) {
+            // not Linux
+        }
+        return -1;
+    }
+
+    /**
+     * A real OCSF client that sends a small CommandPacket and waits for the echo.
+     */
+    private static final class EchoClient extends AbstractClient {
+
+        private final SynchronousQueue<Object> replies = new SynchronousQueue<>();
+
+        EchoClient(int port) throws IOException {
+            super("127.0.0.1", port);
+            openConnection();
+        }
+
+        long roundTrip(int i) throws Exception {
+            CommandPacket packet = new CommandPacket();
+            packet.setCommand("CURRENT_PARKING");
+            packet.setRequestId(String.valueOf(i));
+            long t0 = System.nanoTime();
+            sendToServer(PacketCodec.encode(packet));
+            Object reply = replies.poll(5, TimeUnit.SECONDS);
+            long elapsed = System.nanoTime() - t0;
+            if (reply == null || !String.valueOf(i).equals(PacketCodec.decode(reply).getRequestId())) {
+                throw new IllegalStateException("no echo for request " + i);
+            }
+            return elapsed;
+        }
+
+        @Override
+        protected void handleMessageFromServer(Object msg) {
+            try {
+                replies.put(msg);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
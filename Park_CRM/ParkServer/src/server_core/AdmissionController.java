@@ -0,0 +1,176 @@
+package server_core;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which commands may run, by priority class, so a burst of manager reports cannot take
+ * the database away from the gates.
+ *
+ * <p>Each class has its own limit of commands running at once and a bounded number of commands
+ * waiting behind them. A command that finds its class full is rejected at once, and one that
+ * waits longer than the wait limit gives up; either way the client is answered 503 right away
+ * instead of timing out.</p>
+ */
+public class AdmissionController {
+
+    /** Command classes, most urgent first. */
+    public enum Priority {
+        /** Vehicles at the gate: DEPOSIT, PICKUP. */
+        GATE,
+        /** Subscribers and staff working on their own account or the lot view. */
+        SELF_SERVICE,
+        /** Manager reports and history searches. */
+        ANALYTICS;
+
+        /**
+         * @param command A command name, upper case.
+         * @return Its class, or null for commands that do not touch the database (HELLO, LOGOUT).
+         */
+        public static Priority of(String command) {
+            return switch (command) {
+                case "HELLO", "LOGOUT" -> null;
+                case "DEPOSIT", "PICKUP" -> GATE;
+                case "REPORT", "USER_HISTORY" -> ANALYTICS;
+                default -> SELF_SERVICE;
+            };
+        }
+    }
+
+    /** Default time a command may wait for its class, under the client's 5-second timeout. */
+    public static final long DEFAULT_MAX_WAIT_MS = 3_000;
+
+    private final Map<Priority, Lane> lanes = new EnumMap<>(Priority.class);
+    private final long maxWaitMs;
+
+    /**
+     * @param dbTasks   Base limit, usually the connection pool size. GATE may run that many commands,
+     *                  SELF_SERVICE half and ANALYTICS a quarter (at least one each). Each limit and
+     *                  queue can be overridden with {@code -Dbpark.admission.<class>.limit} and
+     *                  {@code .queue}, e.g. {@code -Dbpark.admission.analytics.limit=1}.
+     * @param maxWaitMs Longest time a command waits for its class before it is rejected.
+     */
+    public AdmissionController(int dbTasks, long maxWaitMs) {
+        int base = Math.max(1, dbTasks);
+        this.maxWaitMs = maxWaitMs;
+        lanes.put(Priority.GATE, lane(Priority.GATE, base, 32 * base));
+        lanes.put(Priority.SELF_SERVICE, lane(Priority.SELF_SERVICE, Math.max(1, base / 2), 8 * base));
+        lanes.put(Priority.ANALYTICS, lane(Priority.ANALYTICS, Math.max(1, base / 4), 2 * base));
+    }
+
+    private static Lane lane(Priority priority, int limit, int queue) {
+        String key = "bpark.admission." + priority.name().toLowerCase();
+        return new Lane(Math.max(1, Integer.getInteger(key + ".limit", limit)),
+                Math.max(0, Integer.getInteger(key + ".queue", queue)));
+    }
+
+    /**
+     * Admits a command into its class if there is room to run or wait.
+     * An admitted command calls {@link #acquire} and, if that succeeds, {@link #release} when it
+     * runs, and must call {@link #leave} once it is over, even if it never got to run.
+     *
+     * @param priority The command's class.
+     * @return false if the class is saturated and the command is rejected.
+     */
+    public boolean tryAdmit(Priority priority) {
+        Lane lane = lanes.get(priority);
+        int admitted = lane.admitted.incrementAndGet();
+        if (admitted > lane.limit + lane.queue) {
+            lane.admitted.decrementAndGet();
+            lane.rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Waits for a running slot of an admitted command.
+     *
+     * @param priority The command's class.
+     * @return false if it waited too long or was interrupted.
+     */
+    public boolean acquire(Priority priority) {
+        Lane lane = lanes.get(priority);
+        long t0 = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = lane.slots.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        lane.maxWaitNanos.accumulateAndGet(System.nanoTime() - t0, Math::max);
+        if (!acquired) lane.timedOut.increment();
+        return acquired;
+    }
+
+    /**
+     * Frees the running slot of a command that finished.
+     *
+     * @param priority The command's class.
+     */
+    public void release(Priority priority) {
+        Lane lane = lanes.get(priority);
+        lane.slots.release();
+        lane.completed.increment();
+    }
+
+    /**
+     * Gives back the place of an admitted command that is over: it ran, was rejected while
+     * waiting, or was never started.
+     *
+     * @param priority The command's class.
+     */
+    public void leave(Priority priority) {
+        lanes.get(priority).admitted.decrementAndGet();
+    }
+
+    /**
+     * Returns the admission statistics per class.
+     *
+     * @return per class: limit, queue_limit, running, queued, completed, rejected (class full),
+     *         timed_out (waited too long) and max_wait_ms
+     */
+    public Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        for (Map.Entry<Priority, Lane> e : lanes.entrySet()) {
+            Lane lane = e.getValue();
+            long running = lane.limit - lane.slots.availablePermits();
+            Map<String, Long> s = new LinkedHashMap<>();
+            s.put("limit", (long) lane.limit);
+            s.put("queue_limit", (long) lane.queue);
+            s.put("running", running);
+            s.put("queued", Math.max(0, lane.admitted.get() - running));
+            s.put("completed", lane.completed.sum());
+            s.put("rejected", lane.rejected.sum());
+            s.put("timed_out", lane.timedOut.sum());
+            s.put("max_wait_ms", lane.maxWaitNanos.get() / 1_000_000);
+            stats.put(e.getKey().name(), s);
+        }
+        return stats;
+    }
+
+    /** Limits and counters of one class. */
+    private static final class Lane {
+        final int limit;
+        final int queue;
+        final Semaphore slots;
+        final AtomicInteger admitted = new AtomicInteger(); // running + waiting
+        final LongAdder completed = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder timedOut = new LongAdder();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        Lane(int limit, int queue) {
+            this.limit = limit;
+            this.queue = queue;
+            this.slots = new Semaphore(limit, true);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package server_core;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+/**
+ * A connection to one client, whichever transport carries it.
+ * It offers the part of OCSF's {@code ConnectionToClient} the command handlers use, so they
+ * work the same over the OCSF thread-per-connection server and over {@link NioServer}.
+ */
+public interface ClientChannel {
+
+    /**
+     * Sends a message to the client.
+     *
+     * @param msg The message, normally {@link PacketCodec} bytes.
+     * @throws IOException If the connection is closed or the message cannot be sent.
+     */
+    void sendToClient(Object msg) throws IOException;
+
+    /**
+     * Closes the connection and reports it to {@link ClientHandler#clientDisconnected}.
+     *
+     * @throws IOException If closing the socket fails.
+     */
+    void close() throws IOException;
+
+    /**
+     * @return The client's address, or null once the connection is closed.
+     */
+    InetAddress getInetAddress();
+
+    /**
+     * Saves a value on the connection (user_id, table_format, ...).
+     *
+     * @param infoType The key.
+     * @param info     The value.
+     */
+    void setInfo(String infoType, Object info);
+
+    /**
+     * @param infoType The key.
+     * @return The value saved under the key, or null.
+     */
+    Object getInfo(String infoType);
+}
@@ -0,0 +1,40 @@
+package server_core;
+
+/**
+ * Receives the events of client connections from a transport.
+ * These are the callbacks of OCSF's {@code AbstractServer}, over {@link ClientChannel}s.
+ * A transport delivers the messages of all clients one at a time, as OCSF does.
+ */
+public interface ClientHandler {
+
+    /**
+     * Called when a client connects, before any of its messages.
+     *
+     * @param client The new connection.
+     */
+    void clientConnected(ClientChannel client);
+
+    /**
+     * Called for each message received from a client.
+     *
+     * @param msg    The message, {@link PacketCodec} bytes or a JSON string.
+     * @param client The connection it came from.
+     */
+    void handleMessageFromClient(Object msg, ClientChannel client);
+
+    /**
+     * Called when the server closes a client connection with {@link ClientChannel#close()}.
+     *
+     * @param client The closed connection.
+     */
+    void clientDisconnected(ClientChannel client);
+
+    /**
+     * Called when a connection breaks (the client went away or sent something unreadable).
+     * The connection is already closed. Does nothing by default, like OCSF.
+     *
+     * @param client    The broken connection.
+     * @param exception The reason.
+     */
+    default void clientException(ClientChannel client, Throwable exception) {}
+}
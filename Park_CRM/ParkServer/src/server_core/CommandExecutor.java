@@ -0,0 +1,159 @@
+package server_core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs client commands on virtual threads instead of the connection thread that read them.
+ * A slow command (a REPORT reading CSV files, a RECOVER calling Discord) no longer holds up the
+ * connection, nor, since OCSF delivers messages under one server-wide lock, every other client.
+ *
+ * <ul>
+ *   <li>Each command gets its own virtual thread, but the commands of one client run one after
+ *       the other, in the order they arrived.</li>
+ *   <li>Commands that use the database go through the {@link AdmissionController}: each priority
+ *       class runs a bounded number at once, and the rest wait here as parked virtual threads
+ *       rather than on the connection pool, or are rejected when the class is saturated.</li>
+ * </ul>
+ *
+ * <p>In inline mode commands run on the calling thread, as before, without admission control;
+ * the benchmarks use it as the baseline.</p>
+ */
+public class CommandExecutor {
+
+    private final boolean inline;
+    private final AdmissionController admission;
+    private final ExecutorService executor;
+
+    /** Last queued command of each client with commands pending; the next one is chained after it. */
+    private final Map<ClientChannel, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicInteger running = new AtomicInteger();
+
+    /**
+     * @param admission Admission control of the database commands.
+     * @param inline    true to run commands on the calling thread, without ordering or limits.
+     */
+    public CommandExecutor(AdmissionController admission, boolean inline) {
+        this.inline = inline;
+        this.admission = admission;
+        this.executor = inline ? null : Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Queues a command of a client after the ones it already has pending.
+     *
+     * @param client   The client the command came from.
+     * @param priority The command's class, or null if it does not use the database.
+     * @param command  The command; anything it throws is logged, not propagated.
+     * @param rejected Run instead of the command if its class is saturated, it waited too long or
+     *                 the executor is shut down; may run on the calling thread.
+     */
+    public void submit(ClientChannel client, AdmissionController.Priority priority, Runnable command, Runnable rejected) {
+        submitted.increment();
+        if (inline) {
+            run(command);
+            return;
+        }
+        if (priority != null && !admission.tryAdmit(priority)) {
+            reject(rejected);
+            return;
+        }
+        Runnable task = priority != null ? () -> runAdmitted(priority, command, rejected) : () -> run(command);
+        CompletableFuture<Void> tail;
+        try {
+            tail = tails.compute(client, (c, previous) -> previous == null
+                    ? CompletableFuture.runAsync(task, executor)
+                    // Chain on the outcome, not success, so one command that never ran cannot skip the rest
+                    : previous.handle((r, e) -> null).thenRunAsync(task, executor));
+        } catch (RejectedExecutionException e) {
+            if (priority != null) admission.leave(priority);
+            reject(rejected);
+            return;
+        }
+        // Leave the class when the command's future completes, whether or not it ever ran
+        tail.whenComplete((r, e) -> {
+            tails.remove(client, tail);
+            if (priority != null) admission.leave(priority);
+            if (e != null) reject(rejected); // the executor refused the command (shut down), so answer it here
+        });
+    }
+
+    /**
+     * Returns the executor statistics.
+     *
+     * @return submitted, completed, failed, rejected (by admission control), running and
+     *         clients_pending (clients with commands queued or running)
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("submitted", submitted.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("running", (long) running.get());
+        stats.put("clients_pending", (long) tails.size());
+        return stats;
+    }
+
+    /**
+     * Stops taking commands and waits a few seconds for the running ones.
+     */
+    public void close() {
+        if (executor == null) return;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("⚠️ Commands still running at shutdown: " + running.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runAdmitted(AdmissionController.Priority priority, Runnable command, Runnable onRejected) {
+        if (!admission.acquire(priority)) {
+            reject(onRejected);
+            return;
+        }
+        try {
+            run(command);
+        } finally {
+            admission.release(priority);
+        }
+    }
+
+    private void reject(Runnable onRejected) {
+        rejected.increment();
+        try {
+            onRejected.run();
+        } catch (RuntimeException e) {
+            System.err.println("❌ Failed to reject command: " + e.getMessage());
+        }
+    }
+
+    private void run(Runnable command) {
+        running.incrementAndGet();
+        try {
+            command.run();
+            completed.increment();
+        } catch (Throwable e) {
+            failed.increment();
+            System.err.println("❌ Command failed: " + e);
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+}
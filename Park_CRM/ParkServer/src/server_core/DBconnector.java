@@ -1,23 +1,93 @@
 package server_core;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.sql.SQLTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * A utility class for managing a MySQL database connection.
- * This class provides methods to load the JDBC driver, establish a connection,
- * close the connection, and retrieve the current connection object.
+ * A bounded pool of MySQL database connections.
+ * This class loads the JDBC driver, opens a minimum number of connections up front and
+ * grows on demand up to a maximum. Callers borrow a connection per request with
+ * {@link #borrowConnection()} and hand it back by closing it (try-with-resources).
+ *
+ * <p>Every borrowed connection is validated before it is handed out, leases held for too long
+ * are reported as leaks, and pool statistics are available through {@link #getPoolStats()}.</p>
+ *
+ * <p>Each physical connection keeps a {@link StatementCache}: {@code prepareStatement} on a borrowed
+ * connection returns a cached statement, and closing it hands it back for the next request.</p>
  */
 public class DBconnector {
 
-    private Connection conn = null;
+    /** Default number of connections opened when the pool starts. */
+    public static final int DEFAULT_MIN_SIZE = 2;
+
+    /** Default upper bound of physical connections (idle + borrowed). */
+    public static final int DEFAULT_MAX_SIZE = 10;
+
+    /** How long a caller waits for a free connection before giving up. */
+    private static final long BORROW_TIMEOUT_MS = 5_000;
+
+    /** A lease held longer than this is reported as a possible leak. */
+    private static final long LEAK_THRESHOLD_MS = 30_000;
+
+    /** Timeout (seconds) for the validation ping done on borrow. */
+    private static final int VALIDATION_TIMEOUT_SEC = 2;
+
+    /** Default number of prepared statements cached per physical connection. */
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    private String url;
+    private String user;
+    private String password;
+    private int minSize = DEFAULT_MIN_SIZE;
+    private int maxSize = DEFAULT_MAX_SIZE;
+    private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    private volatile boolean closed = true;
+
+    /** Idle physical connections, most recently returned first. */
+    private final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+
+    /** Physical connections currently borrowed, with lease details for leak detection. */
+    private final Map<Connection, Lease> leased = new ConcurrentHashMap<>();
+
+    /** Prepared-statement cache of every open physical connection. */
+    private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+
+    /** One permit per connection that may be borrowed at the same time. */
+    private Semaphore permits;
+
+    private ScheduledExecutorService leakDetector;
+
+    // Pool statistics
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong discardedCount = new AtomicLong();
+    private final AtomicLong stmtCacheHits = new AtomicLong();
+    private final AtomicLong stmtCacheMisses = new AtomicLong();
 
     /**
      * Loads the MySQL JDBC driver.
-     * 
+     *
      * @throws ClassNotFoundException if the MySQL JDBC driver is not found.
      */
     public DBconnector() throws ClassNotFoundException {
@@ -31,47 +101,347 @@ public class DBconnector {
     }
 
     /**
-     * Establishes a connection to the database.
-     * 
+     * Starts the pool with the default minimum and maximum sizes.
+     *
      * @param url      the database URL.
      * @param user     the database username.
      * @param password the database password.
-     * @return true if the connection is successful, false otherwise.
+     * @return true if the initial connections were opened, false otherwise.
      */
     public boolean connect(String url, String user, String password) {
+        return connect(url, user, password, DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Starts the pool and opens {@code minSize} connections to the database.
+     *
+     * @param url      the database URL.
+     * @param user     the database username.
+     * @param password the database password.
+     * @param minSize  number of connections opened up front (at least 1).
+     * @param maxSize  maximum number of physical connections (at least {@code minSize}).
+     * @return true if the initial connections were opened, false otherwise.
+     */
+    public boolean connect(String url, String user, String password, int minSize, int maxSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = Math.max(1, minSize);
+        this.maxSize = Math.max(this.minSize, maxSize);
+        this.permits = new Semaphore(this.maxSize, true);
+
         try {
-            this.conn = DriverManager.getConnection(url, user, password);
+            for (int i = 0; i < this.minSize; i++) {
+                idle.offerLast(openPhysical());
+            }
         } catch (SQLException ex) {
             System.err.println("SQLException: " + ex.getMessage());
             System.err.println("SQLState: " + ex.getSQLState());
             System.err.println("VendorError: " + ex.getErrorCode());
+            closeIdle();
             return false;
         }
-        System.out.println("✔️ SQL connection succeed");
+
+        closed = false;
+        leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "DBconnector-leak-detector");
+            t.setDaemon(true);
+            return t;
+        });
+        leakDetector.scheduleAtFixedRate(this::detectLeaks, LEAK_THRESHOLD_MS, LEAK_THRESHOLD_MS / 3, TimeUnit.MILLISECONDS);
+
+        System.out.println("✔️ SQL connection pool started (min " + this.minSize + ", max " + this.maxSize + ")");
         return true;
     }
 
     /**
-     * Closes the database connection.
-     * Ensures that the connection is safely closed if it is open.
+     * Closes the pool and every physical connection, idle or borrowed.
      */
     public void disconnect() {
+        if (closed) return;
+        closed = true;
+        if (leakDetector != null) leakDetector.shutdownNow();
+
+        closeIdle();
+        for (Connection physical : leased.keySet()) {
+            closeQuietly(physical);
+        }
+        leased.clear();
+        System.out.println("✔️ Database disconnected.");
+    }
+
+    /**
+     * Borrows a validated connection from the pool, waiting up to 5 seconds for one to become free.
+     * The caller must close the returned connection to give it back; closing does not close the
+     * underlying physical connection.
+     *
+     * @return a pooled {@link Connection}.
+     * @throws SQLException if the pool is closed, no connection became free in time, or opening a new one failed.
+     */
+    public Connection borrowConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed.");
+
+        long start = System.nanoTime();
+        waiters.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.");
+        } finally {
+            waiters.decrementAndGet();
+            long waited = System.nanoTime() - start;
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new SQLTimeoutException("No database connection available within " + BORROW_TIMEOUT_MS + " ms.");
+        }
+
+        Connection physical;
         try {
-            if (conn != null && !conn.isClosed()) {
-                conn.close();
-                System.out.println("✔️ Database disconnected.");
+            physical = takeValidIdle();
+            if (physical == null) physical = openPhysical();
+        } catch (SQLException e) {
+            permits.release();
+            throw e;
+        }
+
+        borrowCount.incrementAndGet();
+        leased.put(physical, new Lease(Thread.currentThread().getName(), System.currentTimeMillis()));
+        return (Connection) Proxy.newProxyInstance(
+                DBconnector.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new PooledConnectionHandler(physical));
+    }
+
+    /**
+     * Returns current pool statistics.
+     *
+     * @return an ordered map with the keys: active, idle, waiters, max_size, borrowed_total,
+     *         avg_wait_ms, max_wait_ms, timeouts, leaks, discarded, stmt_cache_hits,
+     *         stmt_cache_misses and stmt_cached.
+     */
+    public Map<String, Long> getPoolStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        long borrowed = borrowCount.get();
+        stats.put("active", (long) leased.size());
+        stats.put("idle", (long) idle.size());
+        stats.put("waiters", (long) waiters.get());
+        stats.put("max_size", (long) maxSize);
+        stats.put("borrowed_total", borrowed);
+        stats.put("avg_wait_ms", borrowed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / borrowed));
+        stats.put("max_wait_ms", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        stats.put("timeouts", timeoutCount.get());
+        stats.put("leaks", leakCount.get());
+        stats.put("discarded", discardedCount.get());
+        stats.put("stmt_cache_hits", stmtCacheHits.get());
+        stats.put("stmt_cache_misses", stmtCacheMisses.get());
+        long cached = 0;
+        for (StatementCache cache : statementCaches.values()) cached += cache.size();
+        stats.put("stmt_cached", cached);
+        return stats;
+    }
+
+    /**
+     * @return the maximum number of physical connections this pool may open.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets how many prepared statements each physical connection keeps open.
+     * A size of 0 disables caching: every {@code prepareStatement} prepares a new statement.
+     * Takes effect for connections opened after the call.
+     *
+     * @param size the per-connection cache size.
+     */
+    public void setStatementCacheSize(int size) {
+        this.statementCacheSize = Math.max(0, size);
+    }
+
+    // ========================================================= Pool internals =========================================================
+
+    /**
+     * Opens a new physical connection to the database.
+     */
+    private Connection openPhysical() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        if (statementCacheSize > 0) {
+            statementCaches.put(physical, new StatementCache(physical, statementCacheSize, stmtCacheHits, stmtCacheMisses));
+        }
+        return physical;
+    }
+
+    /**
+     * Takes idle connections until one passes validation; broken ones are discarded.
+     *
+     * @return a valid idle connection, or null if none is idle.
+     */
+    private Connection takeValidIdle() {
+        Connection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            try {
+                if (physical.isValid(VALIDATION_TIMEOUT_SEC)) return physical;
+            } catch (SQLException ignored) {}
+            discard(physical);
+        }
+        return null;
+    }
+
+    /**
+     * Gives a physical connection back to the pool after its lease was closed.
+     * Any open transaction is rolled back so the next borrower starts clean.
+     */
+    private void release(Connection physical) {
+        if (leased.remove(physical) == null) return; // already released
+
+        StatementCache cache = statementCaches.get(physical);
+        if (cache != null) cache.endLease();
+
+        boolean reusable = !closed;
+        try {
+            if (reusable && !physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
             }
+            reusable = reusable && !physical.isClosed();
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (reusable) {
+            idle.offerFirst(physical);
+        } else {
+            discard(physical);
+        }
+        permits.release();
+    }
+
+    /**
+     * Closes a broken or surplus physical connection.
+     */
+    private void discard(Connection physical) {
+        discardedCount.incrementAndGet();
+        closeQuietly(physical);
+    }
+
+    /**
+     * Reports leases that have been held longer than the leak threshold (once per lease).
+     */
+    private void detectLeaks() {
+        long now = System.currentTimeMillis();
+        for (Lease lease : leased.values()) {
+            if (!lease.reported && now - lease.borrowedAt > LEAK_THRESHOLD_MS) {
+                lease.reported = true;
+                leakCount.incrementAndGet();
+                System.err.println("⚠️ Possible connection leak: borrowed by thread '" + lease.threadName
+                        + "' " + (now - lease.borrowedAt) / 1000 + "s ago.");
+            }
+        }
+    }
+
+    private void closeIdle() {
+        Connection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            closeQuietly(physical);
+        }
+    }
+
+    private void closeQuietly(Connection physical) {
+        StatementCache cache = statementCaches.remove(physical);
+        if (cache != null) cache.closeAll();
+        try {
+            physical.close();
         } catch (SQLException e) {
             System.err.println("❌ Error closing DB: " + e.getMessage());
         }
     }
 
     /**
-     * Retrieves the current database connection.
-     * 
-     * @return the current {@link Connection} object, or null if no connection is established.
+     * Book-keeping for a borrowed connection.
+     */
+    private static final class Lease {
+        private final String threadName;
+        private final long borrowedAt;
+        private volatile boolean reported;
+
+        private Lease(String threadName, long borrowedAt) {
+            this.threadName = threadName;
+            this.borrowedAt = borrowedAt;
+        }
+    }
+
+    /**
+     * Proxy handler for a borrowed connection. Closing the proxy returns the physical connection
+     * to the pool; any use after that fails instead of touching a connection someone else owns.
+     * {@code prepareStatement(sql)} and {@code prepareStatement(sql, autoGeneratedKeys)} go through
+     * the connection's {@link StatementCache}.
      */
-    public Connection getConnection() {
-        return this.conn;
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+        private volatile boolean returned;
+
+        private PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        release(physical);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled" + physical;
+                }
+                default -> {
+                    if (returned) throw new SQLException("Connection has already been returned to the pool.");
+                }
+            }
+
+            if ("prepareStatement".equals(method.getName())) {
+                PreparedStatement cached = prepareCached(proxy, args);
+                if (cached != null) return cached;
+            }
+
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * @return a cached statement, or null if this overload/connection is not cached.
+         */
+        private PreparedStatement prepareCached(Object proxy, Object[] args) throws SQLException {
+            StatementCache cache = statementCaches.get(physical);
+            if (cache == null) return null;
+            if (args.length == 1) {
+                return cache.prepare((String) args[0], -1, (Connection) proxy);
+            }
+            if (args.length == 2 && args[1] instanceof Integer keys) {
+                return cache.prepare((String) args[0], keys, (Connection) proxy);
+            }
+            return null;
+        }
     }
 }
@@ -10,12 +10,14 @@ import java.sql.Statement;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Handles all database-related operations and message dispatching for the Bpark server.
@@ -23,19 +25,73 @@ import java.util.TreeMap;
  */
 public class DBhandler {
 
-    /** Active SQL database connection for all queries. */
-    private Connection conn;
+    /** Connection pool; every request borrows its own connection and returns it when done. */
+    private final DBconnector db;
+
+    /** In-memory free-space allocator used by walk-in deposits; null to always probe the parking table. */
+    private final ParkingAllocator allocator;
+
+    /** In-memory per-date booking index used by RESERVE; null to always query the orders table. */
+    private final ReservationCalendar calendar;
+
+    /** In-memory copy of the lot served to CURRENT_PARKING; null to always query the parking table. */
+    private final LotSnapshot lot;
+
+    /** Due times of the open orders that wake the order monitor; null when the monitor only polls. */
+    private final DeadlineScheduler deadlines;
+
+    /** Current month's report counters, fed with every committed history event; null to skip. */
+    private final LiveReportAggregator reports;
+
+    /** Rows fetched per round trip when streaming report result sets. */
+    private static final int REPORT_FETCH_SIZE = 500;
+
+    /** Late orders updated per transaction by the order monitor sweeps. */
+    private static final int SWEEP_CHUNK_SIZE = 200;
+
+    /** Hours a deposited vehicle may stay before its order is late (an extension adds as many). */
+    private static final int PICKUP_HOURS = 4;
+
+    /** How many times a walk-in deposit transaction is attempted before giving up. */
+    private static final int MAX_DEPOSIT_ATTEMPTS = 3;
+
+    /** Walk-in deposit transactions rolled back and retried because of a lock or unique-key conflict. */
+    private final AtomicLong depositConflicts = new AtomicLong();
+
+    /** Allocator claims the parking table rejected because the space was no longer available. */
+    private final AtomicLong staleClaims = new AtomicLong();
 
     /** Sends structured notifications to Discord (late pickups, cancellations, recovery, etc.). */
     private DiscordNotifier discordNotifier = new DiscordNotifier(); // notifier for discord messages. msg types: LatePickup, CancelOrder, UserRecovery
 
     /**
-     * Constructs a DBhandler with an existing SQL connection.
+     * Constructs a DBhandler on top of a started connection pool.
+     *
+     * @param db A connected {@link DBconnector} pool.
+     */
+    public DBhandler(DBconnector db) {
+        this(db, null, null, null, null, null);
+    }
+
+    /**
+     * Constructs a DBhandler backed by the in-memory parking allocator, reservation calendar, lot snapshot,
+     * order deadlines and report counters.
      *
-     * @param con An active JDBC connection.
+     * @param db        A connected {@link DBconnector} pool.
+     * @param allocator The parking allocator; claims and releases are written through to the parking table.
+     * @param calendar  The reservation calendar kept in step with every order change.
+     * @param lot       The lot snapshot updated after every deposit, pickup and order status change.
+     * @param deadlines The order deadlines set on deposit, reservation, extension and move, and dropped on close.
+     * @param reports   The current month's report counters, fed with every history event and new subscriber.
      */
-    public DBhandler(Connection con) {
-        this.conn = con;
+    public DBhandler(DBconnector db, ParkingAllocator allocator, ReservationCalendar calendar, LotSnapshot lot,
+            DeadlineScheduler deadlines, LiveReportAggregator reports) {
+        this.db = db;
+        this.allocator = allocator;
+        this.calendar = calendar;
+        this.lot = lot;
+        this.deadlines = deadlines;
+        this.reports = reports;
     }
 
     /**
@@ -88,34 +144,40 @@ public class DBhandler {
      *          0 if any other error occurred.
      */
     public int createSubscriber(String name, String email, String password, String phone) {
-        try {
+        try (Connection conn = db.borrowConnection()) {
             // Check if email already exists
-            String emailCheckQuery = String.format(
-                "SELECT COUNT(*) FROM subscribers WHERE subscriber_email = '%s'", email
-            );
-            try (Statement stmt = conn.createStatement()) {
-                ResultSet rs = stmt.executeQuery(emailCheckQuery);
+            String emailCheckQuery = "SELECT COUNT(*) FROM subscribers WHERE subscriber_email = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(emailCheckQuery)) {
+                stmt.setString(1, email);
+                ResultSet rs = stmt.executeQuery();
                 if (rs.next() && rs.getInt(1) > 0) return -2; // Email exists
             }
 
             // Check if phone already exists
-            String phoneCheckQuery = String.format(
-                "SELECT COUNT(*) FROM subscribers WHERE subscriber_phone = '%s'", phone
-            );
-            try (Statement stmt = conn.createStatement()) {
-                ResultSet rs = stmt.executeQuery(phoneCheckQuery);
+            String phoneCheckQuery = "SELECT COUNT(*) FROM subscribers WHERE subscriber_phone = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(phoneCheckQuery)) {
+                stmt.setString(1, phone);
+                ResultSet rs = stmt.executeQuery();
                 if (rs.next() && rs.getInt(1) > 0) return -3; // Phone exists
             }
 
             // Insert new subscriber
-            String insertQuery = String.format("""
+            String insertQuery = """
                 INSERT INTO subscribers (subscriber_name, subscriber_email, subscriber_password, subscriber_phone, subscription_status)
-                VALUES ('%s', '%s', '%s', '%s', 'user')
-            """, name, email, password, phone);
+                VALUES (?, ?, ?, ?, 'user')
+            """;
 
-            try (Statement stmt = conn.createStatement()) {
-                int rowsInserted = stmt.executeUpdate(insertQuery);
-                return rowsInserted == 1 ? 1 : 0;
+            try (PreparedStatement stmt = conn.prepareStatement(insertQuery, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setString(1, name);
+                stmt.setString(2, email);
+                stmt.setString(3, password);
+                stmt.setString(4, phone);
+                int rowsInserted = stmt.executeUpdate();
+                if (rowsInserted != 1) return 0;
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    if (reports != null && keys.next()) reports.addUser(keys.getInt(1));
+                }
+                return 1;
             }
 
         } catch (SQLException e) {
@@ -148,7 +210,7 @@ public class DBhandler {
             ORDER BY p.parking_space
         """;
 
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = db.borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
             ResultSet rs = stmt.executeQuery();
             return formatResultSet(rs);
         } catch (SQLException e) {
@@ -157,18 +219,51 @@ public class DBhandler {
         }
     }
 
+    /**
+     * Same rows as {@link #getParkingTable()} plus the order number of the active order,
+     * used to load and reconcile the {@link LotSnapshot}.
+     *
+     * @return A list of maps representing rows of parking data, or null on error.
+     */
+    public List<Map<String, String>> getLotRows() {
+        String query = """
+            SELECT p.parking_space,
+                   p.status,
+                   p.confirmation_code,
+                   o.subscriber_id,
+                   o.order_number
+            FROM parking p
+            LEFT JOIN (
+                SELECT confirmation_code, subscriber_id, order_number
+                FROM orders
+                WHERE order_status = 'active'
+            ) o ON p.confirmation_code = o.confirmation_code
+            ORDER BY p.parking_space
+        """;
+
+        try (Connection conn = db.borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
+            ResultSet rs = stmt.executeQuery();
+            return formatResultSet(rs);
+        } catch (SQLException e) {
+            System.err.println("❌ Error reading lot snapshot rows: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Calculates the percentage of parking spaces currently in use (non-available).
      *
      * @return A string representing the usage percentage (rounded up), or "0" on error.
      */
     public String getParkingUsagePercent() {
-        try (Statement stmt = conn.createStatement()) {
-            ResultSet total = stmt.executeQuery("SELECT COUNT(*) FROM parking");
+        try (Connection conn = db.borrowConnection();
+             PreparedStatement totalStmt = conn.prepareStatement("SELECT COUNT(*) FROM parking");
+             PreparedStatement usedStmt = conn.prepareStatement("SELECT COUNT(*) FROM parking WHERE status != 'available'")) {
+            ResultSet total = totalStmt.executeQuery();
             int totalSpots = 0;
             if (total.next()) totalSpots = total.getInt(1);
 
-            ResultSet used = stmt.executeQuery("SELECT COUNT(*) FROM parking WHERE status != 'available'");
+            ResultSet used = usedStmt.executeQuery();
             int usedSpots = 0;
             if (used.next()) usedSpots = used.getInt(1);
 
@@ -182,6 +277,27 @@ public class DBhandler {
         }
     }
 
+    /**
+     * Reads the status of every parking space, used to load and reconcile the {@link ParkingAllocator}.
+     *
+     * @return A map of parking space number to status, or null on error.
+     */
+    public Map<Integer, String> getParkingStatuses() {
+        String query = "SELECT parking_space, status FROM parking";
+
+        try (Connection conn = db.borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
+            ResultSet rs = stmt.executeQuery();
+            Map<Integer, String> statuses = new TreeMap<>();
+            while (rs.next()) {
+                statuses.put(rs.getInt("parking_space"), rs.getString("status"));
+            }
+            return statuses;
+        } catch (SQLException e) {
+            System.err.println("❌ Error reading parking statuses: " + e.getMessage());
+            return null;
+        }
+    }
+
 
     
     
@@ -195,56 +311,242 @@ public class DBhandler {
      *
      * @param subscriberId The subscriber's ID.
      * @param orderNumber  Optional reservation order number; can be null for walk-ins.
-     * @return A confirmation code if deposit is successful, or null if validation fails or no space is available.
+     * @return A confirmation code if deposit is successful (the reservation's own code for a reserved
+     *         deposit), or null if validation fails or no space is available.
      * @throws SQLException If a database error occurs.
      */
     public String depositVehicle(String subscriberId, String orderNumber) throws SQLException {
-        if (userHasActiveDeposit(subscriberId)) return null;
-        int parkingSpace = -1;
-        String confirmationCode = String.valueOf(generateConfirmationCode());
+        try (Connection conn = db.borrowConnection()) {
+            return depositVehicle(conn, subscriberId, orderNumber);
+        }
+    }
+
+    private String depositVehicle(Connection conn, String subscriberId, String orderNumber) throws SQLException {
+        if (userHasActiveDeposit(conn, subscriberId)) return null;
 
         if (orderNumber != null && !orderNumber.isBlank() && !orderNumber.equals("")) {
             String query = """
-                SELECT parking_space, order_date, order_time
+                SELECT parking_space, order_date, order_time, confirmation_code, is_extended
                 FROM orders
-                WHERE order_number = %s AND subscriber_id = %s
-            """.formatted(orderNumber, subscriberId);
-
-            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
-                if (!rs.next()) return null;
-
-                parkingSpace = rs.getInt("parking_space");
-                LocalDate orderDate = rs.getDate("order_date").toLocalDate();
-                LocalTime orderTime = rs.getTime("order_time").toLocalTime();
-                LocalDateTime now = LocalDateTime.now();
+                WHERE order_number = ? AND subscriber_id = ? AND order_status = 'pending'
+                FOR UPDATE
+            """;
 
-                // Validate order date is today and within 15 min after the order time
-                LocalDateTime allowedStart = LocalDateTime.of(orderDate, orderTime);
-                LocalDateTime allowedEnd = allowedStart.plusMinutes(15);
+            int order;
+            try {
+                order = Integer.parseInt(orderNumber.trim());
+            } catch (NumberFormatException e) {
+                return null; // Not a valid order number
+            }
 
-                if (!now.toLocalDate().equals(orderDate) || now.isAfter(allowedEnd)) {
-                    return null; // Too late to fulfill this reservation
+            conn.setAutoCommit(false);
+            try {
+                int parkingSpace;
+                int confirmationCode;
+                boolean isExtended;
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setInt(1, order);
+                    stmt.setInt(2, Integer.parseInt(subscriberId));
+                    ResultSet rs = stmt.executeQuery();
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return null; // No such reservation, or it was already used or cancelled
+                    }
+
+                    parkingSpace = rs.getInt("parking_space");
+                    isExtended = rs.getBoolean("is_extended");
+                    // The reserved order keeps the code it was given; the space must point at it
+                    confirmationCode = rs.getInt("confirmation_code");
+                    LocalDate orderDate = rs.getDate("order_date").toLocalDate();
+                    LocalTime orderTime = rs.getTime("order_time").toLocalTime();
+                    LocalDateTime now = LocalDateTime.now();
+
+                    // Validate order date is today and within 15 min after the order time
+                    LocalDateTime allowedStart = LocalDateTime.of(orderDate, orderTime);
+                    LocalDateTime allowedEnd = allowedStart.plusMinutes(15);
+
+                    if (!now.toLocalDate().equals(orderDate) || now.isAfter(allowedEnd)) {
+                        conn.rollback();
+                        return null; // Too late to fulfill this reservation
+                    }
                 }
 
-                updateParkingLot(parkingSpace, Integer.parseInt(confirmationCode));
-                updateParkingHistory(subscriberId, Integer.parseInt(orderNumber), "deposited");
-                return confirmationCode;
+                // Computed once, so the row and the scheduler agree on when the order is late;
+                // a reservation extended before its deposit gets the extra hours now
+                int hours = isExtended ? 2 * PICKUP_HOURS : PICKUP_HOURS;
+                LocalDateTime dueAt = LocalDateTime.now().withNano(0).plusHours(hours);
+                updateParkingLot(conn, parkingSpace, confirmationCode);
+                activateReservation(conn, order, dueAt);
+                insertParkingHistory(conn, subscriberId, order, "deposited");
+                conn.commit();
+                if (allocator != null) allocator.take(parkingSpace);
+                if (lot != null) lot.occupy(parkingSpace, confirmationCode, order, subscriberId);
+                if (deadlines != null) deadlines.schedule(order, "active", dueAt);
+                if (reports != null) reports.record(LocalDate.now(), subscriberId, "deposited");
+                return String.valueOf(confirmationCode);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
-        } else {
-            // New deposit - no reservation
-            String findQuery = "SELECT parking_space FROM parking WHERE status = 'available' LIMIT 1";
-            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(findQuery)) {
-                if (!rs.next()) return null;
-                parkingSpace = rs.getInt("parking_space");
+        }
+
+        return depositWalkIn(conn, subscriberId);
+    }
+
+    /**
+     * Marks a reservation active once its vehicle is deposited.
+     *
+     * @param dueAt When the vehicle must be picked up.
+     */
+    private void activateReservation(Connection conn, int orderNumber, LocalDateTime dueAt) throws SQLException {
+        String query = """
+            UPDATE orders SET order_status = 'active', due_at = ?
+            WHERE order_number = ?
+        """;
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setObject(1, dueAt);
+            stmt.setInt(2, orderNumber);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Deposits a walk-in vehicle (no reservation) in one short transaction:
+     * claims a free space, inserts the order, occupies the space and logs the deposit.
+     * The space comes from the {@link ParkingAllocator} when one is loaded, otherwise from the
+     * parking table with {@code FOR UPDATE SKIP LOCKED}; either way concurrent gates get different
+     * spaces instead of colliding on the same one.
+     * A deadlock, lock timeout or duplicate confirmation code rolls back and retries
+     * with a fresh code.
+     *
+     * @param conn         A borrowed connection in autocommit mode.
+     * @param subscriberId The subscriber's ID.
+     * @return A confirmation code, or null if no space is available.
+     * @throws SQLException If the transaction fails after all attempts.
+     */
+    private String depositWalkIn(Connection conn, String subscriberId) throws SQLException {
+        // READ COMMITTED keeps the scan from leaving locks on rows that did not match.
+        int isolation = conn.getTransactionIsolation();
+        conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+
+        try {
+            int attempt = 1;
+            while (true) {
+                int confirmationCode = generateConfirmationCode();
+                boolean fromAllocator = allocator != null && allocator.isLoaded();
+                int parkingSpace = -1;
+                conn.setAutoCommit(false);
+                try {
+                    parkingSpace = fromAllocator ? allocator.claim() : claimAvailableSpace(conn);
+                    if (parkingSpace == -1) {
+                        conn.rollback();
+                        return null;
+                    }
+
+                    LocalDateTime depositedAt = LocalDateTime.now().withNano(0);
+                    int newOrderNumber = insertOrder(conn, subscriberId, parkingSpace, confirmationCode, depositedAt);
+                    if (fromAllocator) {
+                        if (!occupyIfAvailable(conn, parkingSpace, confirmationCode)) {
+                            // The table says the space is taken: leave it claimed and pick another one.
+                            conn.rollback();
+                            staleClaims.incrementAndGet();
+                            continue;
+                        }
+                    } else {
+                        updateParkingLot(conn, parkingSpace, confirmationCode);
+                    }
+                    insertParkingHistory(conn, subscriberId, newOrderNumber, "deposited");
+                    conn.commit();
+                    if (calendar != null) calendar.countWalkIn(LocalDate.now());
+                    if (lot != null) lot.occupy(parkingSpace, confirmationCode, newOrderNumber, subscriberId);
+                    if (deadlines != null) deadlines.schedule(newOrderNumber, "active", depositedAt.plusHours(PICKUP_HOURS));
+                    if (reports != null) reports.record(LocalDate.now(), subscriberId, "deposited");
+                    return String.valueOf(confirmationCode);
+
+                } catch (SQLException e) {
+                    conn.rollback();
+                    if (fromAllocator && parkingSpace != -1) allocator.release(parkingSpace);
+                    if (attempt++ >= MAX_DEPOSIT_ATTEMPTS || !isRetryableConflict(e)) throw e;
+                    depositConflicts.incrementAndGet();
+                } finally {
+                    conn.setAutoCommit(true);
+                }
             }
+        } finally {
+            conn.setTransactionIsolation(isolation);
+        }
+    }
 
-            int newOrderNumber = insertNewOrder(subscriberId, parkingSpace, Integer.parseInt(confirmationCode));
-            updateParkingLot(parkingSpace, Integer.parseInt(confirmationCode));
-            updateParkingHistory(subscriberId, newOrderNumber, "deposited");
-            return confirmationCode;
+    /**
+     * Locks the first available parking space that no other transaction has locked.
+     *
+     * @return The claimed parking space, or -1 if none is free.
+     */
+    private int claimAvailableSpace(Connection conn) throws SQLException {
+        String query = """
+            SELECT parking_space
+            FROM parking
+            WHERE status = 'available'
+            ORDER BY parking_space
+            LIMIT 1
+            FOR UPDATE SKIP LOCKED
+        """;
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt("parking_space") : -1;
+        }
+    }
+
+    /**
+     * Occupies a space claimed from the allocator, but only if the table still has it available.
+     *
+     * @return true if the space was occupied, false if the table already had it taken.
+     */
+    private boolean occupyIfAvailable(Connection conn, int space, int confirmationCode) throws SQLException {
+        String query = """
+            UPDATE parking SET status = 'occupied', confirmation_code = ?
+            WHERE parking_space = ? AND status = 'available'
+        """;
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, confirmationCode);
+            stmt.setInt(2, space);
+            return stmt.executeUpdate() == 1;
         }
     }
 
+    /**
+     * @return true for MySQL errors worth retrying: duplicate key (1062), lock wait timeout (1205) and deadlock (1213).
+     */
+    private static boolean isRetryableConflict(SQLException e) {
+        int code = e.getErrorCode();
+        return code == 1062 || code == 1205 || code == 1213 || "40001".equals(e.getSQLState());
+    }
+
+    /**
+     * Returns how many walk-in deposit transactions were rolled back and retried
+     * because of a lock or unique-key conflict since the server started.
+     *
+     * @return The conflict count.
+     */
+    public long getDepositConflicts() {
+        return depositConflicts.get();
+    }
+
+    /**
+     * Returns how many allocator claims the parking table rejected because the space
+     * was already taken (the allocator had drifted from the table).
+     *
+     * @return The stale claim count.
+     */
+    public long getStaleClaims() {
+        return staleClaims.get();
+    }
+
     /**
      * Checks if the user has a reservation later today (after current time).
      *
@@ -261,7 +563,7 @@ public class DBhandler {
               AND order_time > CURRENT_TIME
         """;
 
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = db.borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, Integer.parseInt(subscriberId));
             ResultSet rs = stmt.executeQuery();
             return rs.next();
@@ -284,7 +586,7 @@ public class DBhandler {
             LIMIT 1
         """;
 
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = db.borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, Integer.parseInt(subscriberId));
             ResultSet rs = stmt.executeQuery();
             return rs.next();
@@ -304,6 +606,15 @@ public class DBhandler {
      * @return true if the user has an active deposit, false otherwise.
      */
     public boolean userHasActiveDeposit(String subscriberId) {
+        try (Connection conn = db.borrowConnection()) {
+            return userHasActiveDeposit(conn, subscriberId);
+        } catch (SQLException e) {
+            System.err.println("❌ Error checking active deposit: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean userHasActiveDeposit(Connection conn, String subscriberId) {
     	    try {
     	        int id = Integer.parseInt(subscriberId);
 
@@ -443,34 +754,57 @@ public class DBhandler {
      *         -1 if the insertion fails or no ID is returned.
      */
     public int insertNewOrder(String subscriberId, int parkingSpace, int confirmationCode) {
+        try (Connection conn = db.borrowConnection()) {
+            return insertNewOrder(conn, subscriberId, parkingSpace, confirmationCode);
+        } catch (SQLException e) {
+            System.err.println("❌ Failed to insert new order: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private int insertNewOrder(Connection conn, String subscriberId, int parkingSpace, int confirmationCode) {
+        try {
+            return insertOrder(conn, subscriberId, parkingSpace, confirmationCode, LocalDateTime.now().withNano(0));
+        } catch (SQLException e) {
+            System.err.println("❌ Failed to insert new order: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Inserts an active order, due for pickup {@value #PICKUP_HOURS} hours after its deposit, and
+     * returns its order number. The times come from the server's clock, like the deadline the
+     * caller schedules.
+     * Unlike {@link #insertNewOrder}, failures are thrown so a surrounding transaction can roll back.
+     *
+     * @param depositedAt When the vehicle was deposited, in whole seconds.
+     */
+    private int insertOrder(Connection conn, String subscriberId, int parkingSpace, int confirmationCode,
+            LocalDateTime depositedAt) throws SQLException {
         String query = """
-            INSERT INTO orders (parking_space, order_date, order_time, confirmation_code, subscriber_id, order_status)
-            VALUES (?, CURRENT_DATE, CURRENT_TIME, ?, ?, 'active')
+            INSERT INTO orders (parking_space, order_date, order_time, confirmation_code, subscriber_id, order_status, due_at)
+            VALUES (?, ?, ?, ?, ?, 'active', ?)
         """;
 
         try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setInt(1, parkingSpace);
-            stmt.setInt(2, confirmationCode);
-            stmt.setInt(3, Integer.parseInt(subscriberId));
+            stmt.setDate(2, java.sql.Date.valueOf(depositedAt.toLocalDate()));
+            stmt.setTime(3, java.sql.Time.valueOf(depositedAt.toLocalTime()));
+            stmt.setInt(4, confirmationCode);
+            stmt.setInt(5, Integer.parseInt(subscriberId));
+            stmt.setObject(6, depositedAt.plusHours(PICKUP_HOURS));
             int affected = stmt.executeUpdate();
 
             if (affected == 0) {
-                System.err.println("❌ Insert failed: no rows affected.");
-                return -1;
+                throw new SQLException("Insert failed: no rows affected.");
             }
 
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     return generatedKeys.getInt(1); // Return generated order_number
-                } else {
-                    System.err.println("❌ Insert succeeded but no ID returned.");
-                    return -1;
                 }
+                throw new SQLException("Insert succeeded but no ID returned.");
             }
-
-        } catch (SQLException e) {
-            System.err.println("❌ Failed to insert new order: " + e.getMessage());
-            return -1;
         }
     }
 
@@ -498,11 +832,22 @@ public class DBhandler {
         String query = """
             SELECT order_number ,parking_space, order_status
             FROM orders 
-            WHERE confirmation_code = %s AND subscriber_id = %s
-            """.formatted(confirmationCode, subscriberId);
+            WHERE confirmation_code = ? AND subscriber_id = ?
+            """;
+
+        int code, subscriber;
+        try {
+            code = Integer.parseInt(confirmationCode);
+            subscriber = Integer.parseInt(subscriberId);
+        } catch (NumberFormatException e) {
+            return 404;
+        }
 
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
+        try (Connection conn = db.borrowConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, code);
+            stmt.setInt(2, subscriber);
+            ResultSet rs = stmt.executeQuery();
 
             if (!rs.next()) return 404;
 
@@ -513,9 +858,11 @@ public class DBhandler {
             if ("complete".equalsIgnoreCase(orderStatus)) return 403;
             if ("cancelled".equalsIgnoreCase(orderStatus)) return 402;
 
-            updateOrderStatus(orderNumber, "complete");
-            updateParkingLot(parkingSpace, null);
-            updateParkingHistory(subscriberId, orderNumber, "picked_up");
+            updateOrderStatus(conn, orderNumber, "complete");
+            updateParkingLot(conn, parkingSpace, null);
+            if (allocator != null) allocator.release(parkingSpace);
+            if (lot != null) lot.free(parkingSpace);
+            updateParkingHistory(conn, subscriberId, orderNumber, "picked_up");
             return 200;
         }
     }
@@ -538,40 +885,74 @@ public class DBhandler {
      *         </ul>
      */
     public int extendParking(String subscriberId, String confirmationCode) {
-        try {
+        try (Connection conn = db.borrowConnection()) {
             // Get the order and check eligibility
             String query = """
-                SELECT order_number, is_extended, parking_space, order_status
+                SELECT order_number, is_extended, parking_space, order_status, due_at
                 FROM orders
                 WHERE subscriber_id = ? AND confirmation_code = ?
+                FOR UPDATE
             """;
 
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, Integer.parseInt(subscriberId));
-                stmt.setInt(2, Integer.parseInt(confirmationCode));
-                ResultSet rs = stmt.executeQuery();
-
-                if (!rs.next()) return 404;
-
-                int orderNumber = rs.getInt("order_number");
-                boolean isExtended = rs.getBoolean("is_extended");
-                String orderStatus = rs.getString("order_status");
+            conn.setAutoCommit(false);
+            try {
+                int orderNumber;
+                String orderStatus;
+                LocalDateTime dueAt;
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setInt(1, Integer.parseInt(subscriberId));
+                    stmt.setInt(2, Integer.parseInt(confirmationCode));
+                    ResultSet rs = stmt.executeQuery();
+
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return 404;
+                    }
+
+                    orderNumber = rs.getInt("order_number");
+                    boolean isExtended = rs.getBoolean("is_extended");
+                    orderStatus = rs.getString("order_status");
+                    dueAt = dueAt(rs);
+
+                    int refused = "complete".equalsIgnoreCase(orderStatus) ? 407
+                            : isExtended ? 409
+                            : "late".equalsIgnoreCase(orderStatus) ? 403 : 0;
+                    if (refused != 0) {
+                        conn.rollback();
+                        return refused;
+                    }
+                }
 
-                if ("complete".equalsIgnoreCase(orderStatus)) return 407;
-                if (isExtended) return 409;
-                if ("late".equalsIgnoreCase(orderStatus)) return 403;
-                
-                // Update is_extended = true
-                String update = "UPDATE orders SET is_extended = true WHERE order_number = ?";
+                // A parked vehicle gets more hours now; a reservation gets them when it is deposited
+                LocalDateTime newDueAt = "active".equals(orderStatus) && dueAt != null
+                        ? dueAt.plusHours(PICKUP_HOURS) : dueAt;
+                String update = """
+                    UPDATE orders
+                    SET is_extended = true, due_at = ?
+                    WHERE order_number = ? AND order_status = ? AND is_extended = false
+                """;
                 try (PreparedStatement updateStmt = conn.prepareStatement(update)) {
-                    updateStmt.setInt(1, orderNumber);
-                    int rows = updateStmt.executeUpdate();
-                    if (rows != 1) return 500;
+                    updateStmt.setObject(1, newDueAt);
+                    updateStmt.setInt(2, orderNumber);
+                    updateStmt.setString(3, orderStatus);
+                    if (updateStmt.executeUpdate() != 1) {
+                        conn.rollback();
+                        return 409;
+                    }
                 }
+                insertParkingHistory(conn, subscriberId, orderNumber, "extended");
+                conn.commit();
 
-                updateParkingHistory(subscriberId, orderNumber, "extended");
-
+                if (deadlines != null && "active".equals(orderStatus) && newDueAt != null) {
+                    deadlines.schedule(orderNumber, orderStatus, newDueAt);
+                }
+                if (reports != null) reports.record(LocalDate.now(), subscriberId, "extended");
                 return 200;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
 
         } catch (SQLException e) {
@@ -601,65 +982,128 @@ public class DBhandler {
      *         </ul>
      */
     public int reserveParking(String subscriberId, LocalDate date, LocalTime time) {
-        try {
-            // 1. Check usage for the date
-            String countQuery = """
-                SELECT COUNT(*) FROM orders
-                WHERE order_date = '%s'
-            """.formatted(date);
-            String totalQuery = "SELECT COUNT(*) FROM parking";
-
-            int ordersThatDay = 0, totalSpots = 0;
-            try (Statement stmt = conn.createStatement()) {
-                ResultSet rs = stmt.executeQuery(countQuery);
-                if (rs.next()) ordersThatDay = rs.getInt(1);
-                rs = stmt.executeQuery(totalQuery);
-                if (rs.next()) totalSpots = rs.getInt(1);
-            }
-
-            if (ordersThatDay >= 0.4 * totalSpots) return 403; // capacity exceeded
-
-            // 2. Find available parking space (not booked for this time)
-            String availableQuery = """
-                SELECT p.parking_space
-                FROM parking p
-                WHERE NOT EXISTS (
-                    SELECT 1 FROM orders o
-                    WHERE o.parking_space = p.parking_space
-                    AND o.order_date = '%s'
-                    AND o.order_time = '%s'
-                )
-                LIMIT 1
-            """.formatted(date, time);
+        boolean fromCalendar = calendar != null && calendar.covers(date);
+        boolean confirmed = false;
+        int parkingSpace = -1;
 
-            int parkingSpace;
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(availableQuery)) {
-                if (!rs.next()) return 404; // no available spot
-                parkingSpace = rs.getInt("parking_space");
+        try (Connection conn = db.borrowConnection()) {
+            // 1. Check the 40% cap and find a space not booked at this time
+            if (fromCalendar) {
+                parkingSpace = calendar.hold(date, time);
+                if (parkingSpace == ReservationCalendar.OVER_CAPACITY) return 403; // capacity exceeded
+                if (parkingSpace == ReservationCalendar.NO_SPACE) return 404; // no available spot
+            } else {
+                parkingSpace = findReservableSpace(conn, date, time);
+                if (parkingSpace < 0) return -parkingSpace;
             }
 
-            // 3. Insert reservation
+            // 2. Insert reservation
             int confirmationCode = generateConfirmationCode();
+            LocalDateTime dueAt = LocalDateTime.of(date, time).plusMinutes(15);
             String insert = """
-                INSERT INTO orders (parking_space, order_date, order_time, confirmation_code, subscriber_id, order_status)
-                VALUES (%d, '%s', '%s', %d, %s, 'pending')
-            """.formatted(parkingSpace, date, time, confirmationCode, subscriberId);
-
-            try (Statement stmt = conn.createStatement()) {
-                stmt.executeUpdate(insert, Statement.RETURN_GENERATED_KEYS);
-                ResultSet keys = stmt.getGeneratedKeys();
-                if (keys.next()) {
-                    int orderNumber = keys.getInt(1);
-                    updateParkingHistory(subscriberId, orderNumber, "reserved");
+                INSERT INTO orders (parking_space, order_date, order_time, confirmation_code, subscriber_id, order_status, due_at)
+                VALUES (?, ?, ?, ?, ?, 'pending', ?)
+            """;
+
+            try (PreparedStatement stmt = conn.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, parkingSpace);
+                stmt.setDate(2, java.sql.Date.valueOf(date));
+                stmt.setTime(3, java.sql.Time.valueOf(time));
+                stmt.setInt(4, confirmationCode);
+                stmt.setInt(5, Integer.parseInt(subscriberId));
+                stmt.setObject(6, dueAt);
+                stmt.executeUpdate();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        int orderNumber = keys.getInt(1);
+                        if (fromCalendar) {
+                            calendar.confirm(orderNumber, date, time, parkingSpace);
+                            confirmed = true;
+                        }
+                        if (deadlines != null) deadlines.schedule(orderNumber, "pending", dueAt);
+                        updateParkingHistory(conn, subscriberId, orderNumber, "reserved");
+                    }
                 }
             }
 
             return confirmationCode;
 
-        } catch (SQLException e) {
+        } catch (SQLException | NumberFormatException e) {
             System.err.println("❌ Reserve error: " + e.getMessage());
             return 500;
+        } finally {
+            // A hold that never became an order would keep its slot counted
+            if (fromCalendar && parkingSpace > 0 && !confirmed) calendar.release(date, time, parkingSpace);
+        }
+    }
+
+    /**
+     * Database fallback for dates the {@link ReservationCalendar} does not cover:
+     * checks the 40% daily cap and finds a space with no order at the exact date and time.
+     * Cancelled orders are ignored, matching the calendar.
+     *
+     * @return The parking space, or -403 if the cap is reached, or -404 if every space is booked at that time.
+     */
+    private int findReservableSpace(Connection conn, LocalDate date, LocalTime time) throws SQLException {
+        String countQuery = """
+            SELECT COUNT(*) FROM orders
+            WHERE order_date = ? AND order_status <> 'cancelled'
+        """;
+        String totalQuery = "SELECT COUNT(*) FROM parking";
+
+        int ordersThatDay = 0, totalSpots = 0;
+        try (PreparedStatement countStmt = conn.prepareStatement(countQuery);
+             PreparedStatement totalStmt = conn.prepareStatement(totalQuery)) {
+            countStmt.setDate(1, java.sql.Date.valueOf(date));
+            ResultSet rs = countStmt.executeQuery();
+            if (rs.next()) ordersThatDay = rs.getInt(1);
+            rs = totalStmt.executeQuery();
+            if (rs.next()) totalSpots = rs.getInt(1);
+        }
+
+        if (ordersThatDay >= 0.4 * totalSpots) return -403; // capacity exceeded
+
+        String availableQuery = """
+            SELECT p.parking_space
+            FROM parking p
+            WHERE NOT EXISTS (
+                SELECT 1 FROM orders o
+                WHERE o.parking_space = p.parking_space
+                AND o.order_date = ?
+                AND o.order_time = ?
+                AND o.order_status <> 'cancelled'
+            )
+            ORDER BY p.parking_space
+            LIMIT 1
+        """;
+
+        try (PreparedStatement stmt = conn.prepareStatement(availableQuery)) {
+            stmt.setDate(1, java.sql.Date.valueOf(date));
+            stmt.setTime(2, java.sql.Time.valueOf(time));
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) return -404; // no available spot
+            return rs.getInt("parking_space");
+        }
+    }
+
+    /**
+     * Reads every non-cancelled order from today onwards, used to rebuild the {@link ReservationCalendar}.
+     *
+     * @return Rows with order_number, parking_space, order_date and order_time, or null on error.
+     */
+    public List<Map<String, String>> getUpcomingOrders() {
+        String query = """
+            SELECT order_number, parking_space, order_date, order_time
+            FROM orders
+            WHERE order_date >= CURRENT_DATE AND order_status <> 'cancelled'
+        """;
+
+        try (Connection conn = db.borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
+            ResultSet rs = stmt.executeQuery();
+            return formatResultSet(rs);
+        } catch (SQLException e) {
+            System.err.println("❌ Error reading upcoming orders: " + e.getMessage());
+            return null;
         }
     }
 
@@ -679,7 +1123,7 @@ public class DBhandler {
             LIMIT 1
         """;
 
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = db.borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, Integer.parseInt(subscriberId));
             stmt.setDate(2, java.sql.Date.valueOf(orderDate));
             ResultSet rs = stmt.executeQuery();
@@ -710,7 +1154,7 @@ public class DBhandler {
      *         </ul>
      */
     public int editSubscriber(String id, String email, String password, String phone) {
-        try {
+        try (Connection conn = db.borrowConnection()) {
             // Check for existing email (not self)
             String emailCheck = "SELECT subscriber_id FROM subscribers WHERE subscriber_email = ? AND subscriber_id <> ?";
             try (PreparedStatement checkStmt = conn.prepareStatement(emailCheck)) {
@@ -754,34 +1198,83 @@ public class DBhandler {
  // ========================================================= Get User History =========================================================
 
     /**
-     * Retrieves the parking history for a given subscriber.
-     * The result is ordered with the most recent entries first (by date and time).
+     * Retrieves one page of a subscriber's parking history, most recent entries first.
+     * Pages are keyset-paginated over (parking_date, parking_time, order_number, history_id),
+     * so each page is read straight off {@code idx_history_subscriber_date} no matter how deep it is.
      *
      * @param userId The subscriber ID.
+     * @param limit  Maximum number of rows to return.
+     * @param cursor {@link #historyCursor} of the last row of the previous page, or null for the first page.
      * @return A list of maps representing the user's parking events,
-     *         each row includes: parking number, date, time, and event type;
+     *         each row includes: history id, order number, parking number, date, time, and event type;
      *         or null if an error occurs.
+     * @throws IllegalArgumentException If the cursor is malformed.
      */
-    public List<Map<String, String>> getUserHistory(String userId) {
+    public List<Map<String, String>> getUserHistory(String userId, int limit, String cursor) {
+        String[] key = null;
+        if (cursor != null && !cursor.isBlank()) {
+            key = cursor.split("\\|");
+            if (key.length != 4) throw new IllegalArgumentException("Malformed history cursor: " + cursor);
+        }
+
         String query = """
-            SELECT parking_num, parking_date, parking_time, event_type
+            SELECT history_id, order_number, parking_num, parking_date, parking_time, event_type
             FROM parking_history
             WHERE subscriber_id = ?
-            ORDER BY parking_date DESC, parking_time DESC
+        """ + (key == null ? "" : """
+              AND parking_date <= ?
+              AND (parking_date < ?
+                   OR (parking_date = ? AND parking_time < ?)
+                   OR (parking_date = ? AND parking_time = ? AND order_number < ?)
+                   OR (parking_date = ? AND parking_time = ? AND order_number = ? AND history_id < ?))
+        """) + """
+            ORDER BY parking_date DESC, parking_time DESC, order_number DESC, history_id DESC
+            LIMIT ?
         """;
 
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setString(1, userId);
+        try (Connection conn = db.borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
+            int i = 1;
+            stmt.setInt(i++, Integer.parseInt(userId));
+            if (key != null) {
+                // Dates and times are bound as strings: stored times may exceed 24:00:00
+                String date = key[0], time = key[1];
+                int order = Integer.parseInt(key[2]);
+                long id = Long.parseLong(key[3]);
+                stmt.setString(i++, date);
+                stmt.setString(i++, date);
+                stmt.setString(i++, date);
+                stmt.setString(i++, time);
+                stmt.setString(i++, date);
+                stmt.setString(i++, time);
+                stmt.setInt(i++, order);
+                stmt.setString(i++, date);
+                stmt.setString(i++, time);
+                stmt.setInt(i++, order);
+                stmt.setLong(i++, id);
+            }
+            stmt.setInt(i, limit);
             ResultSet rs = stmt.executeQuery();
-            List<Map<String, String>> table = formatResultSet(rs);
-            return table;
+            return formatResultSet(rs);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed user id or history cursor.", e);
         } catch (SQLException e) {
             System.err.println("❌ Error retrieving user history: " + e.getMessage());
             return null;
         }
     }
 
-    // ========================================================= Recover User =========================================================
+    /**
+     * Builds the cursor that continues a history page after the given row.
+     *
+     * @param row A row returned by {@link #getUserHistory(String, int, String)}.
+     * @return An opaque "date|time|order_number|history_id" cursor.
+     */
+    public static String historyCursor(Map<String, String> row) {
+        return row.get("parking_date") + "|" + row.get("parking_time") + "|"
+                + row.get("order_number") + "|" + row.get("history_id");
+    }
+
+ // ========================================================= Recover User =========================================================
 
     /**
      * Attempts to recover user information and current active parking session (if any).
@@ -820,6 +1313,7 @@ public class DBhandler {
         """;
 
         try (
+            Connection conn = db.borrowConnection();
             PreparedStatement subscriberStmt = conn.prepareStatement(subscriberQuery);
             PreparedStatement parkingStmt = conn.prepareStatement(parkingQuery)
         ) {
@@ -878,82 +1372,181 @@ public class DBhandler {
     
     
     /**
-     * Retrieves a list of overdue active orders where the parking duration has exceeded the allowed time.
-     * The allowed time is 4 hours for regular orders and 8 hours for extended orders.
+     * Reads the due times of the open orders, to load the {@link DeadlineScheduler}.
      *
-     * @return A list of overdue order numbers.
+     * @return Rows with order_number, order_status and due_at of the active and pending orders, or null on error.
      */
-    public List<Integer> getLateActiveOrders() {
-        List<Integer> overdueOrderNumbers = new ArrayList<>();
-
+    public List<Map<String, String>> getOrderDeadlines() {
         String query = """
-            SELECT o.order_number, o.is_extended, ph.parking_date, ph.parking_time
-            FROM orders o
-            JOIN parking_history ph ON o.order_number = ph.order_number
-            WHERE o.order_status = 'active' AND ph.event_type = 'deposited'
-            ORDER BY ph.parking_date DESC, ph.parking_time DESC
+            SELECT order_number, order_status, due_at
+            FROM orders
+            WHERE order_status IN ('active', 'pending') AND due_at IS NOT NULL
         """;
 
-        try (PreparedStatement stmt = conn.prepareStatement(query);
+        List<Map<String, String>> rows = new ArrayList<>();
+        try (Connection conn = db.borrowConnection();
+             PreparedStatement stmt = conn.prepareStatement(query);
              ResultSet rs = stmt.executeQuery()) {
-            
             while (rs.next()) {
-                int orderNumber = rs.getInt("order_number");
-                boolean isExtended = rs.getBoolean("is_extended");
-                LocalDate date = rs.getDate("parking_date").toLocalDate();
-                LocalTime time = rs.getTime("parking_time").toLocalTime();
-                LocalDateTime depositTime = LocalDateTime.of(date, time);
-                LocalDateTime deadline = depositTime.plusHours(isExtended ? 8 : 4);
-                if (LocalDateTime.now().isAfter(deadline)) {
-                    overdueOrderNumbers.add(orderNumber);
-                }
+                Map<String, String> row = new HashMap<>();
+                row.put("order_number", String.valueOf(rs.getInt("order_number")));
+                row.put("order_status", rs.getString("order_status"));
+                row.put("due_at", dueAt(rs).toString());
+                rows.add(row);
             }
-
+            return rows;
         } catch (SQLException e) {
-            System.err.println("❌ Error checking overdue active orders: " + e.getMessage());
-        }
-
-        // Debug print
-        for (int orderNum : overdueOrderNumbers) {
-            System.out.println("Overdue Order Number: " + orderNum);
+            System.err.println("❌ Error reading order deadlines: " + e.getMessage());
+            return null;
         }
-        
-        return overdueOrderNumbers;
     }
 
     /**
-     * Handles overdue active orders by marking them as "late", logging the event in the parking history,
-     * and sending notifications to the subscribers.
+     * Reads {@code due_at} back as it was bound: through a Timestamp, which the driver converts
+     * between the JVM and server time zones in both directions.
      *
-     * @param overdueOrderNumbers A list of overdue order numbers to process.
+     * @return The due time, or null if the order has none.
      */
-    public void handleLateActiveOrders(List<Integer> overdueOrderNumbers) {
-        for (int orderNumber : overdueOrderNumbers) {
-            try {
-                // Get subscriber info
-                Map<String, String> subscriber = getSubscriberByOrderNumber(orderNumber);
-                if (subscriber == null) continue;
+    private static LocalDateTime dueAt(ResultSet rs) throws SQLException {
+        java.sql.Timestamp dueAt = rs.getTimestamp("due_at");
+        return dueAt == null ? null : dueAt.toLocalDateTime();
+    }
 
-                // Update notification status and send notification
-                if (updateLateNotification(orderNumber)) {
-                    sendLateNotification(subscriber);
-                } else {
-                    System.err.println("❌ Failed to mark order " + orderNumber + " as notified.");
-                    continue; // Skip this order if notification update failed
-                }
+    /**
+     * Marks every overdue active order as 'late': the vehicle was not picked up within 4 hours
+     * of the deposit (8 if extended), i.e. by its {@code due_at}. Logs a 'late' history row and
+     * notifies the subscriber.
+     *
+     * @return The number of orders marked late.
+     * @see #sweepLateOrders
+     */
+    public int sweepLateActiveOrders() {
+        String query = """
+            SELECT o.order_number, o.parking_space,
+                   s.subscriber_id, s.subscriber_name, s.subscriber_email, s.subscriber_phone
+            FROM orders o
+            JOIN subscribers s ON s.subscriber_id = o.subscriber_id
+            WHERE o.order_status = 'active' AND o.due_at < ?
+        """;
 
-                // Update order status to 'late'
-                updateOrderStatus(orderNumber, "late");
+        List<Map<String, String>> late = sweepLateOrders(query, "active", "late", "late");
+        for (Map<String, String> subscriber : late) sendLateNotification(subscriber);
+        return late.size();
+    }
 
-                // Log to parking history
-                updateParkingHistory(subscriber.get("subscriber_id"), orderNumber, "late");
+    /**
+     * Applies a late-order sweep.
+     * The late orders and their subscribers are read in one query, a range scan of the
+     * {@code (order_status, due_at)} index; then, {@value #SWEEP_CHUNK_SIZE} orders at a time,
+     * their status and notified flag are updated and their history rows inserted with batch
+     * statements in one transaction. An order whose status
+     * changed since it was read (e.g. picked up meanwhile) is left alone. The in-memory lot and
+     * calendar follow each chunk once it is committed.
+     *
+     * @param query      Selects order_number, parking_space and the subscriber_* columns of the orders
+     *                   due before its one parameter, the server's current time (the clock the
+     *                   deadlines are scheduled by).
+     * @param fromStatus The status the orders must still have.
+     * @param toStatus   Their new status.
+     * @param eventType  The history event to log.
+     * @return The orders updated, with their subscriber details, for the notifications.
+     */
+    private List<Map<String, String>> sweepLateOrders(String query, String fromStatus, String toStatus, String eventType) {
+        List<Map<String, String>> updated = new ArrayList<>();
+        try (Connection conn = db.borrowConnection()) {
+            List<Map<String, String>> late = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setObject(1, LocalDateTime.now());
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    Map<String, String> row = new HashMap<>();
+                    row.put("order_number", String.valueOf(rs.getInt("order_number")));
+                    row.put("parking_space", String.valueOf(rs.getInt("parking_space")));
+                    row.put("subscriber_id", String.valueOf(rs.getInt("subscriber_id")));
+                    row.put("subscriber_name", rs.getString("subscriber_name"));
+                    row.put("subscriber_email", rs.getString("subscriber_email"));
+                    row.put("subscriber_phone", rs.getString("subscriber_phone"));
+                    late.add(row);
+                }
+            }
 
-            } catch (Exception e) {
-                System.err.println("❌ Error handling late active orders: " + e.getMessage());
+            for (int from = 0; from < late.size(); from += SWEEP_CHUNK_SIZE) {
+                List<Map<String, String>> chunk = late.subList(from, Math.min(late.size(), from + SWEEP_CHUNK_SIZE));
+                List<Map<String, String>> done;
+                try {
+                    done = applyLateChunk(conn, chunk, fromStatus, toStatus, eventType);
+                } catch (SQLException e) {
+                    System.err.println("❌ Failed to mark " + chunk.size() + " " + fromStatus + " orders " + toStatus + ": " + e.getMessage());
+                    continue;
+                }
+                for (Map<String, String> row : done) {
+                    int orderNumber = Integer.parseInt(row.get("order_number"));
+                    if (lot != null) lot.orderStatusChanged(orderNumber, toStatus);
+                    if (calendar != null && "cancelled".equals(toStatus)) calendar.cancel(orderNumber);
+                    if (deadlines != null) deadlines.cancel(orderNumber);
+                    if (reports != null) reports.record(LocalDate.now(), row.get("subscriber_id"), eventType);
+                }
+                updated.addAll(done);
+            }
+            if (!late.isEmpty()) {
+                System.out.println("⏱ Marked " + updated.size() + "/" + late.size() + " " + fromStatus + " orders " + toStatus);
             }
+        } catch (SQLException e) {
+            System.err.println("❌ Error sweeping " + fromStatus + " orders: " + e.getMessage());
         }
+        return updated;
     }
 
+    /**
+     * Updates one chunk of late orders in a single transaction.
+     *
+     * @return The rows of the orders that still had {@code fromStatus} and were updated.
+     * @throws SQLException If a batch fails; the chunk is rolled back.
+     */
+    private List<Map<String, String>> applyLateChunk(Connection conn, List<Map<String, String>> chunk,
+            String fromStatus, String toStatus, String eventType) throws SQLException {
+        String update = "UPDATE orders SET order_status = ?, is_notified = true WHERE order_number = ? AND order_status = ?";
+        String insert = """
+            INSERT INTO parking_history (subscriber_id, parking_num, parking_date, parking_time, event_type, order_number)
+            VALUES (?, ?, ?, ?, ?, ?)
+        """;
+        java.sql.Date date = java.sql.Date.valueOf(LocalDate.now());
+        java.sql.Time time = java.sql.Time.valueOf(LocalTime.now());
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement updateStmt = conn.prepareStatement(update);
+             PreparedStatement insertStmt = conn.prepareStatement(insert)) {
+            for (Map<String, String> row : chunk) {
+                updateStmt.setString(1, toStatus);
+                updateStmt.setInt(2, Integer.parseInt(row.get("order_number")));
+                updateStmt.setString(3, fromStatus);
+                updateStmt.addBatch();
+            }
+            int[] counts = updateStmt.executeBatch();
+
+            List<Map<String, String>> updated = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) continue; // status changed meanwhile
+                Map<String, String> row = chunk.get(i);
+                insertStmt.setInt(1, Integer.parseInt(row.get("subscriber_id")));
+                insertStmt.setInt(2, Integer.parseInt(row.get("parking_space")));
+                insertStmt.setDate(3, date);
+                insertStmt.setTime(4, time);
+                insertStmt.setString(5, eventType);
+                insertStmt.setInt(6, Integer.parseInt(row.get("order_number")));
+                insertStmt.addBatch();
+                updated.add(row);
+            }
+            if (!updated.isEmpty()) insertStmt.executeBatch();
+            conn.commit();
+            return updated;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
     
     private void sendLateNotification(Map<String, String> subscriber) {
     	if (discordNotifier.isMonitoringEnabled()) {
@@ -984,72 +1577,25 @@ public class DBhandler {
     /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 													//handle late pending orders -- START//
     /**
-     * Retrieves a list of order numbers for all 'pending' orders
-     * that were scheduled for earlier than 15 minutes ago today.
+     * Cancels every 'pending' order whose reservation time passed more than 15 minutes ago
+     * without a deposit, i.e. by its {@code due_at}. Logs a 'cancelled' history row and notifies
+     * the subscriber.
      *
-     * @return A list of order numbers that are considered late.
+     * @return The number of orders cancelled.
+     * @see #sweepLateOrders
      */
-    public List<Integer> getLatePendingOrders() {
+    public int sweepLatePendingOrders() {
         String query = """
-            SELECT order_number
-            FROM orders
-            WHERE order_status = 'pending'
-              AND order_date = CURRENT_DATE
-              AND TIMESTAMP(order_date, order_time) < NOW() - INTERVAL 15 MINUTE
+            SELECT o.order_number, o.parking_space,
+                   s.subscriber_id, s.subscriber_name, s.subscriber_email, s.subscriber_phone
+            FROM orders o
+            JOIN subscribers s ON s.subscriber_id = o.subscriber_id
+            WHERE o.order_status = 'pending' AND o.due_at < ?
         """;
 
-        List<Integer> lateOrders = new ArrayList<>();
-
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-
-            while (rs.next()) {
-                lateOrders.add(rs.getInt("order_number"));
-            }
-
-        } catch (SQLException e) {
-            System.err.println("❌ Error in getLatePendingOrders: " + e.getMessage());
-        }
-
-        return lateOrders;
-    }
-
-    /**
-     * Processes all late 'pending' orders by:
-     * <ol>
-     *   <li>Fetching subscriber info per order</li>
-     *   <li>Updating the notification status</li>
-     *   <li>Sending a Discord cancellation message</li>
-     *   <li>Marking the order as 'cancelled'</li>
-     *   <li>Logging the cancellation in parking history</li>
-     * </ol>
-     *
-     * @param lateOrderNumbers A list of late 'pending' order numbers to cancel and notify.
-     */
-    public void handleLatePendingOrders(List<Integer> lateOrderNumbers) {
-        for (int orderNumber : lateOrderNumbers) {
-            try {
-                // Get subscriber info
-                Map<String, String> subscriber = getSubscriberByOrderNumber(orderNumber);
-                if (subscriber == null) continue;
-
-                if (updateLateNotification(orderNumber)) {
-                    sendCancelledNotification(subscriber);
-                } else {
-                    System.err.println("❌ Failed to mark order " + orderNumber + " as notified.");
-                    continue;
-                }
-
-                // Update order status to 'cancelled'
-                updateOrderStatus(orderNumber, "cancelled");
-
-                // Log to parking history
-                updateParkingHistory(subscriber.get("subscriber_id"), orderNumber, "cancelled");
-
-            } catch (Exception e) {
-                System.err.println("❌ Error handling late active orders: " + e.getMessage());
-            }
-        }
+        List<Map<String, String>> cancelled = sweepLateOrders(query, "pending", "cancelled", "cancelled");
+        for (Map<String, String> subscriber : cancelled) sendCancelledNotification(subscriber);
+        return cancelled.size();
     }
 
     /**
@@ -1094,8 +1640,8 @@ public class DBhandler {
      *
      * @param month The month for the report (e.g., "01" for January).
      * @param year  The year for the report (e.g., "2023").
-     * @return A list of maps, where each map represents a subscriber and their event counts.
-     *         Each map contains:
+     * @return A list of maps, where each map represents a subscriber and their event counts,
+     *         or null on error. Each map contains:
      *         <ul>
      *           <li>"user" - The subscriber ID</li>
      *           <li>"deposited" - Count of "deposited" events</li>
@@ -1108,51 +1654,54 @@ public class DBhandler {
      */
     public List<Map<String, String>> getMonthlyUsersReport(String month, String year) {
         List<Map<String, String>> result = new ArrayList<>();
+        // Counted in MySQL: one row per subscriber instead of one row per history event
         String query = """
-            SELECT s.subscriber_id, ph.event_type
+            SELECT s.subscriber_id,
+                   COALESCE(h.deposited, 0) AS deposited,
+                   COALESCE(h.picked_up, 0) AS picked_up,
+                   COALESCE(h.reserved, 0)  AS reserved,
+                   COALESCE(h.late, 0)      AS late,
+                   COALESCE(h.cancelled, 0) AS cancelled,
+                   COALESCE(h.extended, 0)  AS extended
             FROM subscribers s
-            LEFT JOIN parking_history ph
-                ON s.subscriber_id = ph.subscriber_id
-                AND MONTH(ph.parking_date) = ? AND YEAR(ph.parking_date) = ?
+            LEFT JOIN (
+                SELECT subscriber_id,
+                       SUM(event_type = 'deposited') AS deposited,
+                       SUM(event_type = 'picked_up') AS picked_up,
+                       SUM(event_type = 'reserved')  AS reserved,
+                       SUM(event_type = 'late')      AS late,
+                       SUM(event_type = 'cancelled') AS cancelled,
+                       SUM(event_type = 'extended')  AS extended
+                FROM parking_history
+                WHERE parking_date >= ? AND parking_date < ?
+                GROUP BY subscriber_id
+            ) h ON h.subscriber_id = s.subscriber_id
             WHERE s.subscription_status = 'user'
             ORDER BY s.subscriber_id ASC
         """;
 
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
-            ps.setString(1, month);
-            ps.setString(2, year);
+        try (Connection conn = db.borrowConnection(); PreparedStatement ps = conn.prepareStatement(query)) {
+            LocalDate from = monthStart(month, year);
+            ps.setDate(1, java.sql.Date.valueOf(from));
+            ps.setDate(2, java.sql.Date.valueOf(from.plusMonths(1)));
+            ps.setFetchSize(REPORT_FETCH_SIZE); // streamed in chunks (useCursorFetch)
 
             ResultSet rs = ps.executeQuery();
-
-            // TreeMap to keep keys sorted by subscriber_id
-            Map<String, Map<String, Integer>> summary = new TreeMap<>();
-
             while (rs.next()) {
-                String user = rs.getString("subscriber_id");
-                String event = rs.getString("event_type");
-
-                summary.putIfAbsent(user, new HashMap<>());
-                if (event != null) {
-                    Map<String, Integer> counts = summary.get(user);
-                    counts.put(event, counts.getOrDefault(event, 0) + 1);
-                }
-            }
-
-            for (Map.Entry<String, Map<String, Integer>> entry : summary.entrySet()) {
                 Map<String, String> row = new LinkedHashMap<>();
-                row.put("user", entry.getKey());
-                Map<String, Integer> events = entry.getValue();
-                row.put("deposited", String.valueOf(events.getOrDefault("deposited", 0)));
-                row.put("picked_up", String.valueOf(events.getOrDefault("picked_up", 0)));
-                row.put("reserved", String.valueOf(events.getOrDefault("reserved", 0)));
-                row.put("late", String.valueOf(events.getOrDefault("late", 0)));
-                row.put("cancelled", String.valueOf(events.getOrDefault("cancelled", 0)));
-                row.put("extended", String.valueOf(events.getOrDefault("extended", 0)));
+                row.put("user", rs.getString("subscriber_id"));
+                row.put("deposited", rs.getString("deposited"));
+                row.put("picked_up", rs.getString("picked_up"));
+                row.put("reserved", rs.getString("reserved"));
+                row.put("late", rs.getString("late"));
+                row.put("cancelled", rs.getString("cancelled"));
+                row.put("extended", rs.getString("extended"));
                 result.add(row);
             }
 
         } catch (Exception e) {
             System.err.println("❌ Error in getMonthlyUsersReport: " + e.getMessage());
+            return null;
         }
 
         return result;
@@ -1166,7 +1715,7 @@ public class DBhandler {
      *
      * @param month The month for the report (e.g., "01" for January).
      * @param year  The year for the report (e.g., "2023").
-     * @return A list of maps, where each map represents a day and its parking capacity:
+     * @return A list of maps, where each map represents a day and its parking capacity, or null on error:
      *         <ul>
      *           <li>"day" - The date of the parking event</li>
      *           <li>"capacity" - The number of vehicles deposited on that day</li>
@@ -1177,12 +1726,13 @@ public class DBhandler {
         String query = """
             SELECT parking_date
             FROM parking_history
-            WHERE event_type = 'deposited' AND MONTH(parking_date) = ? AND YEAR(parking_date) = ?
+            WHERE event_type = 'deposited' AND parking_date >= ? AND parking_date < ?
         """;
 
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
-            ps.setString(1, month);
-            ps.setString(2, year);
+        try (Connection conn = db.borrowConnection(); PreparedStatement ps = conn.prepareStatement(query)) {
+            LocalDate from = monthStart(month, year);
+            ps.setDate(1, java.sql.Date.valueOf(from));
+            ps.setDate(2, java.sql.Date.valueOf(from.plusMonths(1)));
 
             ResultSet rs = ps.executeQuery();
             Map<String, Integer> dailyCount = new TreeMap<>();
@@ -1201,11 +1751,170 @@ public class DBhandler {
 
         } catch (Exception e) {
             System.err.println("❌ Error in getMonthlyParkingReport: " + e.getMessage());
+            return null;
         }
 
         return result;
     }
 
+    /**
+     * Returns the time of the last history event of every month that has history,
+     * so a report backfill can tell which monthly reports are out of date.
+     *
+     * @return The last event per month, oldest month first, or null on error.
+     */
+    public Map<YearMonth, LocalDateTime> getLastHistoryByMonth() {
+        String query = """
+            SELECT YEAR(parking_date) AS y, MONTH(parking_date) AS m,
+                   MAX(TIMESTAMP(parking_date, parking_time)) AS last_event
+            FROM parking_history
+            GROUP BY y, m
+        """;
+
+        try (Connection conn = db.borrowConnection(); PreparedStatement ps = conn.prepareStatement(query)) {
+            ResultSet rs = ps.executeQuery();
+            Map<YearMonth, LocalDateTime> last = new TreeMap<>();
+            while (rs.next()) {
+                last.put(YearMonth.of(rs.getInt("y"), rs.getInt("m")), rs.getObject("last_event", LocalDateTime.class));
+            }
+            return last;
+        } catch (SQLException e) {
+            System.err.println("❌ Error reading history months: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // ========================================================= History partitions =========================================================
+
+    /**
+     * Lists the partitions of {@code parking_history} in order (see migration V3).
+     *
+     * @return Partition names (e.g. "p202507", ..., "pfuture"); an empty list if the table is not partitioned;
+     *         null on error.
+     */
+    public List<String> getHistoryPartitions() {
+        try (Connection conn = db.borrowConnection()) {
+            return partitionNames(conn, "parking_history");
+        } catch (SQLException e) {
+            System.err.println("❌ Error reading parking_history partitions: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return The partitions of a table in order; empty if it is not partitioned or does not exist.
+     */
+    private List<String> partitionNames(Connection conn, String table) throws SQLException {
+        String query = """
+            SELECT PARTITION_NAME
+            FROM information_schema.PARTITIONS
+            WHERE TABLE_SCHEMA = DATABASE()
+              AND TABLE_NAME = ?
+              AND PARTITION_NAME IS NOT NULL
+            ORDER BY PARTITION_ORDINAL_POSITION
+        """;
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, table);
+            ResultSet rs = stmt.executeQuery();
+            List<String> partitions = new ArrayList<>();
+            while (rs.next()) partitions.add(rs.getString(1));
+            return partitions;
+        }
+    }
+
+    /**
+     * Splits the {@code pfuture} partition so each given month gets its own partition.
+     * Months must be later than every existing monthly partition.
+     *
+     * @param months First days of the months to add, in ascending order.
+     * @return true if the partitions were created.
+     */
+    public boolean addHistoryPartitions(List<LocalDate> months) {
+        if (months.isEmpty()) return true;
+
+        StringBuilder ddl = new StringBuilder("ALTER TABLE parking_history REORGANIZE PARTITION pfuture INTO (");
+        for (LocalDate month : months) {
+            ddl.append("PARTITION ").append(partitionName(month))
+               .append(" VALUES LESS THAN ('").append(month.plusMonths(1)).append("'), ");
+        }
+        ddl.append("PARTITION pfuture VALUES LESS THAN (MAXVALUE))");
+
+        // DDL is built from dates only and runs rarely, so it is not worth a cached prepared statement
+        try (Connection conn = db.borrowConnection(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(ddl.toString());
+            return true;
+        } catch (SQLException e) {
+            System.err.println("❌ Failed to add parking_history partitions: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Detaches a monthly partition into its own table {@code parking_history_<partition>} and drops it
+     * from {@code parking_history}. The archived rows stay queryable in the archive table.
+     * DDL cannot be rolled back, so every step checks whether an earlier attempt that failed halfway
+     * already did it, and archiving the same partition again picks up from there.
+     *
+     * @param partition A monthly partition name such as "p202401".
+     * @return true if the partition was archived.
+     */
+    public boolean archiveHistoryPartition(String partition) {
+        if (!partition.matches("p\\d{6}")) return false;
+        String archive = "parking_history_" + partition;
+
+        try (Connection conn = db.borrowConnection(); Statement stmt = conn.createStatement()) {
+            if (!partitionNames(conn, "parking_history").contains(partition)) return false;
+
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + archive + " LIKE parking_history");
+            if (!partitionNames(conn, archive).isEmpty()) {
+                stmt.executeUpdate("ALTER TABLE " + archive + " REMOVE PARTITIONING");
+            }
+            // A filled archive table means the exchange already happened
+            if (!hasRows(stmt, archive)) {
+                stmt.executeUpdate("ALTER TABLE parking_history EXCHANGE PARTITION " + partition + " WITH TABLE " + archive);
+            }
+            if (hasRows(stmt, "parking_history PARTITION (" + partition + ")")) {
+                System.err.println("❌ Partition " + partition + " got new rows after it was exchanged into " + archive + "; not dropped.");
+                return false;
+            }
+            stmt.executeUpdate("ALTER TABLE parking_history DROP PARTITION " + partition);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("❌ Failed to archive partition " + partition + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @param from A table, or a partition of one, built from a validated partition name.
+     * @return true if it holds at least one row.
+     */
+    private static boolean hasRows(Statement stmt, String from) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM " + from + " LIMIT 1")) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * @return The monthly partition name for a month, e.g. "p202507".
+     */
+    public static String partitionName(LocalDate month) {
+        return String.format("p%04d%02d", month.getYear(), month.getMonthValue());
+    }
+
+    /**
+     * Returns the first day of a report month. Month filters are written as the half-open range
+     * {@code [monthStart, monthStart + 1 month)} so MySQL can use the parking_date indexes.
+     *
+     * @param month The month (e.g., "01" for January).
+     * @param year  The year (e.g., "2023").
+     * @return The first day of that month.
+     */
+    private static LocalDate monthStart(String month, String year) {
+        return LocalDate.of(Integer.parseInt(year.trim()), Integer.parseInt(month.trim()), 1);
+    }
+
 // ========================================================= Reports Methods -- END =======================================================
 
 
@@ -1224,7 +1933,7 @@ public class DBhandler {
         String query = "SELECT subscriber_id, subscriber_name, subscriber_email,subscriber_phone,subscriber_password, subscription_status "+
                        "FROM subscribers "+
                        "WHERE subscriber_email=? AND subscriber_password=?";
-        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+        try (Connection conn = db.borrowConnection(); PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, email);
             pstmt.setString(2, pass);
             ResultSet rs = pstmt.executeQuery();
@@ -1250,34 +1959,35 @@ public class DBhandler {
 
     /**
      * Retrieves all rows from a given database table.
+     * The rows are read into memory so the pooled connection can be returned right away.
      *
      * @param tb The table name.
-     * @return A {@link ResultSet} containing the table's data, or null if table does not exist or error occurs.
+     * @return A list of maps with the table's data, or null if table does not exist or error occurs.
      */
-    public ResultSet getTable(String tb) {
-        ResultSet rs = null;
+    public List<Map<String, String>> getTable(String tb) {
+        // Table names cannot be bound as parameters; tb is checked against the schema first.
         String query = "SELECT * FROM " + tb;
 
-        try {
-            if (verifyTable(tb)) {
-                Statement stmt = conn.createStatement();
-                rs = stmt.executeQuery(query);
+        try (Connection conn = db.borrowConnection()) {
+            if (!verifyTable(conn, tb)) return null;
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
+                return formatResultSet(rs);
             }
         } catch (SQLException e) {
             System.err.println("❌ Table error: " + e.getMessage());
             return null;
         }
-        return rs;
     }
 
     /**
      * Checks whether a given table exists in the database.
      *
+     * @param conn      The connection to read metadata from.
      * @param tableName The name of the table to check.
      * @return true if the table exists, false otherwise.
      * @throws SQLException If metadata cannot be retrieved.
      */
-    private boolean verifyTable(String tableName) throws SQLException {
+    private boolean verifyTable(Connection conn, String tableName) throws SQLException {
         DatabaseMetaData meta = conn.getMetaData();
         ResultSet rs = meta.getTables(null, null, tableName, new String[]{"TABLE"});
         return rs.next();
@@ -1309,7 +2019,7 @@ public class DBhandler {
     }
 
     /**
-     * Logs a parking-related event to the {@code parking_history} table.
+     * Logs a parking-related event to the {@code parking_history} table and counts it in the live reports.
      * Supports different event types (deposited, picked_up, reserved, extended, cancelled, late).
      *
      * @param subscriberId Subscriber's ID.
@@ -1317,43 +2027,57 @@ public class DBhandler {
      * @param eventType    Type of the event (e.g., "deposited", "cancelled", etc.).
      */
     public void updateParkingHistory(String subscriberId, int orderNumber, String eventType) {
-        LocalDate date = LocalDate.now();
-        LocalTime time = LocalTime.now();
+        try (Connection conn = db.borrowConnection()) {
+            updateParkingHistory(conn, subscriberId, orderNumber, eventType);
+        } catch (SQLException e) {
+            System.err.println("❌ Failed to insert into parking_history: " + e.getMessage());
+        }
+    }
 
+    private void updateParkingHistory(Connection conn, String subscriberId, int orderNumber, String eventType) {
         try {
-            // Get parking space from order
-            String query = "SELECT parking_space FROM orders WHERE order_number = ?";
-            int parkingSpace;
+            insertParkingHistory(conn, subscriberId, orderNumber, eventType);
+            if (reports != null) reports.record(LocalDate.now(), subscriberId, eventType);
+        } catch (SQLException e) {
+            System.err.println("❌ Failed to insert into parking_history: " + e.getMessage());
+        }
+    }
 
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, orderNumber);
-                ResultSet rs = stmt.executeQuery();
+    /**
+     * Logs a history event, throwing on failure so a surrounding transaction can roll back.
+     */
+    private void insertParkingHistory(Connection conn, String subscriberId, int orderNumber, String eventType) throws SQLException {
+        LocalDate date = LocalDate.now();
+        LocalTime time = LocalTime.now();
 
-                if (!rs.next()) {
-                    System.err.println("❌ Order not found for history update.");
-                    return;
-                }
-                parkingSpace = rs.getInt("parking_space");
-            }
+        // Get parking space from order
+        String query = "SELECT parking_space FROM orders WHERE order_number = ?";
+        int parkingSpace;
 
-            // Log to history
-            String insertQuery = """
-                INSERT INTO parking_history (subscriber_id, parking_num, parking_date, parking_time, event_type, order_number)
-                VALUES (?, ?, ?, ?, ?, ?)
-            """;
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, orderNumber);
+            ResultSet rs = stmt.executeQuery();
 
-            try (PreparedStatement stmt = conn.prepareStatement(insertQuery)) {
-                stmt.setInt(1, Integer.parseInt(subscriberId));
-                stmt.setInt(2, parkingSpace);
-                stmt.setDate(3, java.sql.Date.valueOf(date));
-                stmt.setTime(4, java.sql.Time.valueOf(time));
-                stmt.setString(5, eventType);
-                stmt.setInt(6, orderNumber);
-                stmt.executeUpdate();
+            if (!rs.next()) {
+                throw new SQLException("Order not found for history update.");
             }
+            parkingSpace = rs.getInt("parking_space");
+        }
 
-        } catch (SQLException e) {
-            System.err.println("❌ Failed to insert into parking_history: " + e.getMessage());
+        // Log to history
+        String insertQuery = """
+            INSERT INTO parking_history (subscriber_id, parking_num, parking_date, parking_time, event_type, order_number)
+            VALUES (?, ?, ?, ?, ?, ?)
+        """;
+
+        try (PreparedStatement stmt = conn.prepareStatement(insertQuery)) {
+            stmt.setInt(1, Integer.parseInt(subscriberId));
+            stmt.setInt(2, parkingSpace);
+            stmt.setDate(3, java.sql.Date.valueOf(date));
+            stmt.setTime(4, java.sql.Time.valueOf(time));
+            stmt.setString(5, eventType);
+            stmt.setInt(6, orderNumber);
+            stmt.executeUpdate();
         }
     }
 
@@ -1367,19 +2091,35 @@ public class DBhandler {
      * @throws SQLException If the update query fails.
      */
     public void updateParkingLot(int space, Integer confirmationCode) throws SQLException {
-        String query;
+        try (Connection conn = db.borrowConnection()) {
+            updateParkingLot(conn, space, confirmationCode);
+        }
+        if (allocator != null) {
+            if (confirmationCode == null) allocator.release(space);
+            else allocator.take(space);
+        }
+        if (lot != null) {
+            if (confirmationCode == null) lot.free(space);
+            else lot.occupy(space, confirmationCode, null, null);
+        }
+    }
 
+    private void updateParkingLot(Connection conn, int space, Integer confirmationCode) throws SQLException {
         if (confirmationCode == null) {
             // Pickup: free the space
-            query = "UPDATE parking SET status = 'available', confirmation_code = NULL WHERE parking_space = " + space;
+            String query = "UPDATE parking SET status = 'available', confirmation_code = NULL WHERE parking_space = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, space);
+                stmt.executeUpdate();
+            }
         } else {
             // Deposit: occupy the space
-            query = "UPDATE parking SET status = 'occupied', confirmation_code = " + confirmationCode +
-                    " WHERE parking_space = " + space;
-        }
-
-        try (Statement stmt = conn.createStatement()) {
-            stmt.executeUpdate(query);
+            String query = "UPDATE parking SET status = 'occupied', confirmation_code = ? WHERE parking_space = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, confirmationCode);
+                stmt.setInt(2, space);
+                stmt.executeUpdate();
+            }
         }
     }
 
@@ -1389,7 +2129,7 @@ public class DBhandler {
      * @param orderNumber The order number.
      * @param newStatus   The new status string to assign.
      */
-    private void updateOrderStatus(int orderNumber, String newStatus) {
+    private void updateOrderStatus(Connection conn, int orderNumber, String newStatus) {
         /*
             Status       | Meaning
             -------------|------------------------------------------------------
@@ -1405,30 +2145,13 @@ public class DBhandler {
             stmt.setString(1, newStatus);
             stmt.setInt(2, orderNumber);
             stmt.executeUpdate();
+            if (lot != null) lot.orderStatusChanged(orderNumber, newStatus);
+            if (deadlines != null && !"active".equals(newStatus) && !"pending".equals(newStatus)) deadlines.cancel(orderNumber);
         } catch (SQLException e) {
             System.err.println("❌ Failed to update order status: " + e.getMessage());
         }
     }
 
-    /**
-     * Marks the given order as 'notified' to avoid duplicate notifications.
-     *
-     * @param orderNumber The order number to update.
-     * @return true if update was successful; false otherwise.
-     */
-    private boolean updateLateNotification(int orderNumber) {
-        String query = "UPDATE orders SET is_notified = true WHERE order_number = ?";
-
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setInt(1, orderNumber);
-            stmt.executeUpdate();
-            return true;
-        } catch (SQLException e) {
-            System.err.println("❌ Failed to update order status: " + e.getMessage());
-        }
-        return false;
-    }
-
     /**
      * Returns the status string of a given order.
      *
@@ -1438,7 +2161,7 @@ public class DBhandler {
     public String getOrderStatus(int orderNumber) {
         String query = "SELECT order_status FROM orders WHERE order_number = ?";
 
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = db.borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, orderNumber);
             ResultSet rs = stmt.executeQuery();
 
@@ -1460,7 +2183,8 @@ public class DBhandler {
      */
     public String getTotalUsers() {
         String query = "SELECT COUNT(*) AS total FROM subscribers";
-        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
+        try (Connection conn = db.borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
+            ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 return String.valueOf(rs.getInt("total"));
             }
@@ -1486,6 +2210,15 @@ public class DBhandler {
      * @return A map with subscriber details (id, name, email, phone, order number), or null on error.
      */
     public Map<String, String> getSubscriberByOrderNumber(int orderNumber) {
+        try (Connection conn = db.borrowConnection()) {
+            return getSubscriberByOrderNumber(conn, orderNumber);
+        } catch (SQLException e) {
+            System.err.println("❌ Failed to get subscriber by order: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Map<String, String> getSubscriberByOrderNumber(Connection conn, int orderNumber) {
         String query = """
             SELECT o.order_number, s.subscriber_id, s.subscriber_name, s.subscriber_email, s.subscriber_phone
             FROM orders o
@@ -1545,19 +2278,53 @@ public class DBhandler {
             return 400; // New date is in the past
         }
 
-        try {
-            boolean validOrder = verifyOrder(orderNumber);
-            boolean validParking = isValidParking(newParkingSpace);
-            boolean availableParking = isAvailableParkingAtDate(newParkingSpace, newDate);
+        try (Connection conn = db.borrowConnection()) {
+            boolean validOrder = verifyOrder(conn, orderNumber);
+            boolean validParking = isValidParking(conn, newParkingSpace);
+            boolean availableParking = isAvailableParkingAtDate(conn, newParkingSpace, newDate);
 
             if (validOrder && validParking && availableParking) {
-                String query = "UPDATE orders SET order_date = ?, parking_space = ? WHERE order_number = ?";
-                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                    pstmt.setDate(1, java.sql.Date.valueOf(newDate));
-                    pstmt.setInt(2, newParkingSpace);
-                    pstmt.setInt(3, orderNumber);
-                    int rows = pstmt.executeUpdate();
+                conn.setAutoCommit(false);
+                try {
+                    String status;
+                    LocalDateTime dueAt = null;
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "SELECT order_status, order_time FROM orders WHERE order_number = ? FOR UPDATE")) {
+                        stmt.setInt(1, orderNumber);
+                        ResultSet rs = stmt.executeQuery();
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return 404;
+                        }
+                        status = rs.getString("order_status");
+                        // A pending order is now due 15 minutes after its time on the new date
+                        if ("pending".equals(status)) {
+                            dueAt = LocalDateTime.of(newDate, rs.getTime("order_time").toLocalTime()).plusMinutes(15);
+                        }
+                    }
+
+                    String query = """
+                        UPDATE orders
+                        SET order_date = ?, parking_space = ?, due_at = COALESCE(?, due_at)
+                        WHERE order_number = ? AND order_status = ?
+                    """;
+                    try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                        pstmt.setDate(1, java.sql.Date.valueOf(newDate));
+                        pstmt.setInt(2, newParkingSpace);
+                        pstmt.setObject(3, dueAt);
+                        pstmt.setInt(4, orderNumber);
+                        pstmt.setString(5, status);
+                        pstmt.executeUpdate();
+                    }
+                    conn.commit();
+                    if (calendar != null) calendar.move(orderNumber, newDate, newParkingSpace);
+                    if (deadlines != null && dueAt != null) deadlines.schedule(orderNumber, status, dueAt);
                     return 200; // Update successful
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
                 }
             } else {
                 if (!validOrder) {
@@ -1585,7 +2352,7 @@ public class DBhandler {
      * @return true if the order exists, false otherwise.
      * @throws SQLException If a database error occurs.
      */
-    private boolean verifyOrder(int orderNum) throws SQLException {
+    private boolean verifyOrder(Connection conn, int orderNum) throws SQLException {
         String query = "SELECT order_number FROM orders WHERE order_number = ?";
         try (PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, orderNum);
@@ -1602,7 +2369,7 @@ public class DBhandler {
      * @return true if the parking space is available, false otherwise.
      * @throws SQLException If a database error occurs.
      */
-    private boolean isAvailableParkingAtDate(int parkingSpace, LocalDate date) throws SQLException {
+    private boolean isAvailableParkingAtDate(Connection conn, int parkingSpace, LocalDate date) throws SQLException {
         String query = "SELECT 1 FROM orders WHERE parking_space = ? AND order_date = ?";
         try (PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, parkingSpace);
@@ -1619,7 +2386,7 @@ public class DBhandler {
      * @return true if the parking space exists, false otherwise.
      * @throws SQLException If a database error occurs.
      */
-    private boolean isValidParking(int parkingSpace) throws SQLException {
+    private boolean isValidParking(Connection conn, int parkingSpace) throws SQLException {
         String query = "SELECT parking_space FROM parking WHERE parking_space = ?";
         try (PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, parkingSpace);
@@ -0,0 +1,163 @@
+package server_core;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The due times of the open orders, so the order monitor acts when an order runs out instead of
+ * scanning the orders table every minute.
+ *
+ * <p>{@link DBhandler} schedules an order when it is deposited, reserved, extended or moved, and
+ * cancels it when it is picked up or swept. Deadlines wait in a {@link DelayQueue}; a map holds the
+ * current deadline of each order, so rescheduling or cancelling just replaces the map entry and the
+ * old deadline is skipped when it comes due.</p>
+ *
+ * <p>The orders table stays authoritative: a deadline only tells the monitor when to run a sweep,
+ * and the sweep selects the orders that are really late. Deadlines fire one second after the
+ * order's {@code due_at}, so the database already sees it as passed.</p>
+ */
+public class DeadlineScheduler {
+
+    /** What the monitor does when a deadline passes. */
+    public enum Kind {
+        /** An active order was not picked up in time: mark it late. */
+        LATE,
+        /** A pending order was not deposited in time: cancel it. */
+        CANCEL
+    }
+
+    private static final long MARGIN_MS = 1_000;
+
+    private final DelayQueue<Deadline> queue = new DelayQueue<>();
+    private final Map<Integer, Deadline> current = new ConcurrentHashMap<>();
+
+    /**
+     * Sets the deadline of an order, replacing the one it had.
+     *
+     * @param orderNumber The order.
+     * @param status      Its status; only 'active' and 'pending' orders have a deadline.
+     * @param dueAt       Its {@code due_at}; null cancels the deadline.
+     */
+    public void schedule(int orderNumber, String status, LocalDateTime dueAt) {
+        Deadline deadline = deadline(orderNumber, status, dueAt);
+        if (deadline == null) {
+            cancel(orderNumber);
+            return;
+        }
+        current.put(orderNumber, deadline);
+        queue.add(deadline);
+    }
+
+    private static Deadline deadline(int orderNumber, String status, LocalDateTime dueAt) {
+        Kind kind = "active".equals(status) ? Kind.LATE : "pending".equals(status) ? Kind.CANCEL : null;
+        if (kind == null || dueAt == null) return null;
+        long dueMillis = dueAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + MARGIN_MS;
+        return new Deadline(orderNumber, kind, dueMillis, System.nanoTime());
+    }
+
+    /**
+     * Drops the deadline of an order that is no longer open.
+     *
+     * @param orderNumber The order.
+     */
+    public void cancel(int orderNumber) {
+        current.remove(orderNumber);
+    }
+
+    /**
+     * Loads the deadlines read from the orders table, at startup and on every reconciliation.
+     * Orders scheduled after the read started keep their newer deadline; any other deadline not
+     * in the rows belongs to an order that closed and is dropped.
+     *
+     * @param rows        Rows with order_number, order_status and due_at of the open orders.
+     * @param readStarted {@link System#nanoTime()} when the read started.
+     * @return The number of deadlines changed.
+     */
+    public int load(List<Map<String, String>> rows, long readStarted) {
+        int changed = 0;
+        Set<Integer> open = new HashSet<>();
+        for (Map<String, String> row : rows) {
+            int orderNumber = Integer.parseInt(row.get("order_number"));
+            open.add(orderNumber);
+            Deadline existing = current.get(orderNumber);
+            if (existing != null && existing.scheduledAt - readStarted > 0) continue;
+            String due = row.get("due_at");
+            Deadline loaded = deadline(orderNumber, row.get("order_status"),
+                    due == null ? null : LocalDateTime.parse(due.replace(' ', 'T')));
+            if (loaded == null) {
+                if (existing != null && current.remove(orderNumber, existing)) changed++;
+            } else if (existing == null || existing.kind != loaded.kind || existing.dueMillis != loaded.dueMillis) {
+                boolean swapped = existing == null
+                        ? current.putIfAbsent(orderNumber, loaded) == null
+                        : current.replace(orderNumber, existing, loaded);
+                if (swapped) { // else scheduled meanwhile
+                    queue.add(loaded);
+                    changed++;
+                }
+            }
+        }
+        for (Deadline d : current.values()) {
+            if (!open.contains(d.orderNumber) && d.scheduledAt - readStarted < 0 && current.remove(d.orderNumber, d)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Waits until a deadline passes, then takes every deadline that has passed by then.
+     *
+     * @param maxWaitMs Longest time to wait.
+     * @return The kinds of the deadlines that passed; empty if none did in time.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public Set<Kind> awaitDue(long maxWaitMs) throws InterruptedException {
+        Set<Kind> due = EnumSet.noneOf(Kind.class);
+        Deadline d = queue.poll(maxWaitMs, TimeUnit.MILLISECONDS);
+        while (d != null) {
+            if (current.remove(d.orderNumber, d)) due.add(d.kind); // else replaced or cancelled
+            d = queue.poll();
+        }
+        return due;
+    }
+
+    /**
+     * @return The number of open orders with a deadline.
+     */
+    public int size() {
+        return current.size();
+    }
+
+    private static final class Deadline implements Delayed {
+        final int orderNumber;
+        final Kind kind;
+        final long dueMillis;
+        final long scheduledAt;
+
+        Deadline(int orderNumber, Kind kind, long dueMillis, long scheduledAt) {
+            this.orderNumber = orderNumber;
+            this.kind = kind;
+            this.dueMillis = dueMillis;
+            this.scheduledAt = scheduledAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueMillis, ((Deadline) other).dueMillis);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package server_core;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The current month's USERS and PARKING reports, counted in memory as history events are logged.
+ *
+ * <p>{@link DBhandler} records every parking_history row it commits, so the counters always match
+ * {@link DBhandler#getMonthlyUsersReport} and {@link DBhandler#getMonthlyParkingReport} without
+ * querying the history again. They are loaded from those two queries when the server starts, and
+ * {@link MonthlyReportsThread} writes them to the report CSVs whenever they changed.</p>
+ *
+ * <p>When the month turns, the finished month is kept for one last write and the counters start
+ * again from zero for the same subscribers.</p>
+ */
+public class LiveReportAggregator {
+
+    /** The USERS report columns after "user", in order. */
+    private static final String[] EVENTS = { "deposited", "picked_up", "reserved", "late", "cancelled", "extended" };
+
+    /**
+     * Both reports of one month, as written to the CSVs.
+     *
+     * @param month   The report month.
+     * @param users   USERS rows: user and a count per event type.
+     * @param parking PARKING rows: day and the vehicles deposited that day.
+     */
+    public record Snapshot(YearMonth month, List<Map<String, String>> users, List<Map<String, String>> parking) {}
+
+    private YearMonth month;
+    private final Map<Integer, long[]> users = new TreeMap<>();
+    private final Map<LocalDate, Integer> deposits = new TreeMap<>();
+    private boolean loaded;
+    private boolean dirty;
+    private Snapshot finished;
+
+    /**
+     * Replaces the counters with the reports read from the database.
+     *
+     * @param month   The month the reports are for.
+     * @param users   Rows of {@link DBhandler#getMonthlyUsersReport}.
+     * @param parking Rows of {@link DBhandler#getMonthlyParkingReport}.
+     */
+    public synchronized void load(YearMonth month, List<Map<String, String>> users, List<Map<String, String>> parking) {
+        this.month = month;
+        this.users.clear();
+        this.deposits.clear();
+        for (Map<String, String> row : users) {
+            long[] counts = new long[EVENTS.length];
+            for (int i = 0; i < EVENTS.length; i++) counts[i] = Long.parseLong(row.get(EVENTS[i]));
+            this.users.put(Integer.parseInt(row.get("user")), counts);
+        }
+        for (Map<String, String> row : parking) {
+            deposits.put(LocalDate.parse(row.get("day")), Integer.parseInt(row.get("capacity")));
+        }
+        loaded = true;
+        dirty = true;
+        finished = null;
+    }
+
+    /**
+     * Counts a history event that was committed.
+     * Events of subscribers the USERS report does not list (staff) only count as deposits.
+     *
+     * @param date         The event date.
+     * @param subscriberId The subscriber.
+     * @param eventType    deposited, picked_up, reserved, late, cancelled or extended.
+     */
+    public synchronized void record(LocalDate date, String subscriberId, String eventType) {
+        if (!loaded) return;
+        YearMonth eventMonth = YearMonth.from(date);
+        if (eventMonth.isAfter(month)) rollTo(eventMonth);
+        else if (eventMonth.isBefore(month)) return;
+
+        if ("deposited".equals(eventType)) deposits.merge(date, 1, Integer::sum);
+        long[] counts = users.get(Integer.parseInt(subscriberId));
+        if (counts != null) {
+            for (int i = 0; i < EVENTS.length; i++) {
+                if (EVENTS[i].equals(eventType)) counts[i]++;
+            }
+        }
+        dirty = true;
+    }
+
+    /**
+     * Adds a new subscriber to the USERS report, with no events yet.
+     *
+     * @param subscriberId The subscriber.
+     */
+    public synchronized void addUser(int subscriberId) {
+        if (!loaded) return;
+        users.putIfAbsent(subscriberId, new long[EVENTS.length]);
+        dirty = true;
+    }
+
+    /**
+     * Starts the month of the given day if it is a later one, so its reports exist from its first day.
+     *
+     * @param today The current date.
+     */
+    public synchronized void roll(LocalDate today) {
+        if (loaded && YearMonth.from(today).isAfter(month)) rollTo(YearMonth.from(today));
+    }
+
+    private void rollTo(YearMonth next) {
+        finished = snapshot();
+        month = next;
+        for (long[] counts : users.values()) Arrays.fill(counts, 0);
+        deposits.clear();
+        dirty = true;
+    }
+
+    /**
+     * Takes the reports that changed since the last call: the finished month if it was not
+     * written yet, then the current month if any event was recorded.
+     *
+     * @return The reports to write, oldest first; empty if nothing changed.
+     */
+    public synchronized List<Snapshot> drain() {
+        List<Snapshot> changed = new ArrayList<>(2);
+        if (finished != null) changed.add(finished);
+        if (loaded && dirty) changed.add(snapshot());
+        finished = null;
+        dirty = false;
+        return changed;
+    }
+
+    /**
+     * @return The current month's reports, or null before they are loaded.
+     */
+    public synchronized Snapshot current() {
+        return loaded ? snapshot() : null;
+    }
+
+    /**
+     * @return true once the counters were loaded from the database.
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @param month A REPORT month: 1-12, 01-12 or an English month name.
+     * @param year  A REPORT year.
+     * @return true if the counters hold that month.
+     */
+    public synchronized boolean covers(String month, String year) {
+        if (!loaded) return false;
+        try {
+            int m = month.matches("\\d{1,2}") ? Integer.parseInt(month) : Month.valueOf(month.toUpperCase()).getValue();
+            return this.month.equals(YearMonth.of(Integer.parseInt(year), m));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private Snapshot snapshot() {
+        List<Map<String, String>> userRows = new ArrayList<>(users.size());
+        for (Map.Entry<Integer, long[]> e : users.entrySet()) {
+            Map<String, String> row = new LinkedHashMap<>();
+            row.put("user", String.valueOf(e.getKey()));
+            for (int i = 0; i < EVENTS.length; i++) row.put(EVENTS[i], String.valueOf(e.getValue()[i]));
+            userRows.add(row);
+        }
+        List<Map<String, String>> parkingRows = new ArrayList<>(deposits.size());
+        for (Map.Entry<LocalDate, Integer> e : deposits.entrySet()) {
+            Map<String, String> row = new LinkedHashMap<>();
+            row.put("day", e.getKey().toString());
+            row.put("capacity", String.valueOf(e.getValue()));
+            parkingRows.add(row);
+        }
+        return new Snapshot(month, userRows, parkingRows);
+    }
+}
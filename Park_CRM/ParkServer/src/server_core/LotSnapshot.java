@@ -0,0 +1,251 @@
+package server_core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory copy of the lot as shown by CURRENT_PARKING: every parking space with its status,
+ * confirmation code and the subscriber of its active order, plus a running count of spaces in use.
+ *
+ * <p>It is loaded from the parking table at startup and updated by DBhandler right after each
+ * deposit, pickup and order status change is written, so the manager screens no longer query MySQL
+ * on every refresh. {@link #reconcile(List)} periodically compares it with the tables and fixes
+ * any row that drifted.</p>
+ *
+ * <p>A {@link Listener} is told about every space whose shown row changes, so subscribed manager
+ * consoles can be sent the change instead of pulling the whole table again. Every change and
+ * reload bumps a version number, which lets a console tell a change its table already shows
+ * from a newer one.</p>
+ */
+public class LotSnapshot {
+
+    /**
+     * Told about changes to the snapshot. Called while the snapshot is locked, so it must be quick
+     * and must not call back into the snapshot.
+     */
+    public interface Listener {
+
+        /**
+         * @param space   The parking space whose row changed.
+         * @param row     Its new row, with the columns of {@link LotSnapshot#table()}.
+         * @param version The snapshot version after the change.
+         */
+        void spaceChanged(int space, Map<String, String> row, long version);
+
+        /**
+         * The whole snapshot was (re)loaded.
+         *
+         * @param version The snapshot version after the reload.
+         */
+        void reloaded(long version);
+    }
+
+    /**
+     * The lot as one consistent read.
+     *
+     * @param table   Rows of {@link LotSnapshot#table()}.
+     * @param percent {@link LotSnapshot#usagePercent()}.
+     * @param version The version the rows are at.
+     */
+    public record View(List<Map<String, String>> table, String percent, long version) {}
+
+    /** One parking space as shown to the manager. */
+    private record Space(String status, String confirmationCode, String subscriberId, Integer orderNumber) {
+
+        boolean inUse() {
+            return !"available".equals(status);
+        }
+
+        /** Compares what CURRENT_PARKING shows, ignoring the order number. */
+        boolean sameAs(Space other) {
+            return status.equals(other.status)
+                    && Objects.equals(confirmationCode, other.confirmationCode)
+                    && Objects.equals(subscriberId, other.subscriberId);
+        }
+    }
+
+    private final Map<Integer, Space> spaces = new TreeMap<>();
+    private final Map<Integer, Integer> spaceByOrder = new HashMap<>();  // active order number -> space
+    private int inUse;
+    private long version;
+    private boolean loaded;
+    private Listener listener;
+
+    /** Spaces that disagreed with the tables on the last reconcile pass. */
+    private Set<Integer> suspects = new HashSet<>();
+
+    /**
+     * (Re)loads the snapshot.
+     *
+     * @param rows Rows of {@link DBhandler#getLotRows()}: parking_space, status, confirmation_code,
+     *             subscriber_id and order_number (the last two null when no order is active).
+     */
+    public synchronized void load(List<Map<String, String>> rows) {
+        spaces.clear();
+        spaceByOrder.clear();
+        inUse = 0;
+        for (Map<String, String> row : rows) {
+            spaces.put(Integer.parseInt(row.get("parking_space")), toSpace(row));
+        }
+        for (Map.Entry<Integer, Space> e : spaces.entrySet()) index(e.getKey(), e.getValue());
+        suspects = new HashSet<>();
+        loaded = true;
+        version++;
+        System.out.println("✔️ Lot snapshot loaded: " + inUse + "/" + spaces.size() + " spaces in use.");
+        if (listener != null) listener.reloaded(version);
+    }
+
+    /**
+     * @param listener Told about every change from now on; null to stop.
+     */
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return true once {@link #load(List)} has run.
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Records a vehicle parked in a space.
+     *
+     * @param space            The parking space number.
+     * @param confirmationCode The code written to the parking table.
+     * @param orderNumber      The order behind the deposit, or null if unknown.
+     * @param subscriberId     The subscriber of the active order, or null if the order is not active.
+     */
+    public synchronized void occupy(int space, int confirmationCode, Integer orderNumber, String subscriberId) {
+        if (!loaded) return;
+        put(space, new Space("occupied", String.valueOf(confirmationCode), subscriberId, orderNumber));
+    }
+
+    /**
+     * Records a space freed by a pickup.
+     *
+     * @param space The parking space number.
+     */
+    public synchronized void free(int space) {
+        if (!loaded) return;
+        put(space, new Space("available", null, null, null));
+    }
+
+    /**
+     * Follows an order status change. Once an order is no longer active its subscriber
+     * is not shown next to the space any more.
+     *
+     * @param orderNumber The order whose status changed.
+     * @param newStatus   Its new status.
+     */
+    public synchronized void orderStatusChanged(int orderNumber, String newStatus) {
+        if (!loaded || "active".equals(newStatus)) return;
+        Integer space = spaceByOrder.get(orderNumber);
+        if (space == null) return;
+        Space current = spaces.get(space);
+        put(space, new Space(current.status(), current.confirmationCode(), null, null));
+    }
+
+    /**
+     * @return The lot in space order, with the same columns as {@link DBhandler#getParkingTable()}.
+     */
+    public synchronized List<Map<String, String>> table() {
+        List<Map<String, String>> table = new ArrayList<>(spaces.size());
+        for (Map.Entry<Integer, Space> e : spaces.entrySet()) table.add(row(e.getKey(), e.getValue()));
+        return table;
+    }
+
+    /**
+     * @return The table, usage percent and version, read together.
+     */
+    public synchronized View view() {
+        return new View(table(), usagePercent(), version);
+    }
+
+    /**
+     * @return The percentage of spaces in use (rounded up), as {@link DBhandler#getParkingUsagePercent()} returns it.
+     */
+    public synchronized String usagePercent() {
+        if (spaces.isEmpty()) return "0";
+        return String.valueOf((int) Math.ceil(100.0 * inUse / spaces.size()));
+    }
+
+    /**
+     * Compares the snapshot against a fresh read of the tables.
+     * A space is only corrected when it disagreed on two passes in a row, so changes that are
+     * committed but not yet applied here are not undone. If spaces were added or removed the
+     * snapshot is reloaded.
+     *
+     * @param rows Rows of {@link DBhandler#getLotRows()}.
+     * @return The number of spaces corrected.
+     */
+    public synchronized int reconcile(List<Map<String, String>> rows) {
+        Map<Integer, Space> fresh = new TreeMap<>();
+        for (Map<String, String> row : rows) fresh.put(Integer.parseInt(row.get("parking_space")), toSpace(row));
+
+        if (!loaded || !fresh.keySet().equals(spaces.keySet())) {
+            load(rows);
+            return fresh.size();
+        }
+
+        Set<Integer> disagreeing = new HashSet<>();
+        int fixed = 0;
+        for (Map.Entry<Integer, Space> e : fresh.entrySet()) {
+            if (e.getValue().sameAs(spaces.get(e.getKey()))) continue;
+
+            if (suspects.contains(e.getKey())) {
+                put(e.getKey(), e.getValue());
+                fixed++;
+            } else {
+                disagreeing.add(e.getKey());
+            }
+        }
+        suspects = disagreeing;
+        return fixed;
+    }
+
+    /**
+     * Replaces a space, keeping the in-use counter and the order index in step,
+     * and tells the listener if the shown row changed.
+     */
+    private void put(int space, Space next) {
+        Space previous = spaces.put(space, next);
+        if (previous != null) {
+            if (previous.inUse()) inUse--;
+            if (previous.orderNumber() != null) spaceByOrder.remove(previous.orderNumber(), space);
+        }
+        index(space, next);
+        if (previous == null || !previous.sameAs(next)) {
+            version++;
+            if (listener != null) listener.spaceChanged(space, row(space, next), version);
+        }
+    }
+
+    private void index(int space, Space s) {
+        if (s.inUse()) inUse++;
+        if (s.orderNumber() != null) spaceByOrder.put(s.orderNumber(), space);
+    }
+
+    private static Map<String, String> row(int space, Space s) {
+        Map<String, String> row = new LinkedHashMap<>();
+        row.put("parking_space", String.valueOf(space));
+        row.put("status", s.status());
+        row.put("confirmation_code", s.confirmationCode());
+        row.put("subscriber_id", s.subscriberId());
+        return row;
+    }
+
+    private static Space toSpace(Map<String, String> row) {
+        String order = row.get("order_number");
+        return new Space(row.get("status"), row.get("confirmation_code"), row.get("subscriber_id"),
+                order == null ? null : Integer.valueOf(order));
+    }
+}
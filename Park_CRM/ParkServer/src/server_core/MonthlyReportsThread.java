@@ -7,14 +7,21 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * A background thread that runs continuously to generate and save monthly report CSVs.
- * It checks once per day (at midnight) whether reports for the current month exist.
- * If missing, it queries the database and saves new "USERS" and "PARKING" reports via {@link ReportsCSV}.
+ * A background thread that runs continuously to save the monthly report CSVs.
+ * The current month's "USERS" and "PARKING" reports are kept by a {@link LiveReportAggregator};
+ * the thread writes them via {@link ReportsCSV} whenever they changed, so the files are never
+ * more than one flush interval behind. If the aggregator could not be loaded it falls back to
+ * querying the database once per day (at midnight) for missing reports.
  */
 public class MonthlyReportsThread extends Thread {
 
+    /** Default time between writes of the current month's reports. */
+    public static final long DEFAULT_FLUSH_MS = 60_000;
+
     private final DBhandler dbHandler;
     private final ReportsCSV reportsCSV;
+    private final LiveReportAggregator reports;
+    private final long flushMs;
     private volatile boolean running = true;
 
     /** Keeps track of the last month for which reports were saved (formatted as "YYYY-MM"). */
@@ -25,15 +32,19 @@ public class MonthlyReportsThread extends Thread {
      *
      * @param dbHandler   The database handler used to retrieve monthly report data.
      * @param reportsCSV  The CSV handler used to save report files.
+     * @param reports     The live counters of the current month.
+     * @param flushMs     Time between writes of the current month's reports.
      */
-    public MonthlyReportsThread(DBhandler dbHandler, ReportsCSV reportsCSV) {
+    public MonthlyReportsThread(DBhandler dbHandler, ReportsCSV reportsCSV, LiveReportAggregator reports, long flushMs) {
         this.dbHandler = dbHandler;
         this.reportsCSV = reportsCSV;
+        this.reports = reports;
+        this.flushMs = flushMs;
     }
 
     /**
      * The main loop of the thread. Runs indefinitely while {@code running} is true.
-     * Once per day, it checks if the current month's reports exist; if not, it generates them.
+     * Every flush interval, and at midnight, it writes the reports that changed.
      */
     @Override
     public void run() {
@@ -46,6 +57,13 @@ public class MonthlyReportsThread extends Thread {
         System.out.println("📅 MonthlyReportsThread started.");
         while (running) {
             try {
+                if (reports.isLoaded()) {
+                    reports.roll(LocalDate.now());
+                    flushLiveReports();
+                    Thread.sleep(Math.min(flushMs, getMillisToNextMidnight() + 1_000));
+                    continue;
+                }
+
                 String currentMonthKey = getCurrentMonthKey();
                 String[] parts = currentMonthKey.split("-");
                 String year = parts[0];
@@ -82,6 +100,29 @@ public class MonthlyReportsThread extends Thread {
         this.interrupt();
     }
 
+    /**
+     * Writes the reports the aggregator changed since the last flush, and the current month's
+     * reports if their files are missing.
+     */
+    private void flushLiveReports() {
+        for (LiveReportAggregator.Snapshot snapshot : reports.drain()) {
+            save(snapshot);
+        }
+        String[] parts = getCurrentMonthKey().split("-");
+        if (!reportsCSV.fileExists("USERS", parts[0], parts[1]) || !reportsCSV.fileExists("PARKING", parts[0], parts[1])) {
+            LiveReportAggregator.Snapshot current = reports.current();
+            if (current != null) save(current);
+        }
+    }
+
+    private void save(LiveReportAggregator.Snapshot snapshot) {
+        String year = String.format("%04d", snapshot.month().getYear());
+        String month = String.format("%02d", snapshot.month().getMonthValue());
+        ReportsCSV.saveToCSV("USERS", year, month, snapshot.users());
+        ReportsCSV.saveToCSV("PARKING", year, month, snapshot.parking());
+        lastSavedMonth = year + "-" + month;
+    }
+
     /**
      * Calls the database handler to retrieve monthly data and saves it to CSV using the reports handler.
      *
@@ -92,8 +133,8 @@ public class MonthlyReportsThread extends Thread {
         List<Map<String, String>> usersReport = dbHandler.getMonthlyUsersReport(month, year);
         List<Map<String, String>> parkingReport = dbHandler.getMonthlyParkingReport(month, year);
 
-        reportsCSV.saveToCSV("USERS", year, month, usersReport);
-        reportsCSV.saveToCSV("PARKING", year, month, parkingReport);
+        ReportsCSV.saveToCSV("USERS", year, month, usersReport);
+        ReportsCSV.saveToCSV("PARKING", year, month, parkingReport);
     }
 
     /**
@@ -0,0 +1,530 @@
+package server_core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A non-blocking alternative to OCSF's thread-per-connection {@code AbstractServer}.
+ * A few selector threads serve every connection; an idle client costs a socket and a small
+ * {@link ClientChannel}, not a thread with its stack and object streams.
+ *
+ * <p>The wire format is the one OCSF clients already speak, so they connect unchanged: after the
+ * Java serialization stream header, each message is a serialized {@code byte[]}, i.e. a
+ * length-prefixed frame ({@code TC_ARRAY}, the {@code byte[]} class descriptor, a 4-byte length and
+ * the payload). OCSF clients {@code reset()} after every message, so frames never refer back to
+ * earlier ones. JSON strings from older clients ({@code TC_STRING}) are accepted too; anything
+ * else closes the connection.</p>
+ *
+ * <p>Messages are handed to {@link ClientHandler#handleMessageFromClient} on one dispatch thread,
+ * one at a time, as OCSF does, so the selector threads keep reading and writing while a
+ * command waits for the database. Sends are queued and written by the selector thread.</p>
+ */
+public class NioServer {
+
+    /** Default number of selector threads. */
+    public static final int DEFAULT_SELECTORS = 1;
+
+    /** Largest message accepted from a client. */
+    private static final int MAX_MESSAGE_BYTES = 16 * 1024 * 1024;
+
+    /** A client with more than this waiting to be written is not reading and is dropped. */
+    private static final long MAX_QUEUED_BYTES = 64L * 1024 * 1024;
+
+    /** Pending connections the OS queues for accept. */
+    private static final int BACKLOG = 512;
+
+    // Java serialization stream constants (java.io.ObjectStreamConstants)
+    private static final short STREAM_MAGIC = (short) 0xACED;
+    private static final short STREAM_VERSION = 5;
+    private static final byte TC_NULL = 0x70;
+    private static final byte TC_REFERENCE = 0x71;
+    private static final byte TC_CLASSDESC = 0x72;
+    private static final byte TC_STRING = 0x74;
+    private static final byte TC_ARRAY = 0x75;
+    private static final byte TC_ENDBLOCKDATA = 0x78;
+    private static final byte TC_RESET = 0x79;
+
+    /** The stream header and, separately, TC_ARRAY + byte[] class descriptor as ObjectOutputStream writes them. */
+    private static final byte[] STREAM_HEADER;
+    private static final byte[] BYTE_ARRAY_PREFIX;
+
+    static {
+        byte[] empty = serialize(new byte[0]);
+        STREAM_HEADER = Arrays.copyOf(empty, 4);
+        BYTE_ARRAY_PREFIX = Arrays.copyOfRange(empty, 4, empty.length - 4); // without the 4-byte length
+    }
+
+    private final int port;
+    private final ClientHandler handler;
+    private final SelectorLoop[] loops;
+    private final Set<Channel> channels = ConcurrentHashMap.newKeySet();
+    private ServerSocketChannel serverChannel;
+    private ExecutorService dispatcher;
+    private int nextLoop;
+
+    /**
+     * @param port      The port to listen on.
+     * @param handler   Receives the connection events and messages.
+     * @param selectors Number of selector threads (at least 1).
+     */
+    public NioServer(int port, ClientHandler handler, int selectors) {
+        this.port = port;
+        this.handler = handler;
+        this.loops = new SelectorLoop[Math.max(1, selectors)];
+    }
+
+    /**
+     * Opens the server socket and starts the selector and dispatch threads.
+     *
+     * @throws IOException If the port cannot be bound.
+     */
+    public void listen() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(port), BACKLOG);
+        serverChannel.configureBlocking(false);
+
+        dispatcher = Executors.newSingleThreadExecutor(r -> new Thread(r, "nio-dispatch"));
+        for (int i = 0; i < loops.length; i++) loops[i] = new SelectorLoop(i);
+        serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        for (SelectorLoop loop : loops) loop.start();
+        System.out.println("✔️ NIO server listening on port " + port + " with " + loops.length + " selector thread(s)");
+    }
+
+    /**
+     * Stops accepting, closes every connection and stops the threads.
+     * Connections are dropped without {@link ClientHandler#clientDisconnected}, as OCSF's {@code close()} does.
+     */
+    public void close() {
+        try {
+            if (serverChannel != null) serverChannel.close();
+        } catch (IOException e) {
+            System.err.println("❌ Failed to close NIO server socket: " + e.getMessage());
+        }
+        for (Channel channel : channels) channel.closeNow();
+        for (SelectorLoop loop : loops) {
+            if (loop != null) loop.shutdown();
+        }
+        if (dispatcher != null) dispatcher.shutdown();
+    }
+
+    /**
+     * Sends a message to every connected client; failures are ignored.
+     *
+     * @param msg The message.
+     */
+    public void sendToAllClients(Object msg) {
+        for (Channel channel : channels) {
+            try {
+                channel.sendToClient(msg);
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * @return The number of open connections.
+     */
+    public int getNumberOfClients() {
+        return channels.size();
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Accepts every pending connection and hands each to a selector thread, round robin.
+     */
+    private void accept() throws IOException {
+        SocketChannel socket;
+        while ((socket = serverChannel.accept()) != null) {
+            socket.configureBlocking(false);
+            socket.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SelectorLoop loop = loops[nextLoop++ % loops.length];
+            Channel channel = new Channel(socket, loop);
+            channels.add(channel);
+            channel.enqueue(ByteBuffer.wrap(STREAM_HEADER)); // OCSF clients wait for the header before anything else
+            loop.execute(channel::register);
+            dispatch(() -> handler.clientConnected(channel));
+        }
+    }
+
+    /**
+     * Runs a handler callback on the dispatch thread; dropped once the server is closed.
+     */
+    private void dispatch(Runnable callback) {
+        try {
+            dispatcher.execute(callback);
+        } catch (RejectedExecutionException e) {
+            // server closed
+        }
+    }
+
+    /**
+     * Frames a message for an OCSF client: a reset, then the serialized object.
+     */
+    private static ByteBuffer frame(Object msg) {
+        if (msg instanceof byte[] bytes) {
+            ByteBuffer frame = ByteBuffer.allocate(1 + BYTE_ARRAY_PREFIX.length + 4 + bytes.length);
+            frame.put(TC_RESET).put(BYTE_ARRAY_PREFIX).putInt(bytes.length).put(bytes).flip();
+            return frame;
+        }
+        byte[] serialized = serialize(msg); // e.g. a String for an older client
+        ByteBuffer frame = ByteBuffer.allocate(1 + serialized.length - STREAM_HEADER.length);
+        frame.put(TC_RESET).put(serialized, STREAM_HEADER.length, serialized.length - STREAM_HEADER.length).flip();
+        return frame;
+    }
+
+    private static byte[] serialize(Object msg) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(msg);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize " + msg.getClass().getName(), e);
+        }
+        return out.toByteArray();
+    }
+
+    // ===================== Selector thread =====================
+
+    /**
+     * One selector thread. Work for its channels from other threads is queued with {@link #execute}.
+     */
+    private final class SelectorLoop extends Thread {
+
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+        private volatile boolean running = true;
+
+        SelectorLoop(int index) throws IOException {
+            super("nio-selector-" + index);
+            setDaemon(true);
+            selector = Selector.open();
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void shutdown() {
+            running = false;
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("❌ Failed to close selector: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) task.run();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) continue;
+                        if (key.isAcceptable()) {
+                            accept();
+                            continue;
+                        }
+                        Channel channel = (Channel) key.attachment();
+                        try {
+                            if (key.isReadable()) channel.read(readBuffer);
+                            if (key.isValid() && key.isWritable()) channel.flush();
+                        } catch (IOException e) {
+                            channel.broken(e);
+                        }
+                    }
+                } catch (ClosedSelectorException e) {
+                    break;
+                } catch (IOException e) {
+                    System.err.println("❌ NIO selector error: " + e.getMessage());
+                }
+            }
+            System.out.println("🛑 " + getName() + " stopped.");
+        }
+    }
+
+    // ===================== Connection =====================
+
+    /**
+     * One client connection. Reading, writing and closing the socket happen on its selector thread.
+     */
+    private final class Channel implements ClientChannel {
+
+        private final SocketChannel socket;
+        private final SelectorLoop loop;
+        private final InetAddress address;
+        private final Map<String, Object> info = Collections.synchronizedMap(new HashMap<>(8));
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicLong queuedBytes = new AtomicLong();
+        private volatile boolean closing;
+        private volatile boolean closed;
+
+        // Selector thread only
+        private SelectionKey key;
+        private ByteBuffer inbound;          // unparsed bytes of a partial message; null while idle
+        private boolean headerRead;
+
+        Channel(SocketChannel socket, SelectorLoop loop) {
+            this.socket = socket;
+            this.loop = loop;
+            this.address = socket.socket().getInetAddress();
+        }
+
+        @Override
+        public void sendToClient(Object msg) throws IOException {
+            if (closing || closed) throw new SocketException("socket does not exist");
+            if (!enqueue(frame(msg))) throw new IOException("Client is not reading, connection dropped");
+            loop.execute(this::wantWrite);
+        }
+
+        /**
+         * Closes the connection once the queued messages are written, and reports it to
+         * {@link ClientHandler#clientDisconnected} right away, as OCSF's {@code close()} does.
+         */
+        @Override
+        public void close() {
+            if (closing || closed) return;
+            closing = true;
+            try {
+                loop.execute(() -> {
+                    if (outbound.isEmpty()) closeNow();
+                    else wantWrite();
+                });
+            } finally {
+                handler.clientDisconnected(this);
+            }
+        }
+
+        @Override
+        public InetAddress getInetAddress() {
+            return closed ? null : address;
+        }
+
+        @Override
+        public void setInfo(String infoType, Object value) {
+            info.put(infoType, value);
+        }
+
+        @Override
+        public Object getInfo(String infoType) {
+            return info.get(infoType);
+        }
+
+        @Override
+        public String toString() {
+            return address.getHostName() + " (" + address.getHostAddress() + ")";
+        }
+
+        private boolean enqueue(ByteBuffer frame) {
+            if (queuedBytes.addAndGet(frame.remaining()) > MAX_QUEUED_BYTES) {
+                loop.execute(() -> broken(new IOException("more than " + MAX_QUEUED_BYTES + " bytes queued")));
+                return false;
+            }
+            outbound.add(frame);
+            return true;
+        }
+
+        private void register() {
+            try {
+                key = socket.register(loop.selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, this);
+            } catch (IOException e) {
+                broken(e);
+            }
+        }
+
+        private void wantWrite() {
+            if (key != null && key.isValid()) key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        /**
+         * Writes queued frames until the socket buffer is full or the queue is empty.
+         */
+        private void flush() throws IOException {
+            ByteBuffer head;
+            while ((head = outbound.peek()) != null) {
+                queuedBytes.addAndGet(-socket.write(head));
+                if (head.hasRemaining()) return; // OP_WRITE stays on
+                outbound.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            if (closing) closeNow();
+        }
+
+        /**
+         * Reads what is available and dispatches every complete message.
+         */
+        private void read(ByteBuffer buffer) throws IOException {
+            buffer.clear();
+            int n = socket.read(buffer);
+            if (n < 0) throw new IOException("Connection closed by client");
+            if (n == 0) return;
+            buffer.flip();
+
+            ByteBuffer data = inbound == null ? buffer : append(inbound, buffer);
+            Object msg;
+            while ((msg = parse(data)) != null) {
+                Object message = msg;
+                dispatch(() -> {
+                    if (!closed) handler.handleMessageFromClient(message, this);
+                });
+            }
+
+            if (!data.hasRemaining()) {
+                inbound = null;
+            } else if (data == buffer) {
+                inbound = ByteBuffer.allocate(Math.max(data.remaining(), 1024)).put(data).flip();
+            } else {
+                inbound = data; // may have been reallocated by append
+            }
+        }
+
+        private ByteBuffer append(ByteBuffer pending, ByteBuffer more) {
+            if (pending.capacity() - pending.limit() < more.remaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.remaining() + more.remaining(), pending.capacity() * 2));
+                bigger.put(pending).flip();
+                pending = bigger;
+            }
+            int start = pending.position();
+            int end = pending.limit();
+            pending.limit(end + more.remaining()).position(end);
+            pending.put(more);
+            pending.position(start);
+            return pending;
+        }
+
+        /**
+         * Parses the next message.
+         *
+         * @return The message, or null if it has not fully arrived (nothing is consumed then).
+         * @throws StreamCorruptedException If the client sent something other than a byte[] or a String.
+         */
+        private Object parse(ByteBuffer b) throws IOException {
+            if (!headerRead) {
+                if (b.remaining() < 4) return null;
+                if (b.getShort() != STREAM_MAGIC || b.getShort() != STREAM_VERSION) {
+                    throw new StreamCorruptedException("invalid stream header");
+                }
+                headerRead = true;
+            }
+            while (b.hasRemaining() && b.get(b.position()) == TC_RESET) b.get();
+            if (!b.hasRemaining()) return null;
+
+            int start = b.position();
+            byte type = b.get();
+            Object msg = switch (type) {
+                case TC_ARRAY -> readByteArray(b);
+                case TC_STRING -> readString(b);
+                default -> throw new StreamCorruptedException(String.format("unsupported type code 0x%02X", type));
+            };
+            if (msg == null) b.position(start);
+            return msg;
+        }
+
+        private byte[] readByteArray(ByteBuffer b) throws IOException {
+            if (!b.hasRemaining()) return null;
+            byte descriptor = b.get();
+            if (descriptor == TC_CLASSDESC) {
+                if (b.remaining() < 2) return null;
+                int nameLength = b.getShort() & 0xFFFF;
+                if (b.remaining() < nameLength + 13) return null; // name, serialVersionUID, flags, field count, end, super
+                byte[] name = new byte[nameLength];
+                b.get(name);
+                if (!"[B".equals(new String(name, StandardCharsets.UTF_8))) {
+                    throw new StreamCorruptedException("unsupported array class " + new String(name, StandardCharsets.UTF_8));
+                }
+                b.position(b.position() + 11);
+                if (b.get() != TC_ENDBLOCKDATA || b.get() != TC_NULL) {
+                    throw new StreamCorruptedException("unexpected byte[] class descriptor");
+                }
+            } else if (descriptor == TC_REFERENCE) {
+                if (b.remaining() < 4) return null;
+                b.getInt(); // handle of the byte[] descriptor sent earlier
+            } else {
+                throw new StreamCorruptedException(String.format("unsupported array descriptor 0x%02X", descriptor));
+            }
+
+            if (b.remaining() < 4) return null;
+            int length = b.getInt();
+            if (length < 0 || length > MAX_MESSAGE_BYTES) {
+                throw new StreamCorruptedException("message of " + length + " bytes");
+            }
+            if (b.remaining() < length) return null;
+            byte[] payload = new byte[length];
+            b.get(payload);
+            return payload;
+        }
+
+        private String readString(ByteBuffer b) throws IOException {
+            if (b.remaining() < 2) return null;
+            int length = b.getShort(b.position()) & 0xFFFF;
+            if (b.remaining() < 2 + length) return null;
+            byte[] utf = new byte[2 + length];
+            b.get(utf);
+            return new DataInputStream(new ByteArrayInputStream(utf)).readUTF(); // modified UTF-8
+        }
+
+        /**
+         * Drops a connection that failed, and reports it to {@link ClientHandler#clientException}.
+         */
+        private void broken(IOException e) {
+            if (closed) return;
+            boolean reported = closing;
+            closeNow();
+            if (!reported) dispatch(() -> handler.clientException(this, e));
+        }
+
+        private void closeNow() {
+            if (closed) return;
+            closed = true;
+            channels.remove(this);
+            if (key != null) key.cancel();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.err.println("❌ Failed to close socket: " + e.getMessage());
+            }
+            outbound.clear();
+            inbound = null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package server_core;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+import ocsf.server.ConnectionToClient;
+
+/**
+ * A {@link ClientChannel} over an OCSF {@link ConnectionToClient}.
+ * There is one per connection, kept in the connection's own info, so it can be used as a map key.
+ * Sends and info are synchronized: commands run on virtual threads, and OCSF's stream and info map
+ * are not thread safe. Sends lock the channel; every use of the info map, including {@link #of},
+ * locks the connection.
+ */
+final class OcsfClientChannel implements ClientChannel {
+
+    private static final String INFO_KEY = "channel";
+
+    private final ConnectionToClient connection;
+
+    private OcsfClientChannel(ConnectionToClient connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * @param connection An OCSF connection.
+     * @return The channel of the connection, created on first use.
+     */
+    static OcsfClientChannel of(ConnectionToClient connection) {
+        synchronized (connection) {
+            OcsfClientChannel channel = (OcsfClientChannel) connection.getInfo(INFO_KEY);
+            if (channel == null) {
+                channel = new OcsfClientChannel(connection);
+                connection.setInfo(INFO_KEY, channel);
+            }
+            return channel;
+        }
+    }
+
+    @Override
+    public synchronized void sendToClient(Object msg) throws IOException {
+        connection.sendToClient(msg);
+    }
+
+    @Override
+    public void close() throws IOException {
+        connection.close();
+    }
+
+    @Override
+    public InetAddress getInetAddress() {
+        return connection.getInetAddress();
+    }
+
+    @Override
+    public void setInfo(String infoType, Object info) {
+        synchronized (connection) {
+            connection.setInfo(infoType, info);
+        }
+    }
+
+    @Override
+    public Object getInfo(String infoType) {
+        synchronized (connection) {
+            return connection.getInfo(infoType);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return connection.toString();
+    }
+}
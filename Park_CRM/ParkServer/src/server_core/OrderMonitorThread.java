@@ -1,51 +1,59 @@
 /**
  * A thread that monitors orders in the database for specific conditions, such as late active or pending orders.
- * The thread periodically checks for these conditions and handles them accordingly.
+ * It waits for the next order deadline and handles the orders that ran out as soon as it passes,
+ * and reconciles the deadlines with the orders table every few minutes as a safety net.
  */
 package server_core;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class OrderMonitorThread extends Thread {
 
+    /** Time between full sweeps that reload the deadlines from the orders table. */
+    private static final long RECONCILE_MS = 300_000;
+
     private final DBhandler dbHandler;
+    private final DeadlineScheduler deadlines;
     private volatile boolean running = true;
 
     /**
      * Constructs an OrderMonitorThread with the specified database handler.
      *
      * @param dbHandler The database handler used to interact with the database.
+     * @param deadlines The order deadlines the handler keeps up to date.
      */
-    public OrderMonitorThread(DBhandler dbHandler) {
+    public OrderMonitorThread(DBhandler dbHandler, DeadlineScheduler deadlines) {
         this.dbHandler = dbHandler;
+        this.deadlines = deadlines;
     }
 
     /**
-     * The main execution method of the thread. Continuously monitors for late active and pending orders
-     * and processes them. The thread sleeps for 1 minute between checks.
+     * The main execution method of the thread. Loads the deadlines of the open orders, then sweeps the
+     * late active orders or the late pending ones whenever a deadline of that kind passes, and runs
+     * both sweeps and reloads the deadlines every 5 minutes.
      */
     @Override
     public void run() {
-        try {
-            Thread.sleep(6_000);
-        } catch (InterruptedException e) {
-            System.out.println("🛑 Initialization interrupted.");
-            return;
-        }
         System.out.println("📦 OrderMonitorThread started.");
+        long nextReconcile = 0;
         while (running) {
             try {
-                // Retrieve and handle late active orders
-                List<Integer> lateActiveOrders = dbHandler.getLateActiveOrders();
-                handleLateActiveOrders(lateActiveOrders);
+                long now = System.currentTimeMillis();
+                if (now >= nextReconcile) {
+                    reconcile();
+                    nextReconcile = now + RECONCILE_MS;
+                    continue;
+                }
 
-                // Retrieve and handle late pending orders
-                List<Integer> latePendingOrders = dbHandler.getLatePendingOrders();
-                handleLatePendingOrders(latePendingOrders);
+                Set<DeadlineScheduler.Kind> due = deadlines.awaitDue(nextReconcile - now);
 
-                // Sleep for 1 minute
-                Thread.sleep(60_000);
+                // Mark overdue active orders late
+                if (due.contains(DeadlineScheduler.Kind.LATE)) dbHandler.sweepLateActiveOrders();
 
+                // Cancel pending orders that were not deposited in time
+                if (due.contains(DeadlineScheduler.Kind.CANCEL)) dbHandler.sweepLatePendingOrders();
             }
             catch (InterruptedException e) {
                 System.out.println("🛑 OrderMonitorThread interrupted. Exiting...");
@@ -59,28 +67,26 @@ public class OrderMonitorThread extends Thread {
     }
 
     /**
-     * Stops the monitoring thread by setting the running flag to false.
+     * Sweeps both kinds of late orders, then reloads the deadlines of the orders still open.
      */
-    public void stopMonitoring() {
-        running = false;
-        this.interrupt();
-    }
+    private void reconcile() {
+        dbHandler.sweepLateActiveOrders();
+        dbHandler.sweepLatePendingOrders();
 
-    /**
-     * Handles late pending orders by delegating the task to the database handler.
-     *
-     * @param pendingOrders A list of late pending order IDs to process.
-     */
-    private void handleLatePendingOrders(List<Integer> pendingOrders) {
-        dbHandler.handleLatePendingOrders(pendingOrders);
+        long readStarted = System.nanoTime();
+        List<Map<String, String>> rows = dbHandler.getOrderDeadlines();
+        if (rows == null) return;
+        int changed = deadlines.load(rows, readStarted);
+        if (changed > 0) {
+            System.out.println("⏱ Order deadlines reconciled: " + changed + " changed, " + deadlines.size() + " open.");
+        }
     }
 
     /**
-     * Handles late active orders by delegating the task to the database handler.
-     *
-     * @param lateOrders A list of late active order IDs to process.
+     * Stops the monitoring thread by setting the running flag to false.
      */
-    private void handleLateActiveOrders(List<Integer> lateOrders) {
-        dbHandler.handleLateActiveOrders(lateOrders);
+    public void stopMonitoring() {
+        running = false;
+        this.interrupt();
     }
 }
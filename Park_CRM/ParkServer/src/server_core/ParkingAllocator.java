@@ -0,0 +1,175 @@
+package server_core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory allocator of free parking spaces.
+ * Keeps one bit per parking space (1 = available) in an {@link AtomicLongArray}, loaded from the
+ * {@code parking} table at startup. Deposits claim a space with a single compare-and-set instead of
+ * probing the table, and pickups release it. The table stays the source of truth: callers write
+ * every claim/release through to MySQL, and {@link #reconcile(Map)} periodically fixes any drift.
+ */
+public class ParkingAllocator {
+
+    /**
+     * Immutable layout of the lot plus its bitset. Replaced as a whole when the set of spaces changes.
+     */
+    private static final class Layout {
+        private final int[] spaces;                 // sorted parking space numbers
+        private final Map<Integer, Integer> index;  // space number -> bit index
+        private final AtomicLongArray free;         // bit set = space available
+
+        private Layout(int[] spaces) {
+            this.spaces = spaces;
+            this.index = new HashMap<>();
+            for (int i = 0; i < spaces.length; i++) index.put(spaces[i], i);
+            this.free = new AtomicLongArray((spaces.length + 63) / 64);
+        }
+    }
+
+    private volatile Layout layout;
+
+    /** Spaces that disagreed with the table on the last reconcile pass. */
+    private Set<Integer> suspects = new HashSet<>();
+
+    /**
+     * (Re)loads the allocator from the parking table.
+     *
+     * @param statusBySpace parking space number mapped to its status ('available', 'ordered', 'occupied').
+     */
+    public synchronized void load(Map<Integer, String> statusBySpace) {
+        int[] spaces = statusBySpace.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        Layout next = new Layout(spaces);
+        for (int i = 0; i < spaces.length; i++) {
+            if ("available".equals(statusBySpace.get(spaces[i]))) setBit(next, i);
+        }
+        layout = next;
+        suspects = new HashSet<>();
+        System.out.println("✔️ Parking allocator loaded: " + freeCount() + "/" + spaces.length + " spaces available.");
+    }
+
+    /**
+     * @return true once {@link #load(Map)} has run.
+     */
+    public boolean isLoaded() {
+        return layout != null;
+    }
+
+    /**
+     * Claims any available space.
+     * Threads start scanning at a random word so concurrent gates spread over the lot.
+     *
+     * @return the claimed parking space number, or -1 if none is available (or the allocator is not loaded).
+     */
+    public int claim() {
+        Layout l = layout;
+        if (l == null) return -1;
+
+        int words = l.free.length();
+        int start = words > 1 ? ThreadLocalRandom.current().nextInt(words) : 0;
+        for (int n = 0; n < words; n++) {
+            int w = (start + n) % words;
+            long bits;
+            while ((bits = l.free.get(w)) != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                if (l.free.compareAndSet(w, bits, bits & ~(1L << bit))) {
+                    return l.spaces[w * 64 + bit];
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Marks a specific space as taken (e.g. a reservation being deposited).
+     *
+     * @param space the parking space number.
+     * @return true if the space was available before this call.
+     */
+    public boolean take(int space) {
+        Layout l = layout;
+        if (l == null) return false;
+        Integer i = l.index.get(space);
+        if (i == null) return false;
+        long mask = 1L << (i & 63);
+        return (l.free.getAndUpdate(i >>> 6, bits -> bits & ~mask) & mask) != 0;
+    }
+
+    /**
+     * Marks a space as available again.
+     *
+     * @param space the parking space number.
+     */
+    public void release(int space) {
+        Layout l = layout;
+        if (l == null) return;
+        Integer i = l.index.get(space);
+        if (i != null) setBit(l, i);
+    }
+
+    /**
+     * @return the number of spaces currently available.
+     */
+    public int freeCount() {
+        Layout l = layout;
+        if (l == null) return 0;
+        int count = 0;
+        for (int w = 0; w < l.free.length(); w++) count += Long.bitCount(l.free.get(w));
+        return count;
+    }
+
+    /**
+     * @return the total number of spaces in the lot.
+     */
+    public int size() {
+        Layout l = layout;
+        return l == null ? 0 : l.spaces.length;
+    }
+
+    /**
+     * Compares the bitset against a fresh read of the parking table.
+     * A space is only corrected when it disagreed on two passes in a row, so claims and releases
+     * that are still being written through are not undone.
+     * If spaces were added or removed the allocator is reloaded.
+     *
+     * @param statusBySpace parking space number mapped to its status.
+     * @return the number of spaces corrected.
+     */
+    public synchronized int reconcile(Map<Integer, String> statusBySpace) {
+        Layout l = layout;
+        int[] spaces = statusBySpace.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        if (l == null || !Arrays.equals(spaces, l.spaces)) {
+            load(statusBySpace);
+            return spaces.length;
+        }
+
+        Set<Integer> disagreeing = new HashSet<>();
+        int fixed = 0;
+        for (int i = 0; i < spaces.length; i++) {
+            boolean dbFree = "available".equals(statusBySpace.get(spaces[i]));
+            boolean memFree = (l.free.get(i >>> 6) & (1L << (i & 63))) != 0;
+            if (dbFree == memFree) continue;
+
+            if (suspects.contains(spaces[i])) {
+                if (dbFree) setBit(l, i);
+                else take(spaces[i]);
+                fixed++;
+            } else {
+                disagreeing.add(spaces[i]);
+            }
+        }
+        suspects = disagreeing;
+        return fixed;
+    }
+
+    private static void setBit(Layout l, int i) {
+        long mask = 1L << (i & 63);
+        l.free.getAndUpdate(i >>> 6, bits -> bits | mask);
+    }
+}
@@ -0,0 +1,187 @@
+package server_core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes lot changes to the clients that sent SUBSCRIBE_PARKING, so a manager console keeps its
+ * copy of CURRENT_PARKING up to date without fetching the whole table again.
+ *
+ * <p>Changes reported by the {@link LotSnapshot} are collected for a short window and then sent
+ * together as one PARKING_DELTA packet: the last row of every space that changed in the window
+ * and the lot occupancy percent in the description. A space that changed several times in the
+ * window is sent once. When the snapshot is reloaded the next packet carries the whole table,
+ * with {@code full=true}.</p>
+ *
+ * <p>Each packet carries the snapshot {@code version} of its last change, and SUBSCRIBE_PARKING
+ * answers with the version of its table, so a console drops a packet that was collected before
+ * the table it loaded instead of rolling spaces back.</p>
+ */
+public class ParkingDeltaPublisher implements LotSnapshot.Listener {
+
+    /** Default coalescing window in milliseconds. */
+    public static final int DEFAULT_WINDOW_MS = 250;
+
+    private final LotSnapshot lot;
+    private final long windowMs;
+    private final Set<ClientChannel> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "parking-delta");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Guarded by this
+    private Map<Integer, Map<String, String>> changed = new TreeMap<>();
+    private long changedVersion;
+    private boolean full;
+    private boolean scheduled;
+
+    private final LongAdder changes = new LongAdder();
+    private final LongAdder rowsSent = new LongAdder();
+    private final LongAdder packets = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private ParkingDeltaPublisher(LotSnapshot lot, long windowMs) {
+        this.lot = lot;
+        this.windowMs = Math.max(0, windowMs);
+    }
+
+    /**
+     * Creates a publisher and registers it as the snapshot's listener, once it is fully built.
+     *
+     * @param lot      The snapshot to follow.
+     * @param windowMs How long changes are collected before they are sent.
+     * @return The publisher.
+     */
+    public static ParkingDeltaPublisher following(LotSnapshot lot, long windowMs) {
+        ParkingDeltaPublisher publisher = new ParkingDeltaPublisher(lot, windowMs);
+        lot.setListener(publisher);
+        return publisher;
+    }
+
+    /**
+     * @param client Receives a PARKING_DELTA after every change from now on.
+     */
+    public void subscribe(ClientChannel client) {
+        subscribers.add(client);
+    }
+
+    /**
+     * @param client No longer receives PARKING_DELTA packets. Does nothing if it was not subscribed.
+     */
+    public void unsubscribe(ClientChannel client) {
+        subscribers.remove(client);
+    }
+
+    @Override
+    public synchronized void spaceChanged(int space, Map<String, String> row, long version) {
+        changes.increment();
+        if (subscribers.isEmpty()) return;
+        changed.put(space, row);
+        changedVersion = version;
+        schedule();
+    }
+
+    @Override
+    public synchronized void reloaded(long version) {
+        if (subscribers.isEmpty()) return;
+        full = true;
+        changed = new TreeMap<>();
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled) return;
+        scheduled = true;
+        try {
+            flusher.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            scheduled = false; // closed
+        }
+    }
+
+    /**
+     * Sends what changed since the last packet to every subscriber.
+     */
+    private void flush() {
+        List<Map<String, String>> rows;
+        long version;
+        boolean sendFull;
+        synchronized (this) {
+            rows = new ArrayList<>(changed.values());
+            version = changedVersion;
+            sendFull = full;
+            changed = new TreeMap<>();
+            full = false;
+            scheduled = false;
+        }
+        String percent;
+        if (sendFull) {
+            LotSnapshot.View view = lot.view();
+            rows = view.table();
+            percent = view.percent();
+            version = view.version();
+        } else {
+            percent = lot.usagePercent();
+        }
+        if (rows.isEmpty()) return;
+
+        CommandPacket delta = new CommandPacket();
+        delta.setCommand("PARKING_DELTA");
+        delta.setAnswer(200);
+        delta.setDescription(percent);
+        delta.setTable(rows);
+        delta.setArgs(sendFull ? Map.of("full", "true", "version", String.valueOf(version))
+                : Map.of("version", String.valueOf(version)));
+        byte[] encoded = PacketCodec.encode(delta);
+
+        rowsSent.add(rows.size());
+        for (ClientChannel client : subscribers) {
+            try {
+                client.sendToClient(encoded);
+                packets.increment();
+            } catch (IOException e) {
+                dropped.increment();
+                subscribers.remove(client);
+                System.err.println("⚠️ Dropped parking subscriber " + client + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the publisher statistics.
+     *
+     * @return subscribers, changes (reported by the snapshot), rows_sent, packets_sent and
+     *         dropped (subscribers removed after a failed send)
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("subscribers", (long) subscribers.size());
+        stats.put("changes", changes.sum());
+        stats.put("rows_sent", rowsSent.sum());
+        stats.put("packets_sent", packets.sum());
+        stats.put("dropped", dropped.sum());
+        return stats;
+    }
+
+    /**
+     * Stops following the snapshot and sending packets.
+     */
+    public void close() {
+        lot.setListener(null);
+        flusher.shutdownNow();
+        subscribers.clear();
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * A thread that keeps the in-memory parking allocator and lot snapshot in line with the tables.
+ * It periodically reconciles both, correcting any space whose state drifted
+ * from the database, and retries the initial load if it failed at startup.
+ */
+package server_core;
+
+import java.util.List;
+import java.util.Map;
+
+public class ParkingReconcileThread extends Thread {
+
+    private final DBhandler dbHandler;
+    private final ParkingAllocator allocator;
+    private final LotSnapshot lot;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a ParkingReconcileThread.
+     *
+     * @param dbHandler The database handler used to read the parking table.
+     * @param allocator The allocator to load and reconcile.
+     * @param lot       The lot snapshot to load and reconcile.
+     */
+    public ParkingReconcileThread(DBhandler dbHandler, ParkingAllocator allocator, LotSnapshot lot) {
+        this.dbHandler = dbHandler;
+        this.allocator = allocator;
+        this.lot = lot;
+    }
+
+    /**
+     * The main execution method of the thread. Reconciles the allocator and the lot snapshot against
+     * the tables every 5 minutes, or every 10 seconds until both were loaded.
+     */
+    @Override
+    public void run() {
+        System.out.println("📦 ParkingReconcileThread started.");
+        while (running) {
+            try {
+                Thread.sleep(allocator.isLoaded() && lot.isLoaded() ? 300_000 : 10_000);
+
+                Map<Integer, String> statuses = dbHandler.getParkingStatuses();
+                if (statuses != null) {
+                    if (!allocator.isLoaded()) {
+                        allocator.load(statuses);
+                    } else {
+                        int fixed = allocator.reconcile(statuses);
+                        if (fixed > 0) {
+                            System.out.println("⚠️ Parking allocator reconciled: " + fixed + " space(s) corrected.");
+                        }
+                    }
+                }
+
+                List<Map<String, String>> lotRows = dbHandler.getLotRows();
+                if (lotRows != null) {
+                    if (!lot.isLoaded()) {
+                        lot.load(lotRows);
+                    } else {
+                        int fixed = lot.reconcile(lotRows);
+                        if (fixed > 0) {
+                            System.out.println("⚠️ Lot snapshot reconciled: " + fixed + " space(s) corrected.");
+                        }
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                System.out.println("🛑 ParkingReconcileThread interrupted. Exiting...");
+                break;
+            }
+            catch (Exception e) {
+                System.err.println("❌ ParkingReconcileThread error: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Stops the reconcile thread by setting the running flag to false.
+     */
+    public void stopReconcile() {
+        running = false;
+        this.interrupt();
+    }
+}
@@ -0,0 +1,136 @@
+package server_core;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A background thread that keeps the monthly partitions of {@code parking_history} ahead of time
+ * (see migration V3). Once per day (at midnight) it makes sure the current month and the next
+ * {@code monthsAhead} months have their own partition, so new rows never land in {@code pfuture}.
+ * When a retention period is set, monthly partitions older than it are archived into their own
+ * {@code parking_history_pYYYYMM} table instead of being deleted row by row.
+ */
+public class PartitionMaintenanceThread extends Thread {
+
+    private final DBhandler dbHandler;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private volatile boolean running = true;
+
+    /** Set once the "not partitioned" warning was printed, so it is not repeated every day. */
+    private boolean warnedUnpartitioned = false;
+
+    /**
+     * Constructs the partition maintenance thread.
+     *
+     * @param dbHandler       The database handler used to read and change the partitions.
+     * @param monthsAhead     How many months after the current one should already have a partition.
+     * @param retentionMonths Months of history kept in {@code parking_history}; 0 keeps everything.
+     */
+    public PartitionMaintenanceThread(DBhandler dbHandler, int monthsAhead, int retentionMonths) {
+        this.dbHandler = dbHandler;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * The main loop of the thread. Runs indefinitely while {@code running} is true,
+     * checking the partitions once at startup and then once per day.
+     */
+    @Override
+    public void run() {
+        try {
+            Thread.sleep(6_000);
+        } catch (InterruptedException e) {
+            System.out.println("🛑 Initialization interrupted.");
+            return;
+        }
+        System.out.println("📦 PartitionMaintenanceThread started.");
+        while (running) {
+            try {
+                maintainPartitions();
+                Thread.sleep(getMillisToNextMidnight());
+            }
+            catch (InterruptedException e) {
+                System.out.println("🛑 PartitionMaintenanceThread interrupted. Exiting...");
+                break;
+            }
+            catch (Exception e) {
+                System.err.println("❌ PartitionMaintenanceThread error: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Stops the thread gracefully by setting {@code running} to false.
+     */
+    public void stopThread() {
+        running = false;
+        this.interrupt();
+    }
+
+    /**
+     * Adds missing monthly partitions up to {@code monthsAhead} months from now and archives
+     * partitions older than the retention period.
+     */
+    private void maintainPartitions() {
+        List<String> partitions = dbHandler.getHistoryPartitions();
+        if (partitions == null) return;
+        if (!partitions.contains("pfuture")) {
+            if (!warnedUnpartitioned) {
+                System.out.println("⚠️ parking_history is not partitioned by month (apply migration V3); partition maintenance is idle.");
+                warnedUnpartitioned = true;
+            }
+            return;
+        }
+
+        // Months can only be split off pfuture after the last monthly partition
+        YearMonth last = null;
+        for (String name : partitions) {
+            YearMonth month = parseMonth(name);
+            if (month != null && (last == null || month.isAfter(last))) last = month;
+        }
+
+        YearMonth current = YearMonth.now();
+        List<LocalDate> missing = new ArrayList<>();
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            if (last == null || month.isAfter(last)) missing.add(month.atDay(1));
+        }
+        if (!missing.isEmpty() && dbHandler.addHistoryPartitions(missing)) {
+            System.out.println("✔️ Added parking_history partitions through " + missing.get(missing.size() - 1).toString().substring(0, 7));
+        }
+
+        if (retentionMonths <= 0) return;
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for (String name : partitions) {
+            YearMonth month = parseMonth(name);
+            if (month != null && month.isBefore(oldestKept) && dbHandler.archiveHistoryPartition(name)) {
+                System.out.println("📦 Archived parking_history partition " + name + " to parking_history_" + name);
+            }
+        }
+    }
+
+    /**
+     * @param partition A partition name such as "p202507".
+     * @return The month of a monthly partition, or null for any other partition.
+     */
+    private static YearMonth parseMonth(String partition) {
+        if (!partition.matches("p\\d{6}")) return null;
+        return YearMonth.of(Integer.parseInt(partition.substring(1, 5)), Integer.parseInt(partition.substring(5)));
+    }
+
+    /**
+     * @return Milliseconds remaining until the next midnight (00:00).
+     */
+    private long getMillisToNextMidnight() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime nextMidnight = now.plusDays(1).toLocalDate().atStartOfDay();
+        return ChronoUnit.MILLIS.between(now, nextMidnight);
+    }
+}
@@ -0,0 +1,181 @@
+package server_core;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token-bucket rate limits for the commands that are expensive to run: LOGIN (a credential
+ * query), RECOVER (two queries and a Discord webhook) and CREATE (two duplicate checks and an insert).
+ *
+ * <p>Each limited command has three buckets per caller: one per connection, one per IP address
+ * and one per subscriber (the account a LOGIN or RECOVER is for, otherwise the logged-in user).
+ * A command passes only if all three have a token. Limits are requests per minute with an equal
+ * burst, and can be set per command with {@code -Dbpark.ratelimit.<command>=<connection>,<ip>,<subscriber>},
+ * e.g. {@code -Dbpark.ratelimit.login=5,20,5}; 0 disables a scope.</p>
+ *
+ * <p>The buckets are kept in a map of at most {@link #MAX_BUCKETS} entries that drops the least
+ * recently used one when full. A dropped bucket had usually refilled anyway, so memory stays
+ * bounded however many addresses and accounts are seen.</p>
+ */
+public class RateLimiter {
+
+    /** Most buckets kept at once. */
+    public static final int MAX_BUCKETS = 10_000;
+
+    /** Per-minute limits of a command, per connection, per IP and per subscriber. */
+    private record Limits(int connection, int ip, int subscriber) {}
+
+    private record Key(String command, char scope, Object id) {}
+
+    private static final class Bucket {
+        double tokens;
+        long refilledAt;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAt = now;
+        }
+
+        /** Adds the tokens earned since the last call; returns true if one is available. */
+        boolean refill(int perMinute, long now) {
+            tokens = Math.min(perMinute, tokens + (now - refilledAt) * perMinute / 60e9);
+            refilledAt = now;
+            return tokens >= 1;
+        }
+    }
+
+    private final Map<String, Limits> limits = new HashMap<>();
+    private final Map<Key, Bucket> buckets = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Bucket> eldest) {
+            return size() > MAX_BUCKETS;
+        }
+    };
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Sets up the default limits, overridden by the {@code bpark.ratelimit.*} properties.
+     */
+    public RateLimiter() {
+        limit("LOGIN", new Limits(5, 30, 5));
+        limit("RECOVER", new Limits(3, 10, 2));
+        limit("CREATE", new Limits(10, 30, 20));
+    }
+
+    private void limit(String command, Limits defaults) {
+        String value = System.getProperty("bpark.ratelimit." + command.toLowerCase());
+        if (value != null) {
+            try {
+                String[] parts = value.split(",");
+                defaults = new Limits(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                        Integer.parseInt(parts[2].trim()));
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Ignoring bpark.ratelimit." + command.toLowerCase() + "=" + value
+                        + " (expected <connection>,<ip>,<subscriber>)");
+            }
+        }
+        limits.put(command, defaults);
+    }
+
+    /**
+     * Takes a token for a command from each of its buckets.
+     * Commands without limits always pass.
+     *
+     * @param command The command name, upper case.
+     * @param client  The connection it came from.
+     * @param args    Its arguments (may be null).
+     * @param userId  The user logged in on the connection, or null.
+     * @return 0 if the command may run, otherwise the milliseconds until it would be allowed.
+     */
+    public long tryAcquire(String command, ClientChannel client, Map<String, String> args, String userId) {
+        Limits l = limits.get(command);
+        if (l == null) return 0;
+
+        InetAddress address = client.getInetAddress();
+        String subscriber = subscriberOf(command, args, userId);
+        Key[] keys = {
+                l.connection > 0 ? new Key(command, 'c', client) : null,
+                l.ip > 0 && address != null ? new Key(command, 'i', address.getHostAddress()) : null,
+                l.subscriber > 0 && subscriber != null ? new Key(command, 's', subscriber) : null };
+        int[] perMinute = { l.connection, l.ip, l.subscriber };
+        String[] scope = { "connection", "ip", "subscriber" };
+
+        long now = System.nanoTime();
+        synchronized (buckets) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == null) continue;
+                Bucket bucket = buckets.get(keys[i]);
+                if (bucket != null && !bucket.refill(perMinute[i], now)) {
+                    count(command, "rejected_" + scope[i]);
+                    return Math.max(1, (long) Math.ceil((1 - bucket.tokens) * 60_000 / perMinute[i]));
+                }
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == null) continue;
+                Bucket bucket = buckets.get(keys[i]);
+                if (bucket == null) {
+                    bucket = new Bucket(perMinute[i], now); // a new caller starts with a full burst
+                    buckets.put(keys[i], bucket);
+                }
+                bucket.tokens -= 1;
+            }
+        }
+        count(command, "allowed");
+        return 0;
+    }
+
+    /**
+     * Drops the buckets of a closed connection; they can never be used again.
+     *
+     * @param client The connection.
+     */
+    public void forget(ClientChannel client) {
+        synchronized (buckets) {
+            buckets.keySet().removeIf(k -> k.id() == client);
+        }
+    }
+
+    /**
+     * Returns the rate limit statistics.
+     *
+     * @return per limited command: allowed and rejected_connection, rejected_ip, rejected_subscriber;
+     *         under "BUCKETS", the number of buckets kept
+     */
+    public Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        for (String command : limits.keySet()) {
+            Map<String, Long> s = new LinkedHashMap<>();
+            for (String name : new String[] { "allowed", "rejected_connection", "rejected_ip", "rejected_subscriber" }) {
+                LongAdder counter = counters.get(command + "." + name);
+                s.put(name, counter == null ? 0 : counter.sum());
+            }
+            stats.put(command, s);
+        }
+        synchronized (buckets) {
+            stats.put("BUCKETS", Map.of("count", (long) buckets.size(), "max", (long) MAX_BUCKETS));
+        }
+        return stats;
+    }
+
+    private void count(String command, String name) {
+        counters.computeIfAbsent(command + "." + name, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * @return The account a LOGIN or RECOVER is for, otherwise the user logged in on the connection.
+     */
+    private static String subscriberOf(String command, Map<String, String> args, String userId) {
+        String target = null;
+        if (args != null) {
+            if (command.equals("LOGIN")) target = args.get("subscriber_email");
+            else if (command.equals("RECOVER")) target = args.get("user_id");
+        }
+        if (target != null && !target.isBlank()) return target.trim().toLowerCase();
+        return userId;
+    }
+}
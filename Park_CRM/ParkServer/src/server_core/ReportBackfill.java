@@ -0,0 +1,231 @@
+package server_core;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Generates the USERS and PARKING report CSVs of past months, several months at a time.
+ *
+ * <p>Months are spread over a {@link ForkJoinPool}; each month runs the two monthly report
+ * queries on connections borrowed from the pool and saves the results through {@link ReportsCSV}.
+ * A month is skipped when both of its files are newer than its last history event, so a
+ * backfill that was stopped picks up where it left off, and running it again only regenerates
+ * the months whose history changed since. A report without rows (a month without deposits) is
+ * saved as its header line, so that month counts as done too. The current month is left to {@link LiveReportAggregator}.</p>
+ *
+ * <p>Run it from the server screen, or headless against the database:</p>
+ *
+ * <pre>
+ * java server_core.ReportBackfill &lt;host:port/db&gt; &lt;user&gt; &lt;password&gt; [parallelism] [from YYYY-MM] [to YYYY-MM] [--force]
+ * </pre>
+ */
+public class ReportBackfill {
+
+    /**
+     * How far a backfill got.
+     *
+     * @param total     Months in the range.
+     * @param done      Months generated.
+     * @param skipped   Months whose reports were already up to date.
+     * @param failed    Months whose queries failed.
+     * @param rows      Report rows written.
+     * @param elapsedMs Time since the backfill started.
+     */
+    public record Progress(int total, int done, int skipped, int failed, long rows, long elapsedMs) {
+
+        /** @return Months generated per second. */
+        public double monthsPerSecond() {
+            return elapsedMs == 0 ? 0 : done * 1000.0 / elapsedMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d/%d months (%d generated, %d skipped, %d failed), %d rows, %.1f months/s",
+                    done + skipped + failed, total, done, skipped, failed, rows, monthsPerSecond());
+        }
+    }
+
+    /** Columns of {@link DBhandler#getMonthlyUsersReport}, written when a month has no rows. */
+    private static final List<String> USERS_COLUMNS =
+            List.of("user", "deposited", "picked_up", "reserved", "late", "cancelled", "extended");
+
+    /** Columns of {@link DBhandler#getMonthlyParkingReport}, written when a month has no deposits. */
+    private static final List<String> PARKING_COLUMNS = List.of("day", "capacity");
+
+    private final DBhandler dbHandler;
+    private final ReportsCSV reportsCSV;
+    private final int parallelism;
+
+    /**
+     * @param dbHandler   The database handler; its pool should have at least {@code parallelism} connections.
+     * @param reportsCSV  The CSV handler used to save report files.
+     * @param parallelism Months generated at once.
+     */
+    public ReportBackfill(DBhandler dbHandler, ReportsCSV reportsCSV, int parallelism) {
+        this.dbHandler = dbHandler;
+        this.reportsCSV = reportsCSV;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Generates the reports of a range of months.
+     *
+     * @param from     First month, or null for the first month with history.
+     * @param to       Last month, or null for last month.
+     * @param force    true to regenerate months that are up to date.
+     * @param listener Called after every month, from the pool threads; may be null.
+     * @return The final progress, or null if the history months could not be read.
+     */
+    public Progress run(YearMonth from, YearMonth to, boolean force, Consumer<Progress> listener) {
+        Map<YearMonth, LocalDateTime> lastEvents = dbHandler.getLastHistoryByMonth();
+        if (lastEvents == null) return null;
+        if (from == null) {
+            if (lastEvents.isEmpty()) return new Progress(0, 0, 0, 0, 0, 0);
+            from = lastEvents.keySet().iterator().next();
+        }
+        YearMonth lastMonth = YearMonth.now().minusMonths(1);
+        if (to == null || to.isAfter(lastMonth)) to = lastMonth;
+
+        List<YearMonth> months = new ArrayList<>();
+        for (YearMonth m = from; !m.isAfter(to); m = m.plusMonths(1)) months.add(m);
+
+        Run run = new Run(months.size(), listener);
+        List<YearMonth> pending = new ArrayList<>();
+        for (YearMonth m : months) {
+            if (!force && upToDate(m, lastEvents.get(m))) run.skipped.incrementAndGet();
+            else pending.add(m);
+        }
+
+        System.out.println("📦 Report backfill: " + pending.size() + " of " + months.size()
+                + " months to generate, " + parallelism + " at a time.");
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new Months(pending, 0, pending.size(), run));
+        } finally {
+            pool.shutdown();
+        }
+        Progress result = run.progress();
+        System.out.println("✔️ Report backfill finished: " + result);
+        return result;
+    }
+
+    /**
+     * @return true if both reports of the month exist and were written after its last history event.
+     */
+    private boolean upToDate(YearMonth month, LocalDateTime lastEvent) {
+        String year = String.format("%04d", month.getYear());
+        String mm = String.format("%02d", month.getMonthValue());
+        long written = Math.min(reportsCSV.lastModified("USERS", year, mm), reportsCSV.lastModified("PARKING", year, mm));
+        if (written == 0) return false;
+        return lastEvent == null || written > lastEvent.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void generate(YearMonth month, Run run) {
+        String year = String.format("%04d", month.getYear());
+        String mm = String.format("%02d", month.getMonthValue());
+        try {
+            List<Map<String, String>> usersReport = dbHandler.getMonthlyUsersReport(mm, year);
+            List<Map<String, String>> parkingReport = dbHandler.getMonthlyParkingReport(mm, year);
+            if (usersReport == null || parkingReport == null
+                    || !ReportsCSV.saveToCSV("USERS", year, mm, usersReport, USERS_COLUMNS)
+                    || !ReportsCSV.saveToCSV("PARKING", year, mm, parkingReport, PARKING_COLUMNS)) {
+                run.failed.incrementAndGet();
+            } else {
+                run.rows.addAndGet(usersReport.size() + parkingReport.size());
+                run.done.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            System.err.println("❌ Report backfill failed for " + month + ": " + e.getMessage());
+            run.failed.incrementAndGet();
+        }
+        run.report();
+    }
+
+    /** Counters of one backfill. */
+    private static final class Run {
+        final int total;
+        final Consumer<Progress> listener;
+        final long started = System.nanoTime();
+        final AtomicInteger done = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicLong rows = new AtomicLong();
+
+        Run(int total, Consumer<Progress> listener) {
+            this.total = total;
+            this.listener = listener;
+        }
+
+        Progress progress() {
+            return new Progress(total, done.get(), skipped.get(), failed.get(), rows.get(),
+                    (System.nanoTime() - started) / 1_000_000);
+        }
+
+        void report() {
+            if (listener != null) listener.accept(progress());
+        }
+    }
+
+    /** Generates months [from, to) of a list, splitting the range until one month is left. */
+    @SuppressWarnings("serial")
+    private final class Months extends RecursiveAction {
+        private final List<YearMonth> months;
+        private final int from;
+        private final int to;
+        private final Run run;
+
+        Months(List<YearMonth> months, int from, int to, Run run) {
+            this.months = months;
+            this.from = from;
+            this.to = to;
+            this.run = run;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 0) return;
+            if (to - from == 1) {
+                generate(months.get(from), run);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Months(months, from, mid, run), new Months(months, mid, to, run));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: ReportBackfill <host:port/db> <user> <password> [parallelism] [from YYYY-MM] [to YYYY-MM] [--force]");
+            return;
+        }
+        String url = "jdbc:mysql://" + args[0]
+                + "?serverTimezone=Asia/Jerusalem&useSSL=false&useServerPrepStmts=true&useCursorFetch=true";
+        int parallelism = args.length > 3 && !args[3].startsWith("--")
+                ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        YearMonth from = args.length > 4 && !args[4].startsWith("--") ? YearMonth.parse(args[4]) : null;
+        YearMonth to = args.length > 5 && !args[5].startsWith("--") ? YearMonth.parse(args[5]) : null;
+        boolean force = List.of(args).contains("--force");
+
+        DBconnector db = new DBconnector();
+        if (!db.connect(url, args[1], args[2], 1, parallelism)) {
+            System.err.println("❌ Could not connect to " + url);
+            return;
+        }
+        try {
+            ReportBackfill backfill = new ReportBackfill(new DBhandler(db), new ReportsCSV(), parallelism);
+            Progress result = backfill.run(from, to, force, p -> System.out.println("⏱ " + p));
+            if (result == null) System.err.println("❌ Could not read the history months.");
+        } finally {
+            db.disconnect();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package server_core;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 /**
@@ -19,6 +21,8 @@ public class ReportsCSV {
 
     /**
      * Saves a table (list of maps) into a CSV file.
+     * The file is written under a temporary name and then renamed, so a reader (or a backfill
+     * deciding whether the month is done) never sees a half-written report.
      *
      * @param reportType Type of report (e.g., "USERS", "PARKING").
      * @param year       Report year (e.g., "2025").
@@ -28,16 +32,37 @@ public class ReportsCSV {
      */
     public static boolean saveToCSV(String reportType, String year, String month, List<Map<String, String>> table) {
         if (table == null || table.isEmpty()) return false;
+        return writeCSV(reportType, year, month, table.get(0).keySet(), table);
+    }
+
+    /**
+     * Saves a table like {@link #saveToCSV(String, String, String, List)}, but writes a report
+     * without rows as its header line, so an empty month still has its file.
+     *
+     * @param reportType Type of report (e.g., "USERS", "PARKING").
+     * @param year       Report year (e.g., "2025").
+     * @param month      Report month (e.g., "March" or "03").
+     * @param table      List of rows where each row is a map of column name to value; may be empty.
+     * @param headers    The columns to write when the table is empty.
+     * @return true if saved successfully, false otherwise.
+     */
+    public static boolean saveToCSV(String reportType, String year, String month, List<Map<String, String>> table,
+            List<String> headers) {
+        if (table == null) return false;
+        return writeCSV(reportType, year, month, table.isEmpty() ? headers : table.get(0).keySet(), table);
+    }
+
+    private static boolean writeCSV(String reportType, String year, String month, Collection<String> headers,
+            List<Map<String, String>> table) {
         String monthNumber = monthNameToNumber(month);
         String fileName = String.format("%s_%s_%s.csv", reportType.toUpperCase(), monthNumber, year);
         File dir = new File(REPORTS_FOLDER);
         if (!dir.exists()) dir.mkdirs();
 
         File file = new File(dir, fileName);
+        File temp = new File(dir, fileName + "." + Thread.currentThread().threadId() + ".tmp");
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
-            // Extract headers from first row
-            Set<String> headers = table.get(0).keySet();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(temp))) {
             writer.println(String.join(",", headers));
 
             for (Map<String, String> row : table) {
@@ -47,10 +72,18 @@ public class ReportsCSV {
                 }
                 writer.println(String.join(",", values));
             }
+        } catch (IOException e) {
+            System.err.println("❌ Error writing CSV: " + e.getMessage());
+            temp.delete();
+            return false;
+        }
 
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
             return true;
         } catch (IOException e) {
             System.err.println("❌ Error writing CSV: " + e.getMessage());
+            temp.delete();
             return false;
         }
     }
@@ -150,6 +183,18 @@ public class ReportsCSV {
     public boolean fileExists(String type, String year, String month) {
         return new File(getReportPath(type, year, month)).exists();
     }
+
+    /**
+     * Returns when a report CSV file was last written.
+     *
+     * @param type  Report type ("USERS" or "PARKING").
+     * @param year  Year string.
+     * @param month Month string (e.g., "03").
+     * @return The modification time in epoch milliseconds, or 0 if the file does not exist.
+     */
+    public long lastModified(String type, String year, String month) {
+        return new File(getReportPath(type, year, month)).lastModified();
+    }
     
     /**
      * Saves a table (list of maps) into a specified CSV file.
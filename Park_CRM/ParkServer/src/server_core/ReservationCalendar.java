@@ -0,0 +1,205 @@
+package server_core;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory calendar of upcoming orders, used by RESERVE instead of scanning {@code orders}.
+ * For every date it keeps the number of orders (for the 40% cap) and, per reserved time,
+ * a bitset of the parking spaces already booked at that time.
+ *
+ * <p>The calendar is rebuilt from {@code orders} at startup and covers that day onwards; earlier
+ * dates are answered by the database. It is updated on reserve, walk-in deposit, cancellation and
+ * order edits. Cancelled orders neither count toward the cap nor block their space.
+ * Each date is locked on its own, so reservations for different days never wait on each other.</p>
+ */
+public class ReservationCalendar {
+
+    /** Returned by {@link #hold} when 40% of the lot is already booked for the date. */
+    public static final int OVER_CAPACITY = -1;
+
+    /** Returned by {@link #hold} when every space is booked at the requested time. */
+    public static final int NO_SPACE = -2;
+
+    /** Share of the lot that may be booked for one date. */
+    private static final double DAILY_CAP = 0.4;
+
+    /** Orders and booked spaces of one date. */
+    private static final class Day {
+        private int orders;
+        private final Map<LocalTime, BitSet> slots = new HashMap<>();
+    }
+
+    /** Where an order sits in the calendar. */
+    private record Booking(LocalDate date, LocalTime time, int space) {}
+
+    private volatile int[] spaces;                 // sorted parking space numbers
+    private volatile Map<Integer, Integer> index;  // space number -> bit index
+    private volatile LocalDate coveredFrom;        // null until loaded
+
+    private final Map<LocalDate, Day> days = new ConcurrentHashMap<>();
+    private final Map<Integer, Booking> bookings = new ConcurrentHashMap<>();
+
+    /**
+     * Rebuilds the calendar.
+     *
+     * @param parkingSpaces every parking space number in the lot.
+     * @param orders        non-cancelled orders from today onwards, each with the keys
+     *                      order_number, parking_space, order_date (yyyy-MM-dd) and order_time (HH:mm:ss).
+     */
+    public synchronized void load(Collection<Integer> parkingSpaces, List<Map<String, String>> orders) {
+        int[] sorted = parkingSpaces.stream().mapToInt(Integer::intValue).sorted().toArray();
+        Map<Integer, Integer> idx = new HashMap<>();
+        for (int i = 0; i < sorted.length; i++) idx.put(sorted[i], i);
+
+        days.clear();
+        bookings.clear();
+        spaces = sorted;
+        index = idx;
+
+        for (Map<String, String> row : orders) {
+            int orderNumber = Integer.parseInt(row.get("order_number"));
+            int space = Integer.parseInt(row.get("parking_space"));
+            LocalDate date = LocalDate.parse(row.get("order_date"));
+            LocalTime time = LocalTime.parse(row.get("order_time"));
+
+            Day day = days.computeIfAbsent(date, d -> new Day());
+            day.orders++;
+            Integer bit = idx.get(space);
+            if (bit != null) day.slots.computeIfAbsent(time, t -> new BitSet(sorted.length)).set(bit);
+            bookings.put(orderNumber, new Booking(date, time, space));
+        }
+
+        coveredFrom = LocalDate.now();
+        System.out.println("✔️ Reservation calendar loaded: " + bookings.size() + " upcoming orders over " + days.size() + " days.");
+    }
+
+    /**
+     * @param date a reservation date.
+     * @return true if the calendar can answer for this date.
+     */
+    public boolean covers(LocalDate date) {
+        LocalDate from = coveredFrom;
+        return from != null && !date.isBefore(from);
+    }
+
+    /**
+     * Checks the daily cap and holds a free space at the given time.
+     * The hold counts toward the cap right away; call {@link #confirm} once the order is stored
+     * or {@link #release} if storing it failed.
+     *
+     * @param date the reservation date (must be {@link #covers covered}).
+     * @param time the reservation time.
+     * @return the held parking space, {@link #OVER_CAPACITY} or {@link #NO_SPACE}.
+     */
+    public int hold(LocalDate date, LocalTime time) {
+        pruneIfNewDay();
+        int[] lot = spaces;
+        Day day = days.computeIfAbsent(date, d -> new Day());
+        synchronized (day) {
+            if (day.orders >= DAILY_CAP * lot.length) return OVER_CAPACITY;
+
+            BitSet booked = day.slots.computeIfAbsent(time, t -> new BitSet(lot.length));
+            int bit = booked.nextClearBit(0);
+            if (bit >= lot.length) return NO_SPACE;
+
+            booked.set(bit);
+            day.orders++;
+            return lot[bit];
+        }
+    }
+
+    /**
+     * Records the order number of a held space so it can be cancelled or moved later.
+     */
+    public void confirm(int orderNumber, LocalDate date, LocalTime time, int space) {
+        bookings.put(orderNumber, new Booking(date, time, space));
+    }
+
+    /**
+     * Gives back a space held with {@link #hold} whose order was never stored.
+     */
+    public void release(LocalDate date, LocalTime time, int space) {
+        unbook(date, time, space);
+    }
+
+    /**
+     * Counts a walk-in order toward the daily cap of its date.
+     */
+    public void countWalkIn(LocalDate date) {
+        if (!covers(date)) return;
+        Day day = days.computeIfAbsent(date, d -> new Day());
+        synchronized (day) {
+            day.orders++;
+        }
+    }
+
+    /**
+     * Removes a cancelled order: its space is free again at that time and it no longer counts toward the cap.
+     *
+     * @param orderNumber the cancelled order.
+     */
+    public void cancel(int orderNumber) {
+        Booking booking = bookings.remove(orderNumber);
+        if (booking != null) unbook(booking.date(), booking.time(), booking.space());
+    }
+
+    /**
+     * Moves an order to another date and/or parking space (same time of day).
+     *
+     * @param orderNumber the edited order.
+     * @param newDate     its new date.
+     * @param newSpace    its new parking space.
+     */
+    public void move(int orderNumber, LocalDate newDate, int newSpace) {
+        Booking booking = bookings.remove(orderNumber);
+        if (booking == null) return;
+        unbook(booking.date(), booking.time(), booking.space());
+
+        if (!covers(newDate)) return;
+        Day day = days.computeIfAbsent(newDate, d -> new Day());
+        synchronized (day) {
+            day.orders++;
+            Integer bit = index.get(newSpace);
+            if (bit != null) day.slots.computeIfAbsent(booking.time(), t -> new BitSet(spaces.length)).set(bit);
+        }
+        bookings.put(orderNumber, new Booking(newDate, booking.time(), newSpace));
+    }
+
+    /**
+     * Once a day, drops dates before today; from then on those dates are answered by the database.
+     */
+    private void pruneIfNewDay() {
+        LocalDate today = LocalDate.now();
+        LocalDate from = coveredFrom;
+        if (from == null || !from.isBefore(today)) return;
+
+        coveredFrom = today;
+        days.keySet().removeIf(date -> date.isBefore(today));
+        bookings.values().removeIf(b -> b.date().isBefore(today));
+    }
+
+    /**
+     * @return true once {@link #load} has run.
+     */
+    public boolean isLoaded() {
+        return coveredFrom != null;
+    }
+
+    private void unbook(LocalDate date, LocalTime time, int space) {
+        Day day = days.get(date);
+        if (day == null) return;
+        synchronized (day) {
+            if (day.orders > 0) day.orders--;
+            BitSet booked = day.slots.get(time);
+            Integer bit = index.get(space);
+            if (booked != null && bit != null) booked.clear(bit);
+        }
+    }
+}
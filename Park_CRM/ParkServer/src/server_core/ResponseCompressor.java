@@ -0,0 +1,155 @@
+package server_core;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Deflates large encoded responses for clients that announced compression support in HELLO.
+ * A compressed message is the {@link PacketCodec#DEFLATED} marker byte followed by a zlib stream;
+ * {@link PacketCodec#decode(Object)} inflates it transparently.
+ *
+ * <p>{@link Deflater}s are pooled and reset between responses instead of being created per message.
+ * Per command it counts responses, compressed responses, encoded and wire bytes and the time
+ * spent compressing, so the threshold can be tuned from {@link #getStats()}. The JVM has no CPU
+ * time for virtual threads, so compression done on one is timed by the wall clock and reported
+ * apart from the CPU time of platform threads.</p>
+ */
+public class ResponseCompressor {
+
+    /** Default smallest encoded response worth compressing, in bytes. */
+    public static final int DEFAULT_THRESHOLD = 8 * 1024;
+
+    /** Idle deflaters kept for reuse; more are created under load and ended when returned. */
+    private static final int MAX_POOLED = 8;
+
+    /** Counters of one command. */
+    private static final class CommandStats {
+        private final LongAdder responses = new LongAdder();
+        private final LongAdder compressed = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final LongAdder cpuNanos = new LongAdder();
+        private final LongAdder wallNanos = new LongAdder();
+    }
+
+    private final int threshold;
+    private final Queue<Deflater> pool = new ConcurrentLinkedQueue<>();
+    private final Map<String, CommandStats> stats = new ConcurrentHashMap<>();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTimeSupported = threads.isCurrentThreadCpuTimeSupported();
+    private final AtomicBoolean wallTimeLogged = new AtomicBoolean();
+
+    /**
+     * @param threshold Smallest encoded response, in bytes, that is compressed.
+     */
+    public ResponseCompressor(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return The configured threshold in bytes.
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Compresses an encoded response if the client supports it and it is large enough.
+     * Responses that do not shrink are sent as they are.
+     *
+     * @param command  The response command, used for the metrics.
+     * @param encoded  The {@link PacketCodec} bytes of the response.
+     * @param accepted true if the client announced compression support.
+     * @return The bytes to send.
+     */
+    public byte[] compress(String command, byte[] encoded, boolean accepted) {
+        CommandStats s = stats.computeIfAbsent(command == null ? "?" : command, c -> new CommandStats());
+        s.responses.increment();
+        s.bytesIn.add(encoded.length);
+        if (!accepted || encoded.length < threshold) {
+            s.bytesOut.add(encoded.length);
+            return encoded;
+        }
+
+        boolean cpuTime = cpuTimeSupported && !Thread.currentThread().isVirtual();
+        if (!cpuTime && wallTimeLogged.compareAndSet(false, true)) {
+            System.out.println("⚠️ No thread CPU time " + (cpuTimeSupported ? "on virtual threads" : "on this JVM")
+                    + "; their compression time is reported as wall time (wall_us), not cpu_us.");
+        }
+        long t0 = cpuTime ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+        Deflater deflater = pool.poll();
+        if (deflater == null) deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        byte[] out;
+        try {
+            deflater.setInput(encoded);
+            deflater.finish();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(encoded.length / 4 + 16);
+            buffer.write(PacketCodec.DEFLATED);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                buffer.write(chunk, 0, n);
+            }
+            out = buffer.toByteArray();
+        } finally {
+            deflater.reset();
+            if (pool.size() < MAX_POOLED) pool.offer(deflater);
+            else deflater.end();
+        }
+        if (cpuTime) s.cpuNanos.add(threads.getCurrentThreadCpuTime() - t0);
+        else s.wallNanos.add(System.nanoTime() - t0);
+
+        if (out.length >= encoded.length) {
+            s.bytesOut.add(encoded.length);
+            return encoded;
+        }
+        s.compressed.increment();
+        s.bytesOut.add(out.length);
+        return out;
+    }
+
+    /**
+     * Returns compression metrics per response command.
+     *
+     * @return A map of command to an ordered map with the keys: responses, compressed, bytes_in,
+     *         bytes_out, ratio_pct (wire bytes as a percentage of encoded bytes), cpu_us
+     *         (CPU time spent compressing on platform threads) and wall_us (wall time spent
+     *         compressing on virtual threads).
+     */
+    public Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> result = new TreeMap<>();
+        for (Map.Entry<String, CommandStats> e : stats.entrySet()) {
+            CommandStats s = e.getValue();
+            long in = s.bytesIn.sum();
+            long out = s.bytesOut.sum();
+            Map<String, Long> row = new LinkedHashMap<>();
+            row.put("responses", s.responses.sum());
+            row.put("compressed", s.compressed.sum());
+            row.put("bytes_in", in);
+            row.put("bytes_out", out);
+            row.put("ratio_pct", in == 0 ? 100 : Math.round(100.0 * out / in));
+            row.put("cpu_us", s.cpuNanos.sum() / 1_000);
+            row.put("wall_us", s.wallNanos.sum() / 1_000);
+            result.put(e.getKey(), row);
+        }
+        return result;
+    }
+
+    /**
+     * Releases the pooled deflaters.
+     */
+    public void close() {
+        Deflater d;
+        while ((d = pool.poll()) != null) d.end();
+    }
+}
@@ -3,13 +3,13 @@ package server_core;
 import java.io.File;
 import java.io.FileWriter;	
 import java.io.IOException;
-import java.sql.Connection;
+import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
@@ -19,9 +19,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
-import com.google.gson.*;
 
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
@@ -31,42 +29,118 @@ import ocsf.server.*;
  * ServerCore is the main server-side controller extending AbstractServer.
  * It handles incoming client requests, manages threads for monitoring parking orders and generating monthly reports,
  * and interfaces with the database via the DBhandler.
+ *
+ * <p>Clients are served by OCSF (a thread per connection) or by {@link NioServer} (a few selector
+ * threads), chosen with {@link Transport}. Both deliver the same {@link ClientHandler} callbacks,
+ * so the command handlers work on {@link ClientChannel}s whatever the transport.</p>
  */
-public class ServerCore extends AbstractServer {
+public class ServerCore extends AbstractServer implements ClientHandler {
+
+	/** How client connections are served. */
+	public enum Transport {
+		/** OCSF: a blocking reader thread per connection. */
+		OCSF,
+		/** {@link NioServer}: non-blocking channels on a few selector threads. */
+		NIO
+	}
+
+	/** USER_HISTORY rows per page when the client does not ask for a size. */
+	private static final int HISTORY_PAGE_SIZE = 50;
+
+	/** Largest USER_HISTORY page a client may ask for. */
+	private static final int MAX_HISTORY_PAGE_SIZE = 500;
 
 	private String ip;
 	private int port;
-	private Connection con;
+	private final Transport transport;
+	private NioServer nioServer;
+	private DBconnector db;
 	private DBhandler dbhandler;
+	private final ParkingAllocator allocator = new ParkingAllocator();
+	private final ReservationCalendar calendar = new ReservationCalendar();
+	private final LotSnapshot lot = new LotSnapshot();
+	private final DeadlineScheduler deadlines = new DeadlineScheduler();
+	private final LiveReportAggregator reports = new LiveReportAggregator();
+	private final ResponseCompressor compressor = new ResponseCompressor(
+			Integer.getInteger("bpark.compress.threshold", ResponseCompressor.DEFAULT_THRESHOLD));
+	private final AdmissionController admission;
+	private final RateLimiter rateLimiter = new RateLimiter();
+	private final CommandExecutor executor;
+	private final ParkingDeltaPublisher parkingDeltas = ParkingDeltaPublisher.following(lot,
+			Integer.getInteger("bpark.parking.delta.ms", ParkingDeltaPublisher.DEFAULT_WINDOW_MS));
 	private OrderMonitorThread monitorThread;
+	private ParkingReconcileThread reconcileThread;
 	private MonthlyReportsThread reportsThread;
+	private PartitionMaintenanceThread partitionThread;
 	private ReportsCSV CSV;
-	private Map<ConnectionToClient,String > connectedClients;
-	private final ObservableList<String> logList = FXCollections.observableArrayList();
-	private final ObservableList<String> liveClients = FXCollections.observableArrayList();
+	private final SessionRegistry sessions = new SessionRegistry();
 
 
 	// =================== System Commands -- START ===================
 
 	/**
-	 * Constructs the ServerCore with IP, port, and a database connection.
+	 * Constructs the ServerCore with IP, port, and a database connection pool, served by OCSF.
 	 *
 	 * @param ip   the IP address of the server
 	 * @param port the port number to listen on
-	 * @param con  the JDBC database connection
+	 * @param db   the started JDBC connection pool
+	 */
+	public ServerCore(String ip, int port, DBconnector db) {
+		this(ip, port, db, Transport.OCSF);
+	}
+
+	/**
+	 * Constructs the ServerCore with IP, port, a database connection pool and a transport.
+	 *
+	 * @param ip        the IP address of the server
+	 * @param port      the port number to listen on
+	 * @param db        the started JDBC connection pool
+	 * @param transport how client connections are served
 	 */
-	public ServerCore(String ip, int port, Connection con) {
+	public ServerCore(String ip, int port, DBconnector db, Transport transport) {
 		super(port);
 		this.ip = ip;
 		this.port = port;
-		this.con = con;
-		dbhandler = new DBhandler(con);
+		this.transport = transport;
+		this.db = db;
+		dbhandler = new DBhandler(db, allocator, calendar, lot, deadlines, reports);
+		Map<Integer, String> parkingStatuses = dbhandler.getParkingStatuses();
+		if (parkingStatuses != null) {
+			allocator.load(parkingStatuses);
+			List<Map<String, String>> upcomingOrders = dbhandler.getUpcomingOrders();
+			if (upcomingOrders != null) calendar.load(parkingStatuses.keySet(), upcomingOrders);
+		}
+		List<Map<String, String>> lotRows = dbhandler.getLotRows();
+		if (lotRows != null) lot.load(lotRows);
+		loadLiveReports();
 		CSV = new ReportsCSV();
-		monitorThread = new OrderMonitorThread(dbhandler);
-		reportsThread = new MonthlyReportsThread(dbhandler, CSV);
+		monitorThread = new OrderMonitorThread(dbhandler, deadlines);
+		reportsThread = new MonthlyReportsThread(dbhandler, CSV, reports,
+				Long.getLong("bpark.reports.flush.ms", MonthlyReportsThread.DEFAULT_FLUSH_MS));
+		reconcileThread = new ParkingReconcileThread(dbhandler, allocator, lot);
+		partitionThread = new PartitionMaintenanceThread(dbhandler, 3,
+				Integer.getInteger("bpark.history.retention.months", 0));
 		monitorThread.start();
 		reportsThread.start();
-		connectedClients = new HashMap<>();
+		reconcileThread.start();
+		partitionThread.start();
+		admission = new AdmissionController(Integer.getInteger("bpark.db.tasks", db.getMaxSize()),
+				Long.getLong("bpark.admission.wait.ms", AdmissionController.DEFAULT_MAX_WAIT_MS));
+		executor = new CommandExecutor(admission,
+				"inline".equals(System.getProperty("bpark.commands.executor")));
+	}
+
+	/**
+	 * Counts the current month's history into the live reports; this is the only time
+	 * the month's history is read. If a query fails, reports come from the CSVs only.
+	 */
+	private void loadLiveReports() {
+		YearMonth now = YearMonth.now();
+		String month = String.format("%02d", now.getMonthValue());
+		String year = String.valueOf(now.getYear());
+		List<Map<String, String>> users = dbhandler.getMonthlyUsersReport(month, year);
+		List<Map<String, String>> parking = dbhandler.getMonthlyParkingReport(month, year);
+		if (users != null && parking != null) reports.load(now, users, parking);
 	}
 
 	/**
@@ -79,6 +153,73 @@ public class ServerCore extends AbstractServer {
 		return dbhandler.setAPIkeys(recoveryAPI, ordersMonitorAPI);
 	}
 
+	/**
+	 * Returns the current statistics of the database connection pool.
+	 *
+	 * @return pool statistics (active, idle, waiters, wait times, timeouts, leaks)
+	 */
+	public Map<String, Long> getPoolStats() {
+		return db.getPoolStats();
+	}
+
+	/**
+	 * Returns the response compression statistics per command.
+	 *
+	 * @return per command: responses, compressed, bytes_in, bytes_out, ratio_pct, cpu_us, wall_us
+	 */
+	public Map<String, Map<String, Long>> getCompressionStats() {
+		return compressor.getStats();
+	}
+
+	/**
+	 * Returns the statistics of the command executor.
+	 *
+	 * @return submitted, completed, failed, rejected, running, clients with commands pending
+	 */
+	public Map<String, Long> getCommandStats() {
+		return executor.getStats();
+	}
+
+	/**
+	 * Returns the admission statistics per priority class.
+	 *
+	 * @return per class: limit, queue_limit, running, queued, completed, rejected, timed_out, max_wait_ms
+	 */
+	public Map<String, Map<String, Long>> getAdmissionStats() {
+		return admission.getStats();
+	}
+
+	/**
+	 * Returns the rate limit statistics per limited command.
+	 *
+	 * @return per command: allowed and rejected per scope; the number of buckets kept
+	 */
+	public Map<String, Map<String, Long>> getRateLimitStats() {
+		return rateLimiter.getStats();
+	}
+
+	/**
+	 * Returns the statistics of the PARKING_DELTA pushes.
+	 *
+	 * @return subscribers, changes, rows_sent, packets_sent, dropped
+	 */
+	public Map<String, Long> getParkingDeltaStats() {
+		return parkingDeltas.getStats();
+	}
+
+	/**
+	 * Generates the report CSVs of every past month that is missing or out of date.
+	 * Blocks until done; run it off the FX thread. Uses a quarter of the connection pool
+	 * by default, so clients keep being served ({@code -Dbpark.backfill.parallelism}).
+	 *
+	 * @param listener called with the progress after every month, from the backfill threads
+	 * @return the final progress, or null if the history could not be read
+	 */
+	public ReportBackfill.Progress backfillReports(Consumer<ReportBackfill.Progress> listener) {
+		int parallelism = Integer.getInteger("bpark.backfill.parallelism", Math.max(1, db.getMaxSize() / 4));
+		return new ReportBackfill(dbhandler, CSV, parallelism).run(null, null, false, listener);
+	}
+
 	/**
 	 * Starts the server and begins listening for client connections.
 	 *
@@ -86,8 +227,13 @@ public class ServerCore extends AbstractServer {
 	 */
 	public boolean start() {
 		try {
-			this.listen();
-			System.out.println("✔️ Server is now listening on port " + getPort());
+			if (transport == Transport.NIO) {
+				nioServer = new NioServer(port, this, Integer.getInteger("bpark.nio.selectors", NioServer.DEFAULT_SELECTORS));
+				nioServer.listen();
+			} else {
+				this.listen();
+			}
+			System.out.println("✔️ Server is now listening on port " + getPort() + " (" + transport + ")");
 			return true;
 		} catch (Exception e) {
 			System.err.println("❌ Failed to start server: " + e.getMessage());
@@ -99,18 +245,19 @@ public class ServerCore extends AbstractServer {
 	 * Stops the server and its associated monitoring threads.
 	 */
 	public void stop() {
-		Gson Gson = new Gson();
 		CommandPacket response = new CommandPacket();
 		response.setCommand("SHUTDOWN");
 		response.setAnswer(200);
 		response.setDescription("The server is inactive, please try again later.");
-		this.sendToAllClients(Gson.toJson(response));
+		if (nioServer != null) nioServer.sendToAllClients(PacketCodec.encode(response));
+		else this.sendToAllClients(PacketCodec.encode(response));
 		try {
 			Thread.sleep(300);
 		} catch (InterruptedException e) {}
 		
 		try {
-			this.close();
+			if (nioServer != null) nioServer.close();
+			else this.close();
 			System.out.println("✔️ Server has been stopped.");
 			if (monitorThread != null) {
 				monitorThread.stopMonitoring();
@@ -120,135 +267,214 @@ public class ServerCore extends AbstractServer {
 				reportsThread.stopThread();
 				System.out.println("✔️ Report Thread has been stopped.");
 			}
+			if (reconcileThread != null) {
+				reconcileThread.stopReconcile();
+				System.out.println("✔️ Parking Reconcile Thread has been stopped.");
+			}
+			if (partitionThread != null) {
+				partitionThread.stopThread();
+				System.out.println("✔️ Partition Maintenance Thread has been stopped.");
+			}
+			executor.close();
+			parkingDeltas.close();
+			compressor.close();
 		} catch (Exception e) {
 			System.err.println("❌ Error while stopping server: " + e.getMessage());
 		}
 	}
 	
 	/**
-	 * Called when a client connects. Logs the client's IP and hostname.
-	 *
-	 * @param client the client connection
+	 * OCSF callbacks: forwarded to the {@link ClientHandler} methods below.
 	 */
 	@Override
 	protected void clientConnected(ConnectionToClient client) {
+		clientConnected(OcsfClientChannel.of(client));
 	}
 
-	/**
-	 * Called when a client disconnects. Logs the disconnect event.
-	 *
-	 * @param client the client that disconnected
-	 */
 	@Override
 	synchronized protected void clientDisconnected(ConnectionToClient client) {
-	    String ip = (String) client.getInfo("user_ip");
-	    String userId = (String) client.getInfo("user_id");
-	    boolean terminated = (boolean) client.getInfo("terminated");
-	    liveRemove(userId);
-	    logDisconnect(userId, ip, !terminated);
+		clientDisconnected(OcsfClientChannel.of(client));
 	}
 
+	@Override
+	protected void handleMessageFromClient(Object msg, ConnectionToClient client) {
+		handleMessageFromClient(msg, OcsfClientChannel.of(client));
+	}
+
+	@Override
+	protected void clientException(ConnectionToClient client, Throwable exception) {
+		clientException(OcsfClientChannel.of(client), exception);
+	}
 
-	
 	/**
-	 * Logs a connection event for a user.
-	 * The log entry includes the current time, user ID, IP address, and host name.
-	 * The entry is added to the `logList`.
+	 * Called when a client connects. Logs the client's IP and hostname.
 	 *
-	 * @param userId the ID of the user
-	 * @param ip     the IP address of the user
-	 * @param host   the host name of the user
+	 * @param client the client connection
 	 */
-	private void logConnect(String userId, String ip, String host) {
-	    String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm"));
-	    String entry = String.format("[%s] | Connected | UserId: %s | IP:%s | Host:%s", time, userId, ip, host);
-	    logList.add(entry);
+	@Override
+	public void clientConnected(ClientChannel client) {
 	}
 
 	/**
-	 * Logs a disconnection event for a user.
-	 * The log entry includes the current time, user ID, IP address, and the reason (safe disconnect or termination).
-	 * The entry is added to the `logList`.
+	 * Called when the server closes a client connection. Ends its session, if any.
+	 * Sessions ended by LOGOUT or a forced login are already gone and logged.
 	 *
-	 * @param userId the ID of the user
-	 * @param ip     the IP address of the user
-	 * @param safe   true if the disconnection was safe, false if it was terminated
+	 * @param client the client that disconnected
 	 */
-	private void logDisconnect(String userId, String ip, boolean safe) {
-	    String reason = safe ? "Disconnected" : "Terminated";
-	    String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm"));
-	    String entry = String.format("[%s] | %s | UserId: %s | IP: %s", time, reason, userId, ip);
-	    logList.add(entry);
+	@Override
+	public void clientDisconnected(ClientChannel client) {
+	    endSession(client, "Disconnected");
 	}
 
 	/**
-	 * Adds a user to the list of live clients.
-	 * The entry includes the current time, user ID, and IP address.
+	 * Called when a connection breaks without a LOGOUT (the client crashed or the network dropped).
+	 * Ends its session, so the user can log in again without forcing it.
 	 *
-	 * @param userId the ID of the user
-	 * @param ip     the IP address of the user
+	 * @param client    the broken connection
+	 * @param exception the reason
 	 */
-	public void liveAdd(String userId, String ip) {
-	    String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm"));
-	    String display = String.format("[%s] | Connected | User_ID: %s | IP: %s", time, userId, ip);
-	    liveClients.add(display);
+	@Override
+	public void clientException(ClientChannel client, Throwable exception) {
+	    endSession(client, "Disconnected");
 	}
 
 	/**
-	 * Removes a user from the list of live clients.
-	 * The removal is based on a partial match of the user ID in the entries.
+	 * Forgets everything kept for a connection and ends its session, if any.
 	 *
-	 * @param userId the ID of the user to remove
+	 * @param client the connection
+	 * @param event  what to log: Disconnected or Terminated
 	 */
-	public void liveRemove(String userId) {
-	    liveClients.removeIf(entry -> entry.contains("User_ID: " + userId));
+	private void endSession(ClientChannel client, String event) {
+	    parkingDeltas.unsubscribe(client);
+	    rateLimiter.forget(client);
+	    sessions.remove(client, event);
 	}
 
 	/**
-	 * Retrieves the list of live clients.
+	 * Retrieves the login entries of the users connected now.
 	 *
-	 * @return an observable list of live client entries
+	 * @return an observable list kept up to date by the session registry
 	 */
-	public ObservableList<String> getLiveClients() {
-	    return liveClients;
+	public ObservableList<SessionRegistry.ConnectionEvent> getLiveClients() {
+	    return sessions.getLive();
 	}
 
 	/**
-	 * Retrieves the connection log list.
+	 * Retrieves the connection log.
 	 *
 	 * @return an observable list of log entries
 	 */
-	public ObservableList<String> getLogList() {
-	    return logList;
+	public ObservableList<SessionRegistry.ConnectionEvent> getLogList() {
+	    return sessions.getLog();
 	}
 
 
 	/**
 	 * Main message dispatcher for handling client requests.
+	 * The packet is decoded on the connection's thread and the command is handed to the
+	 * {@link CommandExecutor}, which runs the commands of each client in order on virtual threads.
+	 * Commands over their rate limit are answered 429 on the spot (see {@link RateLimiter}), and
+	 * commands of a saturated priority class 503 (see {@link AdmissionController}).
 	 *
-	 * @param msg    the JSON-encoded CommandPacket from the client
+	 * @param msg    the CommandPacket from the client, as {@link PacketCodec} bytes or a JSON string
 	 * @param client the client connection
 	 */
 	@Override
-	protected void handleMessageFromClient(Object msg, ConnectionToClient client) {
-	    if (!(msg instanceof String json)) return;
-	    Gson Gson = new Gson();
-	    CommandPacket packet = Gson.fromJson(json, CommandPacket.class);
+	public void handleMessageFromClient(Object msg, ClientChannel client) {
+	    CommandPacket packet;
+	    try {
+	        packet = PacketCodec.decode(msg, false); // clients never send deflated messages
+	    } catch (IOException e) {
+	        System.err.println("❌ " + e.getMessage());
+	        return;
+	    }
+	    if (packet == null || packet.getCommand() == null) return;
 	    String request = packet.getCommand().toUpperCase();
-	    Map<String, String> args = packet.getArgs();
-	    CommandPacket response = new CommandPacket();
 
 	    System.out.println("📥 Received CommandPacket: " + packet);
 
+	    SessionRegistry.Session session = sessions.get(client);
+	    long retryAfterMs = rateLimiter.tryAcquire(request, client, packet.getArgs(),
+	            session == null ? null : session.userId());
+	    if (retryAfterMs > 0) {
+	        rateLimited(request, packet, msg, client, retryAfterMs);
+	        return;
+	    }
+	    executor.submit(client, AdmissionController.Priority.of(request),
+	            () -> executeCommand(request, packet, msg, client),
+	            () -> rejectCommand(request, packet, msg, client));
+	}
+
+	/**
+	 * Answers 429 to a command over its rate limit, without running it.
+	 *
+	 * @param request      the command name, upper case
+	 * @param packet       the decoded request
+	 * @param msg          the message as received, to answer in the same form
+	 * @param client       the client connection
+	 * @param retryAfterMs milliseconds until the command would be allowed
+	 */
+	private void rateLimited(String request, CommandPacket packet, Object msg, ClientChannel client, long retryAfterMs) {
+	    CommandPacket response = new CommandPacket();
+	    response.setCommand(request);
+	    response.setRequestId(packet.getRequestId());
+	    response.setAnswer(429);
+	    response.setDescription("Too many attempts, please try again in " + Math.max(1, retryAfterMs / 1000) + " seconds.");
+	    response.setArgs(Map.of("retry_after_ms", String.valueOf(retryAfterMs)));
+	    System.err.println("⚠️ Rate limited " + request + " from " + client);
+	    try {
+	        client.sendToClient(encodeFor(client, msg, response));
+	    } catch (IOException e) {
+	        System.err.println("❌ Failed to send rate limit response: " + e.getMessage());
+	    }
+	}
+
+	/**
+	 * Answers 503 to a command that admission control turned away.
+	 *
+	 * @param request the command name, upper case
+	 * @param packet  the decoded request
+	 * @param msg     the message as received, to answer in the same form
+	 * @param client  the client connection
+	 */
+	private void rejectCommand(String request, CommandPacket packet, Object msg, ClientChannel client) {
+	    CommandPacket response = new CommandPacket();
+	    response.setCommand(request);
+	    response.setRequestId(packet.getRequestId());
+	    response.setAnswer(503);
+	    response.setDescription("Server is busy, please try again.");
+	    System.err.println("⚠️ Rejected " + request + " (" + AdmissionController.Priority.of(request) + " saturated)");
+	    try {
+	        client.sendToClient(encodeFor(client, msg, response));
+	    } catch (IOException e) {
+	        System.err.println("❌ Failed to send busy response: " + e.getMessage());
+	    }
+	}
+
+	/**
+	 * Runs one command and sends its response (every command except LOGOUT has one).
+	 *
+	 * @param request the command name, upper case
+	 * @param packet  the decoded request
+	 * @param msg     the message as received, to answer in the same form
+	 * @param client  the client connection
+	 */
+	private void executeCommand(String request, CommandPacket packet, Object msg, ClientChannel client) {
+	    Map<String, String> args = packet.getArgs();
+	    CommandPacket response = new CommandPacket();
+	    response.setRequestId(packet.getRequestId()); // echoed so the client can match the response
+
 	    try {
 	        switch (request) {
 	        	// General commands
 	            case "LOGIN" -> loginHandler(response, args, client);
 	            case "LOGOUT" -> logoutHandler(client);
+	            case "HELLO" -> helloHandler(response, args, client);
 
 	            // Admin commands
 	            case "CREATE" -> createHandler(response, args);
 	            case "CURRENT_PARKING" -> CurrentParkingHandler(response, args);
+	            case "SUBSCRIBE_PARKING" -> SubscribeParkingHandler(response, client);
 	            case "REPORT" -> ReporteHandler(response, args);
 
 	            // User commands
@@ -270,14 +496,16 @@ public class ServerCore extends AbstractServer {
 
 	        if (!request.equals("LOGOUT")) {
 	        	System.out.println("📤 Sending CommandPacket: " + response);
-	            client.sendToClient(Gson.toJson(response));
+	            client.sendToClient(encodeFor(client, msg, response));
 	        }
 	    } catch (Exception e) {
 	        try {
 	            response = new CommandPacket();
+	            response.setCommand(request);
+	            response.setRequestId(packet.getRequestId());
 	            response.setAnswer(503);
-	            response.setArgs(Map.of("error", e.getMessage()));
-	            client.sendToClient(response);
+	            response.setArgs(Map.of("error", String.valueOf(e.getMessage())));
+	            client.sendToClient(encodeFor(client, msg, response));
 	        } catch (Exception ignored) {
 	            System.err.println("❌ Failed to send error response: " + ignored.getMessage());
 	        }
@@ -285,6 +513,25 @@ public class ServerCore extends AbstractServer {
 	    }
 	}
 
+	/**
+	 * Encodes a response in the form the request came in: {@link PacketCodec} bytes,
+	 * or a JSON string for clients that still send strings.
+	 * Tables are sent columnar to clients that asked for it at LOGIN, and large responses are
+	 * deflated for clients that announced compression in HELLO.
+	 *
+	 * @param client   the client the response goes to
+	 * @param request  the message received from the client
+	 * @param response the response to send back
+	 * @return the message to pass to {@code sendToClient}
+	 */
+	private Object encodeFor(ClientChannel client, Object request, CommandPacket response) {
+	    if (request instanceof String) {
+	        return new String(PacketCodec.encode(response), StandardCharsets.UTF_8);
+	    }
+	    byte[] encoded = PacketCodec.encode(response, PacketCodec.COLUMNAR.equals(client.getInfo("table_format")));
+	    return compressor.compress(response.getCommand(), encoded, Boolean.TRUE.equals(client.getInfo("compression")));
+	}
+
 	/**
 	 * Fallback handler for unrecognized commands.
 	 *
@@ -358,8 +605,18 @@ private void createHandler(CommandPacket response, Map<String, String> args) {
 	private void CurrentParkingHandler(CommandPacket response, Map<String, String> args) {
 	    response.setCommand("CURRENT_PARKING");
 	
-	    List<Map<String, String>> table = dbhandler.getParkingTable();
-	    String percent = dbhandler.getParkingUsagePercent();
+	    // Served from the in-memory snapshot; the tables are only read until it is loaded
+	    List<Map<String, String>> table;
+	    String percent;
+	    if (lot.isLoaded()) {
+	        LotSnapshot.View view = lot.view();
+	        table = view.table();
+	        percent = view.percent();
+	        response.setArgs(Map.of("version", String.valueOf(view.version())));
+	    } else {
+	        table = dbhandler.getParkingTable();
+	        percent = dbhandler.getParkingUsagePercent();
+	    }
 	
 	    if (table == null) {
 	        response.setAnswer(500);
@@ -371,6 +628,23 @@ private void createHandler(CommandPacket response, Map<String, String> args) {
 	    response.setDescription(percent); // capacity percentage
 	    response.setTable(table);
 	}
+
+	/**
+	 * Handles the parking subscription of a manager console.
+	 * Answers like CURRENT_PARKING, and from then on the client is sent a PARKING_DELTA with the
+	 * rows that changed. It is subscribed before the table is read, so no change is missed;
+	 * a delta may have been collected before the table was read, and the client drops it by
+	 * comparing the {@code version} args.
+	 *
+	 * @param response The `CommandPacket` to store the response.
+	 * @param client   The client to subscribe.
+	 */
+	private void SubscribeParkingHandler(CommandPacket response, ClientChannel client) {
+	    parkingDeltas.subscribe(client);
+	    CurrentParkingHandler(response, null);
+	    response.setCommand("SUBSCRIBE_PARKING");
+	    if (response.getAnswer() != 200) parkingDeltas.unsubscribe(client);
+	}
 	
 	/**
 	 * Handles the generation of reports (users or parking) for a specific month and year.
@@ -394,12 +668,15 @@ private void createHandler(CommandPacket response, Map<String, String> args) {
 	
 	    List<Map<String, String>> reportTable;
 	
+	    // The current month comes straight from the live counters
+	    LiveReportAggregator.Snapshot live = reports.covers(month, year) ? reports.current() : null;
+	
 	    switch (type.toUpperCase()) {
 	        case "USERS" -> {
-	            reportTable = CSV.loadFromCSV("USERS", year, month);
+	            reportTable = live != null ? live.users() : CSV.loadFromCSV("USERS", year, month);
 	        }
 	        case "PARKING" -> {
-	            reportTable = CSV.loadFromCSV("PARKING", year, month);
+	            reportTable = live != null ? live.parking() : CSV.loadFromCSV("PARKING", year, month);
 	        }
 	        default -> {
 	            response.setAnswer(400);
@@ -687,9 +964,9 @@ private void createHandler(CommandPacket response, Map<String, String> args) {
 	 * Verifies user credentials and returns user data if valid.
 	 *
 	 * @param response the response packet to populate
-	 * @param args     must include subscriber_email and subscriber_password
+	 * @param args     must include subscriber_email and subscriber_password; may include table_format=columnar
 	 */
-	private void loginHandler(CommandPacket response, Map<String, String> args,ConnectionToClient client) {
+	private void loginHandler(CommandPacket response, Map<String, String> args,ClientChannel client) {
 	    response.setCommand("LOGIN");
 
 	    try {
@@ -710,28 +987,33 @@ private void createHandler(CommandPacket response, Map<String, String> args) {
 	            return;
 	        }
 	        
-	        String userId = result.get("subscriber_id").trim();
-	        
-	        if (getClientConnection(userId) != null) {
-	            if ("true".equals(forceLogin)) {
-	                terminateUserSession(getClientConnection(userId));
-	            } else {
-	                response.setAnswer(403);
-	                response.setDescription("User already logged in.");
-	                return;
-	            }
-	        }
-	        
 	        if ("db".equals(result.get("error"))) {
 	            response.setAnswer(503);
 	            response.setDescription("Database error during login.");
-	        } else {
-	            response.setAnswer(200);
-	            response.setDescription("Login successful.");
-	            response.setArgs(result);
-	            initiateUserSession(userId, client);
+	            return;
 	        }
 
+	        // Checking and taking the session is one step, so two logins of one user cannot both pass
+	        String userId = result.get("subscriber_id").trim();
+	        boolean force = "true".equals(forceLogin);
+	        SessionRegistry.Session other = sessions.register(userId, client,
+	                client.getInetAddress().getHostAddress(), client.getInetAddress().getHostName(), force);
+	        if (other != null && !force) {
+	            response.setAnswer(403);
+	            response.setDescription("User already logged in.");
+	            return;
+	        }
+	        if (other != null) terminateUserSession(other.client());
+
+	        response.setAnswer(200);
+	        response.setDescription("Login successful.");
+	        if (PacketCodec.COLUMNAR.equals(args.get("table_format"))) {
+	            // Acknowledge so the client knows tables will come columnar from now on
+	            client.setInfo("table_format", PacketCodec.COLUMNAR);
+	            result.put("table_format", PacketCodec.COLUMNAR);
+	        }
+	        response.setArgs(result);
+
 	    } catch (Exception e) {
 	        response.setAnswer(500);
 	        response.setDescription("Server error: " + e.getMessage());
@@ -744,9 +1026,8 @@ private void createHandler(CommandPacket response, Map<String, String> args) {
 	 *
 	 * @param client the client to disconnect
 	 */
-	private void logoutHandler(ConnectionToClient client) {
-		client.setInfo("terminated", false);
-		connectedClients.remove(client);
+	private void logoutHandler(ClientChannel client) {
+		endSession(client, "Disconnected");
 		try {
 			client.close();
 		} catch (IOException e) {
@@ -755,6 +1036,28 @@ private void createHandler(CommandPacket response, Map<String, String> args) {
 	}
 
 
+	/**
+	 * Handles the HELLO command sent right after connecting.
+	 * Records the client's capabilities and answers with the ones the server will use.
+	 *
+	 * @param response the response packet to populate
+	 * @param args     may include compression=deflate
+	 * @param client   the client that sent the command
+	 */
+	private void helloHandler(CommandPacket response, Map<String, String> args, ClientChannel client) {
+	    response.setCommand("HELLO");
+	    response.setAnswer(200);
+
+	    boolean deflate = args != null && PacketCodec.DEFLATE.equals(args.get("compression"));
+	    client.setInfo("compression", deflate);
+
+	    Map<String, String> result = new HashMap<>();
+	    result.put("compression", deflate ? PacketCodec.DEFLATE : "none");
+	    result.put("compress_threshold", String.valueOf(compressor.getThreshold()));
+	    response.setArgs(result);
+	}
+
+
 	/**
 	 * Handles the user recovery command.
 	 * Retrieves user contact info and active parking status and triggers a Discord alert.
@@ -793,10 +1096,11 @@ private void createHandler(CommandPacket response, Map<String, String> args) {
 
 	/**
 	 * Handles the user history command.
-	 * Retrieves the user’s parking history and returns it as a table.
+	 * Returns one page of the user’s parking history as a table, newest first.
+	 * When more rows follow, the response args carry a {@code next_cursor} to pass back for the next page.
 	 *
 	 * @param response the response packet to populate
-	 * @param args     must include user_id
+	 * @param args     must include user_id; may include page_size (default 50, at most 500) and cursor
 	 */
 	private void UserHistoryHandler(CommandPacket response, Map<String, String> args) {
 	    response.setCommand("USER_HISTORY");
@@ -808,19 +1112,44 @@ private void createHandler(CommandPacket response, Map<String, String> args) {
 	    }
 
 	    String userId = args.get("user_id");
+	    String cursor = args.get("cursor");
+	    int pageSize;
+	    try {
+	        pageSize = args.containsKey("page_size") ? Integer.parseInt(args.get("page_size")) : HISTORY_PAGE_SIZE;
+	    } catch (NumberFormatException e) {
+	        pageSize = 0;
+	    }
+	    if (pageSize < 1 || pageSize > MAX_HISTORY_PAGE_SIZE) {
+	        response.setAnswer(400);
+	        response.setDescription("page_size must be between 1 and " + MAX_HISTORY_PAGE_SIZE + ".");
+	        return;
+	    }
 
 	    try {
-	        List<Map<String, String>> history = dbhandler.getUserHistory(userId);
+	        // One extra row tells whether another page follows
+	        List<Map<String, String>> history = dbhandler.getUserHistory(userId, pageSize + 1, cursor);
 
-	        if (history == null || history.isEmpty()) {
+	        if (history == null) {
+	            response.setAnswer(503);
+	            response.setDescription("Database error while reading parking history.");
+	        } else if (history.isEmpty()) {
 	            response.setAnswer(204); // No content
-	            response.setDescription("No parking history found for this user.");
+	            response.setDescription(cursor == null ? "No parking history found for this user." : "No more parking history.");
 	        } else {
+	            Map<String, String> page = new HashMap<>();
+	            if (history.size() > pageSize) {
+	                history.remove(pageSize);
+	                page.put("next_cursor", DBhandler.historyCursor(history.get(pageSize - 1)));
+	            }
 	            response.setAnswer(200);
 	            response.setDescription("Parking history retrieved successfully.");
+	            response.setArgs(page);
 	            response.setTable(history);
 	        }
 
+	    } catch (IllegalArgumentException e) {
+	        response.setAnswer(400);
+	        response.setDescription(e.getMessage());
 	    } catch (Exception e) {
 	        response.setAnswer(503);
 	        response.setDescription("Database error: " + e.getMessage());
@@ -836,84 +1165,34 @@ private void createHandler(CommandPacket response, Map<String, String> args) {
 	// ========================================================= Helper Methods -- Start =======================================================
 	
 	/**
-	 * Checks if a client is currently connected.
-	 *
-	 * @param client the client connection to check
-	 * @return true if the client is connected, false otherwise
-	 */
-	private boolean isClientConnected(ConnectionToClient client) {
-	    return connectedClients != null && connectedClients.containsKey(client);
-	}
-
-	/**
-	 * Terminates the session of a connected client.
-	 * Sends a logout notification to the client, removes the client from the connected clients map,
+	 * Terminates the connection of a session that a forced login replaced.
+	 * The session is already ended in the registry; this sends a logout notification to the client
 	 * and closes the client connection.
 	 *
 	 * @param client the client connection to terminate
 	 */
-	private void terminateUserSession(ConnectionToClient client) {
-	    if (isClientConnected(client)) {
-	        connectedClients.remove(client);
-	        try {
-	            CommandPacket logoutPacket = new CommandPacket();
-	            Gson Gson = new Gson();
-	            logoutPacket.setCommand("DISCONNECT");
-	            logoutPacket.setAnswer(200);
-	            logoutPacket.setDescription("New session was started.");
-	            client.sendToClient(Gson.toJson(logoutPacket));
-	        } catch (IOException e) {
-	            System.err.println("⚠️ Failed to send logout notification: " + e.getMessage());
-	        }
+	private void terminateUserSession(ClientChannel client) {
+	    try {
+	        CommandPacket logoutPacket = new CommandPacket();
+	        logoutPacket.setCommand("DISCONNECT");
+	        logoutPacket.setAnswer(200);
+	        logoutPacket.setDescription("New session was started.");
+	        client.sendToClient(PacketCodec.encode(logoutPacket));
+	    } catch (IOException e) {
+	        System.err.println("⚠️ Failed to send logout notification: " + e.getMessage());
 	    }
 
 	    try {
 	        Thread.sleep(300);
-	        client.setInfo("terminated", true);
 	        client.close();
 	    } catch (IOException | InterruptedException e) {
 	        System.err.println("❌ Failed to close socket: " + e.getMessage());
 	    }
 	}
-
-	/**
-	 * Initiates a user session by associating the user ID with the client connection.
-	 * Logs the connection event and adds the user to the list of live clients.
-	 *
-	 * @param userId the ID of the user
-	 * @param client the client connection
-	 */
-	private void initiateUserSession(String userId, ConnectionToClient client) {
-	    if (connectedClients != null) {
-	        connectedClients.put(client, userId);
-	    }
-	    String ip = client.getInetAddress().getHostAddress();
-	    String host = client.getInetAddress().getHostName();
-	    client.setInfo("user_id", userId);
-	    client.setInfo("user_ip", ip);
-	    client.setInfo("user_host", host);
-	    logConnect(userId, ip, host);
-	    liveAdd(userId, ip);
-	}
-
-	/**
-	 * Retrieves the client connection associated with a given user ID.
-	 *
-	 * @param userId the ID of the user
-	 * @return the client connection if found, or null if no connection exists for the user ID
-	 */
-	private ConnectionToClient getClientConnection(String userId) {
-	    for (Map.Entry<ConnectionToClient, String> entry : connectedClients.entrySet()) {
-	        if (entry.getValue().equals(userId)) {
-	            return entry.getKey();
-	        }
-	    }
-	    return null;
-	}
 	
 	/**
 	 * Exports the server connection log to a CSV file.
-	 * The log entries are parsed into a structured format and saved to a user-specified file.
+	 * The log entries are saved to a user-specified file, one row per entry.
 	 * If no log entries are available, the method exits with a warning message.
 	 *
 	 * The file name is pre-filled with the format "BparkConnectionLog_dd_MM_yyyy.csv",
@@ -922,8 +1201,8 @@ private void createHandler(CommandPacket response, Map<String, String> args) {
 	 * @see FileChooser for file selection dialog.
 	 */
 	public void exportLogToCSV() {
-	    List<Map<String, String>> parsedLog = parseLogList(logList);
-	    if (parsedLog.isEmpty()) {
+	    List<Map<String, String>> rows = logRows();
+	    if (rows.isEmpty()) {
 	        System.out.println("⚠️ No log entries to export.");
 	        return;
 	    }
@@ -936,7 +1215,7 @@ private void createHandler(CommandPacket response, Map<String, String> args) {
 	    File file = fileChooser.showSaveDialog(new Stage());
 
 	    if (file != null) {
-	        boolean success = ReportsCSV.savDataToCsv(file, parsedLog);
+	        boolean success = ReportsCSV.savDataToCsv(file, rows);
 	        if (success) {
 	            System.out.println("✔️ Log exported successfully to " + file.getAbsolutePath());
 	        } else {
@@ -945,55 +1224,29 @@ private void createHandler(CommandPacket response, Map<String, String> args) {
 	    }
 	}
 
-	
 	/**
-	 * Parses a list of log entries into a structured list of maps.
-	 * Each log entry is expected to follow the format:
-	 * [Time] | Event | UserId: <user_id> | IP: <ip_address> | Host: <host_name>
+	 * Converts the connection log into CSV rows.
 	 *
-	 * @param logList An observable list of log entries as strings.
-	 * @return A list of maps where each map represents a parsed log entry with keys:
-	 *         "color", "Time", "Event", "UserID", "IP", and "Host".
-	 *         The "color" key provides a color code based on the event type.
+	 * @return one map per entry with the keys "Time", "Event", "UserID", "IP" and "Host"
 	 */
-	private List<Map<String, String>> parseLogList(ObservableList<String> logList) {
-	    List<Map<String, String>> result = new ArrayList<>();
-
-	    for (String line : logList) {
-	        String[] parts = line.split("\\|");
-	        if (parts.length < 4) continue;
-
-	        String time = parts[0].trim().replaceAll("[\\[\\]]", "");
-	        String event = parts[1].trim();
-	        String userId = parts[2].trim().replace("UserId:", "").trim();
-	        String ip = parts[3].trim().replace("IP:", "").trim();
-	        String host = (parts.length >= 5) ? parts[4].trim().replace("Host:", "").trim() : "";
-	        
-	        String color = switch (event.toLowerCase()) {
-	        case "connected"    -> "224,240,227"; // #e0f0e3
-	        case "disconnected" -> "184,216,190"; // #b8d8be
-	        case "terminated"   -> "253,224,224"; // #fde0e0
-	        default             -> "";
-	        };
-
+	private List<Map<String, String>> logRows() {
+	    // Called from the log screen, on the JavaFX thread that owns the list
+	    List<SessionRegistry.ConnectionEvent> log = new ArrayList<>(sessions.getLog());
+	    List<Map<String, String>> result = new ArrayList<>(log.size());
+	    for (SessionRegistry.ConnectionEvent e : log) {
 	        Map<String, String> row = new LinkedHashMap<>();
-	        //row.put("color", color);
-	        row.put("Time", time);
-	        row.put("Event", event);
-	        row.put("UserID", userId);
-	        row.put("IP", ip);
-	        row.put("Host", host);
-
+	        row.put("Time", e.time().format(DateTimeFormatter.ofPattern("HH:mm")));
+	        row.put("Event", e.event());
+	        row.put("UserID", e.userId());
+	        row.put("IP", e.ip());
+	        row.put("Host", e.host());
 	        result.add(row);
 	    }
-
 	    return result;
 	}
 
 
 
-
-
 	// ========================================================= Helper Methods -- END =========================================================	
 	
 /*///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
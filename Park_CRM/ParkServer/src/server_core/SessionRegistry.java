@@ -0,0 +1,195 @@
+package server_core;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * The logged-in sessions, found by user ID or by connection in constant time.
+ *
+ * <p>Lookups read two concurrent maps without locking. Changes are made under the registry's lock
+ * so both maps, the connection log and the list of live sessions always agree; a user therefore
+ * has at most one session, even when two logins for the same account race.</p>
+ *
+ * <p>The server screen shows {@link #getLog()} and {@link #getLive()}. Both are kept up to date by
+ * the registry on the JavaFX thread, in the order the sessions changed. A disconnect finds its
+ * live entry through an index instead of searching the list, and the log keeps only the last
+ * {@code bpark.connections.log} entries (10000 by default).</p>
+ */
+public class SessionRegistry {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+    private static final int MAX_LOG = Math.max(1, Integer.getInteger("bpark.connections.log", 10_000));
+
+    /**
+     * One line of the connection log.
+     *
+     * @param time   When it happened.
+     * @param event  Connected, Disconnected or Terminated.
+     * @param userId The user of the session.
+     * @param ip     The client's IP address.
+     * @param host   The client's host name.
+     */
+    public record ConnectionEvent(LocalDateTime time, String event, String userId, String ip, String host) {
+
+        /** @return The line as shown on the server screen. */
+        @Override
+        public String toString() {
+            return "Connected".equals(event)
+                    ? String.format("[%s] | %s | UserId: %s | IP:%s | Host:%s", time.format(TIME), event, userId, ip, host)
+                    : String.format("[%s] | %s | UserId: %s | IP: %s", time.format(TIME), event, userId, ip);
+        }
+    }
+
+    /**
+     * A logged-in user on a connection.
+     *
+     * @param client    The connection.
+     * @param connected The log entry of the login, with the user and address.
+     */
+    public record Session(ClientChannel client, ConnectionEvent connected) {
+
+        public String userId() {
+            return connected.userId();
+        }
+    }
+
+    private final Map<String, Session> byUser = new ConcurrentHashMap<>();
+    private final Map<ClientChannel, Session> byClient = new ConcurrentHashMap<>();
+    private final ObservableList<ConnectionEvent> log = FXCollections.observableArrayList();
+    private final ObservableList<ConnectionEvent> live = FXCollections.observableArrayList();
+    private final Map<ConnectionEvent, Integer> liveIndex = new HashMap<>(); // JavaFX thread only
+
+    /**
+     * Starts a session for a user on a connection.
+     * A session the same connection had before is ended first (logged as Disconnected).
+     *
+     * @param userId  The user who logged in.
+     * @param client  The connection.
+     * @param ip      The client's IP address.
+     * @param host    The client's host name.
+     * @param replace What to do if the user is logged in on another connection: true to end that
+     *                session (logged as Terminated) and start this one, false to leave it.
+     * @return The user's session on the other connection, or null if there was none. With
+     *         {@code replace} false a non-null result means no session was started.
+     */
+    public synchronized Session register(String userId, ClientChannel client, String ip, String host, boolean replace) {
+        Session other = byUser.get(userId);
+        if (other != null && other.client() == client) other = null;
+        if (other != null) {
+            if (!replace) return other;
+            end(other, "Terminated");
+        }
+        Session previous = byClient.get(client);
+        if (previous != null) end(previous, "Disconnected");
+
+        Session session = new Session(client, new ConnectionEvent(LocalDateTime.now(), "Connected", userId, ip, host));
+        byUser.put(userId, session);
+        byClient.put(client, session);
+        ConnectionEvent connected = session.connected();
+        onFxThread(() -> {
+            addToLog(connected);
+            liveIndex.put(connected, live.size());
+            live.add(connected);
+        });
+        return other;
+    }
+
+    /**
+     * Ends the session of a connection, if it has one.
+     *
+     * @param client The connection.
+     * @param event  What to log: Disconnected or Terminated.
+     * @return The session that ended, or null if the connection had none.
+     */
+    public synchronized Session remove(ClientChannel client, String event) {
+        Session session = byClient.get(client);
+        if (session != null) end(session, event);
+        return session;
+    }
+
+    private void end(Session session, String event) {
+        byClient.remove(session.client(), session);
+        byUser.remove(session.userId(), session);
+        ConnectionEvent c = session.connected();
+        ConnectionEvent ended = new ConnectionEvent(LocalDateTime.now(), event, c.userId(), c.ip(), c.host());
+        onFxThread(() -> {
+            removeFromLive(c);
+            addToLog(ended);
+        });
+    }
+
+    /** Removes a live entry by moving the last entry into its place. */
+    private void removeFromLive(ConnectionEvent connected) {
+        Integer index = liveIndex.remove(connected);
+        if (index == null) return;
+        ConnectionEvent last = live.remove(live.size() - 1);
+        if (index < live.size()) {
+            live.set(index, last);
+            liveIndex.put(last, index);
+        }
+    }
+
+    /** Adds a log entry, dropping the oldest tenth of the log once it is over its limit. */
+    private void addToLog(ConnectionEvent event) {
+        log.add(event);
+        if (log.size() > MAX_LOG) log.remove(0, log.size() - MAX_LOG + MAX_LOG / 10);
+    }
+
+    /**
+     * Runs a change of the shown lists on the JavaFX thread. Changes are queued under the
+     * registry's lock, so they run in the order the sessions changed. Without a JavaFX
+     * toolkit (a headless server) nothing shows the lists and the change runs here.
+     */
+    private static void onFxThread(Runnable change) {
+        try {
+            Platform.runLater(change);
+        } catch (IllegalStateException toolkitNotStarted) {
+            change.run();
+        }
+    }
+
+    /**
+     * @param userId A user ID.
+     * @return The user's session, or null if the user is not logged in.
+     */
+    public Session get(String userId) {
+        return byUser.get(userId);
+    }
+
+    /**
+     * @param client A connection.
+     * @return The session on the connection, or null if no one is logged in on it.
+     */
+    public Session get(ClientChannel client) {
+        return byClient.get(client);
+    }
+
+    /**
+     * @return The number of logged-in users.
+     */
+    public int size() {
+        return byUser.size();
+    }
+
+    /**
+     * @return The connection log, oldest first; read it on the JavaFX thread.
+     */
+    public ObservableList<ConnectionEvent> getLog() {
+        return log;
+    }
+
+    /**
+     * @return The login entries of the sessions still open, in no particular order; read it on
+     *         the JavaFX thread.
+     */
+    public ObservableList<ConnectionEvent> getLive() {
+        return live;
+    }
+}
@@ -0,0 +1,240 @@
+package server_core;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A prepared-statement cache bound to one physical connection of the {@link DBconnector} pool.
+ * Statements are kept open between requests so the server-side prepare done by MySQL is reused
+ * instead of re-parsing the same SQL on every call.
+ *
+ * <p>Callers keep using the plain JDBC idiom ({@code try (PreparedStatement ps = conn.prepareStatement(sql))});
+ * closing the returned statement only checks it back into the cache. A connection is only ever used by the
+ * thread holding its lease, so the cache needs no locking of its own.</p>
+ */
+class StatementCache {
+
+    private final Connection physical;
+    private final int capacity;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /** Cached statements by key, least recently used first. */
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    /** Statements currently checked out by the lease holder. */
+    private final Set<PreparedStatement> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /** The current lease; statement proxies of an ended lease are rejected. */
+    private volatile int lease;
+
+    /**
+     * @param physical The physical connection the statements are prepared on.
+     * @param capacity Maximum number of cached statements.
+     * @param hits     Pool-wide hit counter.
+     * @param misses   Pool-wide miss counter.
+     */
+    StatementCache(Connection physical, int capacity, AtomicLong hits, AtomicLong misses) {
+        this.physical = physical;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns a cached statement for the SQL, preparing it on a miss.
+     *
+     * @param sql               The SQL text.
+     * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS}, {@link Statement#NO_GENERATED_KEYS},
+     *                          or -1 when the caller did not ask for either.
+     * @param owner             The pooled connection proxy, returned from {@code getConnection()}.
+     * @return A statement proxy whose {@code close()} returns it to the cache.
+     * @throws SQLException If preparing the statement fails.
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys, Connection owner) throws SQLException {
+        String key = autoGeneratedKeys + "#" + sql;
+        PreparedStatement cached = statements.get(key);
+
+        if (cached != null && !inUse.contains(cached)) {
+            hits.incrementAndGet();
+            inUse.add(cached);
+            return wrap(cached, owner, true);
+        }
+
+        misses.incrementAndGet();
+        PreparedStatement fresh = autoGeneratedKeys < 0
+                ? physical.prepareStatement(sql)
+                : physical.prepareStatement(sql, autoGeneratedKeys);
+
+        if (cached != null) {
+            // Same SQL already checked out (nested use): hand out an uncached statement.
+            return wrap(fresh, owner, false);
+        }
+
+        statements.put(key, fresh);
+        inUse.add(fresh);
+        evictOverflow();
+        return wrap(fresh, owner, true);
+    }
+
+    /**
+     * Closes every cached statement. Called when the physical connection is discarded.
+     */
+    void closeAll() {
+        for (PreparedStatement ps : statements.values()) {
+            try {
+                ps.close();
+            } catch (SQLException ignored) {}
+        }
+        statements.clear();
+        inUse.clear();
+    }
+
+    /**
+     * Forgets statements the lease holder never closed, so they can be handed out to the next borrower.
+     * Called when the connection goes back to the pool; proxies handed out during the lease stop working.
+     */
+    void endLease() {
+        lease++;
+        for (PreparedStatement ps : inUse) {
+            try {
+                ps.clearParameters();
+            } catch (SQLException ignored) {}
+        }
+        inUse.clear();
+    }
+
+    /**
+     * @return the number of statements currently cached.
+     */
+    int size() {
+        return statements.size();
+    }
+
+    /**
+     * Evicts least recently used statements that are not checked out until the cache fits its capacity.
+     */
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, PreparedStatement>> it = statements.entrySet().iterator();
+        while (statements.size() > capacity && it.hasNext()) {
+            PreparedStatement eldest = it.next().getValue();
+            if (inUse.contains(eldest)) continue;
+            it.remove();
+            try {
+                eldest.close();
+            } catch (SQLException ignored) {}
+        }
+    }
+
+    /**
+     * Checks a statement back in: closes the result set it produced and clears its parameters.
+     */
+    private void checkIn(PreparedStatement ps, ResultSet lastResult) {
+        try {
+            if (lastResult != null) lastResult.close();
+            ps.clearParameters();
+        } catch (SQLException e) {
+            statements.values().remove(ps);
+            try {
+                ps.close();
+            } catch (SQLException ignored) {}
+        } finally {
+            inUse.remove(ps);
+        }
+    }
+
+    private PreparedStatement wrap(PreparedStatement ps, Connection owner, boolean cached) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new CachedStatementHandler(ps, owner, cached, lease));
+    }
+
+    /**
+     * Proxy handler for a checked-out statement.
+     */
+    private final class CachedStatementHandler implements InvocationHandler {
+        private final PreparedStatement target;
+        private final Connection owner;
+        private final boolean cached;
+        private final int lease;
+        private ResultSet lastResult;
+        private boolean closed;
+
+        private CachedStatementHandler(PreparedStatement target, Connection owner, boolean cached, int lease) {
+            this.target = target;
+            this.owner = owner;
+            this.cached = cached;
+            this.lease = lease;
+        }
+
+        /**
+         * @return true if the connection was returned since this statement was handed out; the cached
+         *         statement may then belong to the next borrower.
+         */
+        private boolean stale() {
+            return lease != StatementCache.this.lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        if (cached) {
+                            if (!stale()) checkIn(target, lastResult);
+                        } else {
+                            target.close();
+                        }
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || stale() || target.isClosed();
+                }
+                case "getConnection" -> {
+                    return owner;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Cached" + target;
+                }
+                default -> {
+                    if (closed) throw new SQLException("Statement has already been closed.");
+                    if (stale()) throw new SQLException("Statement belongs to a connection that was returned to the pool.");
+                }
+            }
+
+            try {
+                Object result = method.invoke(target, args);
+                if (result instanceof ResultSet rs && "executeQuery".equals(method.getName())) {
+                    lastResult = rs;
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ import javafx.scene.image.ImageView;
 import javafx.scene.layout.AnchorPane;
 import ocsf.server.ConnectionToClient;
 import server_core.ServerCore;
+import server_core.SessionRegistry.ConnectionEvent;
 
 import java.net.URL;
 import java.util.List;
@@ -21,7 +22,7 @@ import java.util.List;
 public class ServerConnectionsController {
 
     @FXML private AnchorPane mainScreen;
-    @FXML private ListView<String> connectionList;
+    @FXML private ListView<ConnectionEvent> connectionList;
     @FXML private ToggleButton activeFilter;
     @FXML private ImageView CSVexportBtn;
     private ServerCore serverCore;
@@ -41,10 +42,10 @@ public class ServerConnectionsController {
     /**
      * Displays the connection log in the ListView.
      * The connection log contains entries about client connections, disconnections, 
-     * and terminations. Each entry is styled based on its content:
-     * - Entries containing "Connected" are styled with the "list-active-cell" class.
-     * - Entries containing "Disconnected" are styled with the "list-inactive-cell" class.
-     * - Entries containing "Terminated" are styled with the "list-terminated-cell" class.
+     * and terminations. Each entry is styled based on its event:
+     * - "Connected" entries are styled with the "list-active-cell" class.
+     * - "Disconnected" entries are styled with the "list-inactive-cell" class.
+     * - "Terminated" entries are styled with the "list-terminated-cell" class.
      *
      * The method sets the items of the ListView to the log list retrieved from the ServerCore
      * and applies a custom cell factory to style the entries dynamically.
@@ -53,21 +54,20 @@ public class ServerConnectionsController {
         connectionList.setItems(serverCore.getLogList());
         connectionList.setCellFactory(list -> new ListCell<>() {
             @Override
-            protected void updateItem(String entry, boolean empty) {
+            protected void updateItem(ConnectionEvent entry, boolean empty) {
                 super.updateItem(entry, empty);
                 if (empty || entry == null) {
                     setText(null);
                     getStyleClass().removeAll("list-active-cell", "list-inactive-cell");
                 } else {
-                    setText(entry);
+                    setText(entry.toString());
                     getStyleClass().removeAll("list-active-cell", "list-inactive-cell");
 
-                    if (entry.contains("Connected")) {
-                        getStyleClass().add("list-active-cell");
-                    } else if (entry.contains("Disconnected")) {
-                        getStyleClass().add("list-inactive-cell");
-                    } else if (entry.contains("Terminated")) {
-                        getStyleClass().add("list-terminated-cell");
+                    switch (entry.event()) {
+                        case "Connected" -> getStyleClass().add("list-active-cell");
+                        case "Disconnected" -> getStyleClass().add("list-inactive-cell");
+                        case "Terminated" -> getStyleClass().add("list-terminated-cell");
+                        default -> { }
                     }
                 }
             }
@@ -87,13 +87,13 @@ public class ServerConnectionsController {
         connectionList.setItems(serverCore.getLiveClients());
         connectionList.setCellFactory(list -> new ListCell<>() {
             @Override
-            protected void updateItem(String entry, boolean empty) {
+            protected void updateItem(ConnectionEvent entry, boolean empty) {
                 super.updateItem(entry, empty);
                 if (empty || entry == null) {
                     setText(null);
                     getStyleClass().removeAll("list-active-cell", "list-inactive-cell", "list-terminated-cell");
                 } else {
-                    setText(entry);
+                    setText(entry.toString());
                     getStyleClass().removeAll("list-active-cell", "list-inactive-cell", "list-terminated-cell");
                     getStyleClass().add("list-active-cell");
                 }
@@ -16,6 +16,7 @@ import javafx.scene.image.ImageView;
 import javafx.scene.layout.AnchorPane;
 import javafx.stage.Stage;
 import server_core.DBconnector;
+import server_core.ReportBackfill;
 import server_core.ServerCore;
 
 /**
@@ -31,6 +32,7 @@ public class ServerGUIController {
     @FXML private AnchorPane rootPane;
     @FXML private TextField S_ip;
     @FXML private TextField S_port;
+    @FXML private ComboBox<ServerCore.Transport> transportBox;
     @FXML private TextField DB_user;
     @FXML private TextField DB_pass;
     @FXML private TextField DB_ip;
@@ -40,6 +42,7 @@ public class ServerGUIController {
     @FXML private TextField OrdersApiKey;
     @FXML private Button connectBtn;
     @FXML private Button conBtn;
+    @FXML private Button backfillBtn;
 
     // ================================ Server/DB Runtime State ================================
     private String serverIp;
@@ -64,6 +67,8 @@ public class ServerGUIController {
 
         S_ip.setText("0.0.0.0");
         S_port.setText("5555");
+        transportBox.getItems().setAll(ServerCore.Transport.values());
+        transportBox.setValue(ServerCore.Transport.OCSF);
         DB_user.setText("root");
         DB_pass.setText("Aa123456");
         DB_ip.setText("127.0.0.1");
@@ -79,6 +84,7 @@ public class ServerGUIController {
         switchTheme();
         debugFiller();
         conBtn.setDisable(true);
+        backfillBtn.setDisable(true);
 
         Platform.runLater(() -> {
             Stage stage = (Stage) connectBtn.getScene().getWindow();
@@ -113,7 +119,7 @@ public class ServerGUIController {
         if (!inputCheck(serverIp, serverport, dbIp, dbPort, dbUser, dbPassword, dbName)) return;
 
         dbUrl = "jdbc:mysql://" + dbIp + ":" + dbPort + "/" + dbName +
-                "?serverTimezone=Asia/Jerusalem&allowLoadLocalInfile=true&useSSL=false";
+                "?serverTimezone=Asia/Jerusalem&allowLoadLocalInfile=true&useSSL=false&useServerPrepStmts=true&useCursorFetch=true";
 
         try {
             db = new DBconnector();
@@ -122,8 +128,12 @@ public class ServerGUIController {
             return;
         }
 
-        if (db.connect(dbUrl, dbUser, dbPassword)) {
-            serverCore = new ServerCore(serverIp, Integer.parseInt(serverport), db.getConnection());
+        int poolMin = Integer.getInteger("bpark.db.pool.min", DBconnector.DEFAULT_MIN_SIZE);
+        int poolMax = Integer.getInteger("bpark.db.pool.max", DBconnector.DEFAULT_MAX_SIZE);
+        db.setStatementCacheSize(Integer.getInteger("bpark.db.stmt.cache", DBconnector.DEFAULT_STATEMENT_CACHE_SIZE));
+
+        if (db.connect(dbUrl, dbUser, dbPassword, poolMin, poolMax)) {
+            serverCore = new ServerCore(serverIp, Integer.parseInt(serverport), db, transportBox.getValue());
             isServerRunning = serverCore.start();
             if (isServerRunning) {
                 enableInput(false);
@@ -153,8 +163,8 @@ public class ServerGUIController {
      * Disconnects from DB and stops the server.
      */
     private void handleDisconnect() {
-        if (db != null) db.disconnect();
         if (serverCore != null) serverCore.stop();
+        if (db != null) db.disconnect();
 
         enableInput(true);
         connectBtn.setText("Connect");
@@ -201,6 +211,34 @@ public class ServerGUIController {
         }
     }
 
+    /**
+     * Generates the reports of past months in the background, showing the progress on the button.
+     */
+    @FXML
+    private void handleBackfillReports() {
+        if (serverCore == null || !isServerRunning) return;
+        ServerCore core = serverCore;
+        backfillBtn.setDisable(true);
+        backfillBtn.setText("Backfilling...");
+
+        Thread worker = new Thread(() -> {
+            ReportBackfill.Progress result = core.backfillReports(progress -> Platform.runLater(() ->
+                    backfillBtn.setText((progress.done() + progress.skipped() + progress.failed()) + "/" + progress.total())));
+            Platform.runLater(() -> {
+                backfillBtn.setText("Backfill Reports");
+                backfillBtn.setDisable(!isServerRunning);
+                if (result == null) {
+                    showAlert("❌ Backfill Error", "Could not read the parking history.", AlertType.ERROR);
+                } else {
+                    showAlert(result.failed() > 0 ? "⚠️ Backfill Finished" : "✔️ Backfill Finished",
+                            "Reports: " + result, result.failed() > 0 ? AlertType.WARNING : AlertType.INFORMATION);
+                }
+            });
+        }, "report-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
     /**
      * Validates all necessary input fields before connection.
      */
@@ -286,6 +324,7 @@ public class ServerGUIController {
     private void enableInput(boolean bol) {
         S_ip.setDisable(!bol);
         S_port.setDisable(!bol);
+        transportBox.setDisable(!bol);
         DB_ip.setDisable(!bol);
         DB_port.setDisable(!bol);
         DB_name.setDisable(!bol);
@@ -294,6 +333,7 @@ public class ServerGUIController {
         RecoveryApiKey.setDisable(!bol);
         OrdersApiKey.setDisable(!bol);
         conBtn.setDisable(bol);
+        backfillBtn.setDisable(bol);
     }
 
     /**
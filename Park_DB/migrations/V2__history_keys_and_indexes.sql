@@ -0,0 +1,43 @@
+-- =========================
+-- Migration V2 - parking_history primary key + query indexes
+-- Apply after importing Park_DB.sql (which is schema version 1):
+--   mysql -u root -p park_db < Park_DB/migrations/V2__history_keys_and_indexes.sql
+-- Safe to run twice: every step is skipped once schema_version records version 2.
+-- =========================
+
+USE `park_db`;
+
+CREATE TABLE IF NOT EXISTS `schema_version` (
+  `version` int NOT NULL,
+  `description` varchar(200) NOT NULL,
+  `applied_at` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`version`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT IGNORE INTO `schema_version` (`version`, `description`) VALUES (1, 'Park_DB.sql baseline');
+
+SET @skip := (SELECT COUNT(*) FROM `schema_version` WHERE `version` = 2);
+
+-- Surrogate key + indexes for per-subscriber history, monthly reports and order lookups
+SET @ddl := IF(@skip = 0, '
+  ALTER TABLE `parking_history`
+    ADD COLUMN `history_id` bigint NOT NULL AUTO_INCREMENT FIRST,
+    ADD PRIMARY KEY (`history_id`),
+    ADD KEY `idx_history_subscriber_date` (`subscriber_id`, `parking_date`, `parking_time`),
+    ADD KEY `idx_history_event_date` (`event_type`, `parking_date`),
+    ADD KEY `idx_history_order` (`order_number`, `event_type`)
+', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Date/time index for reservations and the late-pending sweep
+SET @ddl := IF(@skip = 0, '
+  ALTER TABLE `orders`
+    ADD KEY `idx_orders_date_time` (`order_date`, `order_time`)
+', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+INSERT IGNORE INTO `schema_version` (`version`, `description`) VALUES (2, 'parking_history PK and indexes, orders date index');
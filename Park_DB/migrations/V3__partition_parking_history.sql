@@ -0,0 +1,54 @@
+-- =========================
+-- Migration V3 - RANGE partition parking_history by month of parking_date
+-- Requires V2. Apply with:
+--   mysql -u root -p park_db < Park_DB/migrations/V3__partition_parking_history.sql
+-- One partition per month from the oldest history row up to next month (pYYYYMM),
+-- plus pfuture (MAXVALUE). The server's PartitionMaintenanceThread keeps splitting
+-- pfuture so upcoming months always have their own partition.
+-- Safe to run twice: skipped once schema_version records version 3.
+-- =========================
+
+USE `park_db`;
+
+DROP PROCEDURE IF EXISTS `migrate_v3`;
+
+DELIMITER $$
+CREATE PROCEDURE `migrate_v3`()
+BEGIN
+  DECLARE month_start DATE;
+  DECLARE last_month DATE;
+  DECLARE parts TEXT DEFAULT '';
+
+  IF (SELECT COUNT(*) FROM `schema_version` WHERE `version` = 2) = 0 THEN
+    SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Apply V2__history_keys_and_indexes.sql first.';
+  END IF;
+
+  IF (SELECT COUNT(*) FROM `schema_version` WHERE `version` = 3) = 0 THEN
+    -- Every unique key of a partitioned table must contain the partitioning column
+    ALTER TABLE `parking_history`
+      DROP PRIMARY KEY,
+      ADD PRIMARY KEY (`history_id`, `parking_date`);
+
+    SET month_start = DATE_FORMAT(COALESCE((SELECT MIN(`parking_date`) FROM `parking_history`), CURRENT_DATE), '%Y-%m-01');
+    SET last_month = DATE_FORMAT(CURRENT_DATE + INTERVAL 1 MONTH, '%Y-%m-01');
+
+    WHILE month_start <= last_month DO
+      SET parts = CONCAT(parts,
+        'PARTITION p', DATE_FORMAT(month_start, '%Y%m'),
+        ' VALUES LESS THAN (''', month_start + INTERVAL 1 MONTH, '''), ');
+      SET month_start = month_start + INTERVAL 1 MONTH;
+    END WHILE;
+
+    SET @ddl = CONCAT('ALTER TABLE `parking_history` PARTITION BY RANGE COLUMNS (`parking_date`) (',
+                      parts, 'PARTITION pfuture VALUES LESS THAN (MAXVALUE))');
+    PREPARE stmt FROM @ddl;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+
+    INSERT INTO `schema_version` (`version`, `description`) VALUES (3, 'parking_history monthly RANGE partitions');
+  END IF;
+END$$
+DELIMITER ;
+
+CALL `migrate_v3`();
+DROP PROCEDURE `migrate_v3`;
@@ -0,0 +1,25 @@
+-- =========================
+-- Migration V4 - keyset index for paged USER_HISTORY
+-- Requires V2. Apply with:
+--   mysql -u root -p park_db < Park_DB/migrations/V4__history_keyset_index.sql
+-- USER_HISTORY pages a subscriber's history newest first by
+-- (parking_date, parking_time, order_number, history_id). Adding order_number to the
+-- subscriber index (history_id is appended by InnoDB as part of the primary key)
+-- lets every page be read straight off the index instead of sorting the whole history.
+-- Safe to run twice: skipped once schema_version records version 4.
+-- =========================
+
+USE `park_db`;
+
+SET @skip := (SELECT COUNT(*) FROM `schema_version` WHERE `version` = 4);
+
+SET @ddl := IF(@skip = 0, '
+  ALTER TABLE `parking_history`
+    DROP KEY `idx_history_subscriber_date`,
+    ADD KEY `idx_history_subscriber_date` (`subscriber_id`, `parking_date`, `parking_time`, `order_number`)
+', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+INSERT IGNORE INTO `schema_version` (`version`, `description`) VALUES (4, 'parking_history keyset index for paged history');
@@ -0,0 +1,52 @@
+-- =========================
+-- Migration V5 - orders.due_at for the late-order sweeps
+-- Requires V2. Apply with:
+--   mysql -u root -p park_db < Park_DB/migrations/V5__orders_due_at.sql
+-- due_at is when an open order runs out: the deposit time + 4 hours (8 once extended)
+-- for an active order, the reservation time + 15 minutes for a pending one. The server
+-- sets it at deposit and reservation and moves it forward on extension, so the order
+-- monitor finds late orders with one range scan of (order_status, due_at).
+-- Existing open orders are backfilled from their deposit history and reservation time.
+-- Safe to run twice: skipped once schema_version records version 5.
+-- =========================
+
+USE `park_db`;
+
+SET @skip := (SELECT COUNT(*) FROM `schema_version` WHERE `version` = 5);
+
+SET @ddl := IF(@skip = 0, '
+  ALTER TABLE `orders`
+    ADD COLUMN `due_at` datetime DEFAULT NULL,
+    ADD KEY `idx_orders_status_due` (`order_status`, `due_at`)
+', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Active and late orders: due 4 (or 8) hours after the deposit
+SET @ddl := IF(@skip = 0, '
+  UPDATE `orders` o
+  JOIN (
+    SELECT `order_number`, MAX(TIMESTAMP(`parking_date`, `parking_time`)) AS `deposited_at`
+    FROM `parking_history`
+    WHERE `event_type` = ''deposited''
+    GROUP BY `order_number`
+  ) d ON d.`order_number` = o.`order_number`
+  SET o.`due_at` = d.`deposited_at` + INTERVAL IF(o.`is_extended`, 8, 4) HOUR
+  WHERE o.`order_status` IN (''active'', ''late'')
+', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Pending orders: due 15 minutes after the reservation time
+SET @ddl := IF(@skip = 0, '
+  UPDATE `orders`
+  SET `due_at` = TIMESTAMP(`order_date`, `order_time`) + INTERVAL 15 MINUTE
+  WHERE `order_status` = ''pending''
+', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+INSERT IGNORE INTO `schema_version` (`version`, `description`) VALUES (5, 'orders due_at and status/due index');
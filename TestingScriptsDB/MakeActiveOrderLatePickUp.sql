@@ -8,7 +8,8 @@
 
 SET SQL_SAFE_UPDATES = 0;
 UPDATE orders
-SET order_time = DATE_SUB(order_time, INTERVAL 4 HOUR)
+SET order_time = DATE_SUB(order_time, INTERVAL 4 HOUR),
+    due_at = DATE_SUB(due_at, INTERVAL 4 HOUR)
 WHERE order_number = 71;
 
 UPDATE parking_history
@@ -10,6 +10,7 @@ SET SQL_SAFE_UPDATES = 0;
 UPDATE orders
 SET order_date = CURRENT_DATE,
     order_time = SUBTIME(CURRENT_TIME, '00:15:00'),
-    order_status = 'pending'
+    order_status = 'pending',
+    due_at = TIMESTAMP(order_date, order_time) + INTERVAL 15 MINUTE
 WHERE order_number = 34;
 SET SQL_SAFE_UPDATES = 1;
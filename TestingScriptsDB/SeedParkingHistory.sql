@@ -0,0 +1,32 @@
+-- =========================
+-- Fills parking_history with synthetic rows for query benchmarks.
+-- Only use on a scratch copy of park_db!
+-- =========================
+-- Change @rows to the number of rows to add (default 5,000,000).
+-- Events are spread over 5,000 subscriber ids (10000-14999),
+-- 10 parking spaces and the 3 years before today.
+
+SET @rows = 5000000;
+
+SET SQL_SAFE_UPDATES = 0;
+INSERT INTO parking_history (subscriber_id, parking_num, parking_date, parking_time, event_type, order_number)
+SELECT 10000 + (n % 5000),
+       101 + (n % 10),
+       DATE_SUB(CURRENT_DATE, INTERVAL (n % 1095) DAY),
+       SEC_TO_TIME((n * 37) % 86400),
+       ELT(1 + (n % 6), 'deposited', 'picked_up', 'reserved', 'late', 'cancelled', 'extended'),
+       n
+FROM (
+    SELECT d0.d + 10 * d1.d + 100 * d2.d + 1000 * d3.d + 10000 * d4.d + 100000 * d5.d + 1000000 * d6.d AS n
+    FROM (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4 UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d0,
+         (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4 UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d1,
+         (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4 UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d2,
+         (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4 UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d3,
+         (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4 UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d4,
+         (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4 UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d5,
+         (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4 UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d6
+) seq
+WHERE n < @rows;
+SET SQL_SAFE_UPDATES = 1;
+
+SELECT COUNT(*) AS history_rows FROM parking_history;